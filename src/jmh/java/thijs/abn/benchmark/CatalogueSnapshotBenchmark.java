@@ -0,0 +1,67 @@
+package thijs.abn.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import thijs.abn.AbnApplication;
+import thijs.abn.service.CatalogueSnapshot;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Measures writing a {@link CatalogueSnapshot} of a generated catalogue and restoring it into an empty database,
+ * including the rebuild of the in-memory indexes and the search read model rows, with the default configuration.
+ * <pre>
+ * mvn -P jmh test-compile exec:exec -Djmh.main=thijs.abn.benchmark.CatalogueSnapshotBenchmark -Djmh.args="1000000"
+ * </pre>
+ * The only argument, optional, is the number of recipes (default 1000000).
+ */
+public class CatalogueSnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int recipeCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path snapshot = Files.createTempFile("catalogue", ".snapshot");
+        try {
+            RecipeDataset dataset = new RecipeDataset();
+            dataset.recipeCount = recipeCount;
+            dataset.start(WebApplicationType.NONE, "spring.datasource.url=jdbc:h2:mem:snapshot-source;DB_CLOSE_DELAY=-1");
+            try {
+                long start = System.nanoTime();
+                long written;
+                try (OutputStream outputStream = Files.newOutputStream(snapshot)) {
+                    written = dataset.bean(CatalogueSnapshot.class).write(outputStream);
+                }
+                System.out.printf("Wrote %d recipes (%d MB) in %.1f s%n", written, Files.size(snapshot) >> 20,
+                        (System.nanoTime() - start) / 1e9);
+            } finally {
+                dataset.stop();
+            }
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AbnApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run("--spring.datasource.url=jdbc:h2:mem:snapshot-target;DB_CLOSE_DELAY=-1",
+                            "--spring.jpa.show-sql=false",
+                            "--recipes.seed.async=false",
+                            "--logging.level.root=WARN")) {
+                // Start-up seeded the small bundled catalogue; empty the database again so the snapshot can be restored
+                JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+                for (String table : List.of("recipe_search_ingredients", "recipe_search", "recipe_ingredients", "recipes", "ingredients")) {
+                    jdbc.update("DELETE FROM " + table);
+                }
+                long start = System.nanoTime();
+                long restored;
+                try (InputStream inputStream = Files.newInputStream(snapshot)) {
+                    restored = context.getBean(CatalogueSnapshot.class).restore(inputStream);
+                }
+                System.out.printf("Restored %d recipes in %.1f s%n", restored, (System.nanoTime() - start) / 1e9);
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package thijs.abn.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import thijs.abn.index.IngredientFuzzyIndex;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misspelled ingredient lookups in {@link IngredientFuzzyIndex} over the generated catalogue plus
+ * {@link FuzzyState#vocabularySize} extra ingredient names, with the default limits.
+ * <pre>
+ * mvn -P jmh test-compile exec:exec -Djmh.args="IngredientFuzzyBenchmark -p recipeCount=1000"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngredientFuzzyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FuzzyState {
+        @Param("200000")
+        public int vocabularySize;
+
+        // One edit from a generated name, two edits from one, and no name within reach, the worst case
+        @Param({"benchmark ingredent 12", "kalomi 4", "mozarella"})
+        public String term;
+
+        IngredientFuzzyIndex ingredientFuzzyIndex;
+
+        @Setup(Level.Trial)
+        public void setUp(RecipeDataset dataset) {
+            IngredientSuggestBenchmark.addVocabulary(dataset, vocabularySize);
+            ingredientFuzzyIndex = dataset.bean(IngredientFuzzyIndex.class);
+            ingredientFuzzyIndex.rebuild();
+        }
+    }
+
+    @Benchmark
+    public Map<Long, String> match(FuzzyState state) {
+        return state.ingredientFuzzyIndex.match(state.term);
+    }
+}
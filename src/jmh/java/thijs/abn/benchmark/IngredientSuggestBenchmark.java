@@ -0,0 +1,89 @@
+package thijs.abn.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import thijs.abn.index.IngredientSuggestIndex;
+import thijs.abn.model.IngredientSuggestionDto;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingredient suggestions from {@link IngredientSuggestIndex} and from the SQL fallback, over the generated catalogue
+ * plus {@link SuggestState#vocabularySize} extra ingredient names built from random syllables.
+ * <pre>
+ * mvn -P jmh test-compile exec:exec -Djmh.args="IngredientSuggestBenchmark -p recipeCount=100000"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngredientSuggestBenchmark {
+
+    private static final String[] SYLLABLES = {
+            "ba", "be", "bo", "ca", "ci", "co", "da", "di", "fa", "fe", "ga", "go", "ka", "ki", "la", "le", "li", "lo",
+            "ma", "me", "mi", "mo", "na", "ne", "no", "pa", "pe", "pi", "ra", "re", "ri", "ro", "sa", "se", "si", "so",
+            "ta", "te", "ti", "to", "va", "ve", "za", "zu"};
+
+    @State(Scope.Benchmark)
+    public static class SuggestState {
+        @Param("200000")
+        public int vocabularySize;
+
+        // A single letter, a common start, a rare start, and an exact generated ingredient name
+        @Param({"b", "tomi", "zuzuzu", "benchmark ingredient 12"})
+        public String prefix;
+
+        IngredientSuggestIndex ingredientSuggestIndex;
+        IngredientRepository ingredientRepository;
+
+        @Setup(Level.Trial)
+        public void setUp(RecipeDataset dataset) {
+            addVocabulary(dataset, vocabularySize);
+            ingredientSuggestIndex = dataset.bean(IngredientSuggestIndex.class);
+            ingredientSuggestIndex.rebuild();
+            ingredientRepository = dataset.bean(IngredientRepository.class);
+        }
+    }
+
+    /**
+     * Inserts the given number of distinct ingredient names built from random syllables, like {@code kalomi 42}.
+     */
+    static void addVocabulary(RecipeDataset dataset, int size) {
+        JdbcTemplate jdbc = dataset.bean(JdbcTemplate.class);
+        SplittableRandom random = new SplittableRandom(7);
+        Set<String> names = new HashSet<>();
+        while (names.size() < size) {
+            StringBuilder name = new StringBuilder();
+            for (int i = 1 + random.nextInt(5); i > 0; i--) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            names.add(name.append(' ').append(random.nextInt(100)).toString());
+        }
+        long firstId = RecipeDataset.nextId(jdbc, "ingredients_seq");
+        List<Object[]> rows = new ArrayList<>(names.size());
+        for (String name : names) {
+            rows.add(new Object[]{firstId + rows.size(), name});
+        }
+        jdbc.batchUpdate("INSERT INTO ingredients (id, name) VALUES (?, ?)", rows);
+        jdbc.execute("ALTER SEQUENCE ingredients_seq RESTART WITH " + (firstId + rows.size() - 1 + 50));
+    }
+
+    @Benchmark
+    public List<IngredientSuggestionDto> suggest(SuggestState state) {
+        return state.ingredientSuggestIndex.suggest(state.prefix, 10);
+    }
+
+    @Benchmark
+    public List<Object[]> suggestWithSql(SuggestState state) {
+        return state.ingredientRepository.findRecipeCountsByNameLike(state.prefix + "%", PageRequest.of(0, 10));
+    }
+}
@@ -0,0 +1,162 @@
+package thijs.abn.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import thijs.abn.AbnApplication;
+import thijs.abn.index.FullTextIndex;
+import thijs.abn.index.IngredientFuzzyIndex;
+import thijs.abn.index.IngredientSuggestIndex;
+import thijs.abn.index.RecipeIndex;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Application context on an in-memory H2 database filled with a generated catalogue of {@link #recipeCount} recipes.
+ * The rows are inserted with plain JDBC batches so that even the largest dataset loads in reasonable time; the search
+ * indexes are rebuilt afterwards. Caching is disabled so the benchmarks measure the service itself.
+ */
+@State(Scope.Benchmark)
+public class RecipeDataset {
+
+    static final int INGREDIENT_COUNT = 5_000;
+    static final int INGREDIENTS_PER_RECIPE = 8;
+    static final int MAX_SERVINGS = 12;
+    static final String[] WORDS = {
+            "bake", "boil", "chop", "dice", "fry", "grill", "knead", "mix", "poach", "roast", "simmer", "slice",
+            "steam", "stir", "whisk", "oven", "pan", "pot", "bowl", "tray", "minutes", "hour", "gently", "slowly",
+            "golden", "crisp", "tender", "smooth", "thick", "season", "serve", "garnish", "rest", "cool", "heat",
+            "cover", "drain", "fold", "blend", "toast"};
+
+    private static final int JDBC_BATCH_SIZE = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int recipeCount;
+
+    private ConfigurableApplicationContext context;
+    private long firstRecipeId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        start(WebApplicationType.NONE);
+    }
+
+    /**
+     * Starts the application with the given extra properties, which override the benchmark defaults.
+     */
+    public void start(WebApplicationType webApplicationType, String... properties) {
+        // Passed as arguments rather than default properties, so they take precedence over application.yml
+        Map<String, String> arguments = new LinkedHashMap<>();
+        Stream.concat(Stream.of(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.cache.type=none",
+                        "recipes.seed.async=false",
+                        "recipes.search.full-text.enabled=true",
+                        "logging.level.root=WARN"), Arrays.stream(properties))
+                .forEach(property -> arguments.put(property.substring(0, property.indexOf('=')), property));
+        context = new SpringApplicationBuilder(AbnApplication.class)
+                .web(webApplicationType)
+                .run(arguments.values().stream().map(property -> "--" + property).toArray(String[]::new));
+        try {
+            generate();
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+        bean(RecipeIndex.class).rebuild();
+        bean(FullTextIndex.class).rebuild();
+        bean(IngredientSuggestIndex.class).rebuild();
+        bean(IngredientFuzzyIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long recipeId(int index) {
+        return firstRecipeId + index;
+    }
+
+    public static String ingredientName(int index) {
+        return "benchmark ingredient " + index;
+    }
+
+    /**
+     * A recipe in the shape of the generated ones, with a name that does not exist yet.
+     */
+    public static RecipeDto newRecipe(String name, SplittableRandom random) {
+        Set<IngredientDto> ingredients = new HashSet<>();
+        while (ingredients.size() < INGREDIENTS_PER_RECIPE) {
+            ingredients.add(new IngredientDto(null, ingredientName(random.nextInt(INGREDIENT_COUNT))));
+        }
+        return new RecipeDto(null, name, random.nextInt(10) < 3, 1 + random.nextInt(MAX_SERVINGS),
+                instructions(random), ingredients);
+    }
+
+    private static String instructions(SplittableRandom random) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < 20; i++) {
+            joiner.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return joiner + ".";
+    }
+
+    private void generate() {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        SplittableRandom random = new SplittableRandom(42);
+
+        long firstIngredientId = nextId(jdbc, "ingredients_seq");
+        List<Object[]> ingredients = new ArrayList<>(INGREDIENT_COUNT);
+        for (int i = 0; i < INGREDIENT_COUNT; i++) {
+            ingredients.add(new Object[]{firstIngredientId + i, ingredientName(i)});
+        }
+        jdbc.batchUpdate("INSERT INTO ingredients (id, name) VALUES (?, ?)", ingredients);
+
+        firstRecipeId = nextId(jdbc, "recipes_seq");
+        List<Object[]> recipes = new ArrayList<>(JDBC_BATCH_SIZE);
+        List<Object[]> links = new ArrayList<>(JDBC_BATCH_SIZE * INGREDIENTS_PER_RECIPE);
+        for (int i = 0; i < recipeCount; i++) {
+            long recipeId = recipeId(i);
+            // Skewed towards the first ingredients, as real catalogues share common ingredients
+            Set<Integer> recipeIngredients = new HashSet<>();
+            while (recipeIngredients.size() < INGREDIENTS_PER_RECIPE) {
+                int ingredient = random.nextInt(random.nextBoolean() ? 100 : INGREDIENT_COUNT);
+                recipeIngredients.add(ingredient);
+            }
+            recipes.add(new Object[]{recipeId, "benchmark recipe " + i, random.nextInt(10) < 3,
+                    1 + random.nextInt(MAX_SERVINGS), instructions(random)});
+            recipeIngredients.forEach(ingredient -> links.add(new Object[]{recipeId, firstIngredientId + ingredient}));
+
+            if (recipes.size() == JDBC_BATCH_SIZE || i == recipeCount - 1) {
+                jdbc.batchUpdate("INSERT INTO recipes (id, name, is_vegetarian, servings, instructions, version) VALUES (?, ?, ?, ?, ?, 0)", recipes);
+                jdbc.batchUpdate("INSERT INTO recipe_ingredients (recipe_id, ingredient_id) VALUES (?, ?)", links);
+                recipes.clear();
+                links.clear();
+            }
+        }
+
+        // Move the pooled id sequences past the generated rows, as V6__pooled_id_sequences does
+        jdbc.execute("ALTER SEQUENCE ingredients_seq RESTART WITH " + (firstIngredientId + INGREDIENT_COUNT - 1 + 50));
+        jdbc.execute("ALTER SEQUENCE recipes_seq RESTART WITH " + (recipeId(recipeCount) - 1 + 50));
+    }
+
+    // Starts past a value drawn from the sequence, so the ids cannot collide with a block the application already holds
+    static long nextId(JdbcTemplate jdbc, String sequence) {
+        return jdbc.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class) + 1;
+    }
+}
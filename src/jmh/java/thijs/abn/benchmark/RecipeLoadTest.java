@@ -0,0 +1,139 @@
+package thijs.abn.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-loop HTTP load test comparing request handling on platform threads with request handling on virtual threads.
+ * For each mode the application is started on a random port with a generated catalogue, and {@code clients}
+ * concurrent clients fetch single recipes and run searches for the given duration; throughput and latency percentiles
+ * are printed per mode. Virtual threads need Java 21, so that mode is skipped on older runtimes.
+ * <pre>
+ * mvn -P jmh test-compile exec:exec -Djmh.main=thijs.abn.benchmark.RecipeLoadTest -Djmh.args="400 30 100000"
+ * </pre>
+ * Arguments, all optional: number of clients (default 400, twice Tomcat's default thread pool), duration in seconds
+ * (default 30) and number of recipes (default 100000).
+ */
+public class RecipeLoadTest {
+
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+        int recipeCount = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        List<String> results = new ArrayList<>();
+        results.add(run("platform", recipeCount, clients, duration));
+        if (Runtime.version().feature() >= 21) {
+            results.add(run("virtual", recipeCount, clients, duration, "spring.profiles.active=virtual-threads"));
+        } else {
+            System.out.println("Skipping virtual threads: Java " + Runtime.version().feature() + " does not support them");
+        }
+
+        System.out.printf("%n%-10s %8s %10s %10s %10s %10s %8s%n", "mode", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "errors");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(String mode, int recipeCount, int clients, Duration duration, String... properties) throws Exception {
+        RecipeDataset dataset = new RecipeDataset();
+        dataset.recipeCount = recipeCount;
+        String[] all = Arrays.copyOf(properties, properties.length + 2);
+        all[properties.length] = "server.port=0";
+        all[properties.length + 1] = "spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1";
+        dataset.start(WebApplicationType.SERVLET, all);
+        try {
+            String baseUrl = "http://localhost:" + dataset.port() + "/api/v1/recipes";
+            System.out.println("Warming up " + mode + " threads");
+            load(baseUrl, dataset, clients, WARMUP);
+            System.out.println("Measuring " + mode + " threads with " + clients + " clients");
+            Result result = load(baseUrl, dataset, clients, duration);
+            return String.format("%-10s %8d %10.0f %10.1f %10.1f %10.1f %8d", mode, result.latencies().length,
+                    result.latencies().length / (duration.toMillis() / 1000.0),
+                    result.percentile(0.50), result.percentile(0.95), result.percentile(0.99), result.errors());
+        } finally {
+            dataset.stop();
+        }
+    }
+
+    private static Result load(String baseUrl, RecipeDataset dataset, int clients, Duration duration) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(clients);
+            for (int client = 0; client < clients; client++) {
+                SplittableRandom random = new SplittableRandom(client);
+                futures.add(executor.submit(() -> client(httpClient, baseUrl, dataset, random, deadline)));
+            }
+            List<Result> results = new ArrayList<>(clients);
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return Result.merge(results);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Result client(HttpClient httpClient, String baseUrl, RecipeDataset dataset, SplittableRandom random,
+                                 long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        int errors = 0;
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(random.nextBoolean()
+                            ? baseUrl + "/" + dataset.recipeId(random.nextInt(dataset.recipeCount))
+                            : baseUrl + "/search?limit=20&maxServings=" + (1 + random.nextInt(RecipeDataset.MAX_SERVINGS))
+                            + "&includedIngredients=" + RecipeDataset.ingredientName(random.nextInt(100)).replace(' ', '+')))
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors++;
+                    continue;
+                }
+            } catch (Exception e) {
+                errors++;
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return new Result(Arrays.copyOf(latencies, count), errors);
+    }
+
+    private record Result(long[] latencies, int errors) {
+
+        static Result merge(List<Result> results) {
+            long[] latencies = results.stream().flatMapToLong(result -> Arrays.stream(result.latencies())).sorted().toArray();
+            return new Result(latencies, results.stream().mapToInt(Result::errors).sum());
+        }
+
+        double percentile(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            return latencies[(int) Math.min(latencies.length - 1, Math.ceil(percentile * latencies.length) - 1)] / 1_000_000.0;
+        }
+    }
+}
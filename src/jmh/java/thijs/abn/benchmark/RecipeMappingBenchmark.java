@@ -0,0 +1,59 @@
+package thijs.abn.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import thijs.abn.entity.Recipe;
+import thijs.abn.mapper.RecipeMapper;
+import thijs.abn.mapper.RecipeMapperImpl;
+import thijs.abn.model.RecipeDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecipeMapper} in both directions and JSON serialisation of recipe lists. Runs without a database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeMappingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int listSize;
+
+    private final RecipeMapper recipeMapper = new RecipeMapperImpl();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<RecipeDto> dtos;
+    private List<Recipe> entities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        dtos = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            dtos.add(RecipeDataset.newRecipe("benchmark recipe " + i, random));
+        }
+        entities = dtos.stream().map(recipeMapper::map).toList();
+    }
+
+    @Benchmark
+    public List<Recipe> mapToEntities() {
+        return dtos.stream().map(recipeMapper::map).toList();
+    }
+
+    @Benchmark
+    public List<RecipeDto> mapToDtos() {
+        return entities.stream().map(recipeMapper::map).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeDtos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,70 @@
+package thijs.abn.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeFacetsDto.Facet;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.model.RecipeSearchResultDto;
+import thijs.abn.service.RecipeService;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecipeService#searchRecipes} for every kind of filter, alone and combined, with and without facets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeSearchBenchmark {
+
+    public enum Filter {
+        VEGETARIAN(new RecipeSearchCriteria(true, null, null, null, null, null, null)),
+        SERVINGS(new RecipeSearchCriteria(null, 4, 4, null, null, null, null)),
+        INCLUDE_ANY(new RecipeSearchCriteria(null, null, null, ingredients(500, 501), null, null, IngredientMatch.ANY)),
+        INCLUDE_ALL(new RecipeSearchCriteria(null, null, null, ingredients(1, 2), null, null, IngredientMatch.ALL)),
+        EXCLUDE(new RecipeSearchCriteria(null, 6, 6, null, ingredients(1, 2, 3), null, null)),
+        INSTRUCTIONS(new RecipeSearchCriteria(null, null, null, null, null, "knead", null)),
+        COMBINED(new RecipeSearchCriteria(true, 2, 6, ingredients(1), ingredients(2), "roast", null));
+
+        private final RecipeSearchCriteria criteria;
+
+        Filter(RecipeSearchCriteria criteria) {
+            this.criteria = criteria;
+        }
+
+        private static List<String> ingredients(int... indexes) {
+            return java.util.Arrays.stream(indexes).mapToObj(RecipeDataset::ingredientName).toList();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SearchState {
+        @Param
+        public Filter filter;
+
+        RecipeService recipeService;
+
+        @Setup(Level.Trial)
+        public void setUp(RecipeDataset dataset) {
+            recipeService = dataset.bean(RecipeService.class);
+        }
+    }
+
+    @Benchmark
+    public List<RecipeDto> searchRecipes(SearchState state) {
+        return state.recipeService.searchRecipes(state.filter.criteria);
+    }
+
+    /**
+     * The first page of 20 recipes with every facet counted over all matches.
+     */
+    @Benchmark
+    public RecipeSearchResultDto searchWithFacets(SearchState state) {
+        return state.recipeService.searchRecipes(state.filter.criteria, null, 20, false, EnumSet.allOf(Facet.class));
+    }
+}
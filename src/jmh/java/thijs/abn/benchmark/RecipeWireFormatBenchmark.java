@@ -0,0 +1,77 @@
+package thijs.abn.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import thijs.abn.config.WireFormatConfig;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Serialisation of recipe lists as JSON, as plain Smile and as Smile with shared string values, the way
+ * {@link WireFormatConfig} serves it. Prints the payload size of each format. Runs without a database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeWireFormatBenchmark {
+
+    public enum Format {
+        JSON,
+        SMILE,
+        SMILE_SHARED_STRINGS
+    }
+
+    @Param({"100", "10000"})
+    public int listSize;
+
+    @Param
+    public Format format;
+
+    private ObjectMapper objectMapper;
+    private List<RecipeDto> dtos;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case JSON -> new ObjectMapper();
+            case SMILE -> new ObjectMapper(new SmileFactory());
+            case SMILE_SHARED_STRINGS -> new ObjectMapper(WireFormatConfig.smileFactory());
+        };
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Long> ingredientIds = new HashMap<>();
+        dtos = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            RecipeDto recipe = RecipeDataset.newRecipe("benchmark recipe " + i, random);
+            Set<IngredientDto> ingredients = recipe.ingredients().stream()
+                    .map(ingredient -> new IngredientDto(ingredientIds.computeIfAbsent(ingredient.name(), name -> (long) ingredientIds.size() + 1),
+                            ingredient.name()))
+                    .collect(Collectors.toSet());
+            dtos.add(new RecipeDto((long) i + 1, recipe.name(), recipe.isVegetarian(), recipe.servings(),
+                    recipe.instructions(), ingredients));
+        }
+        payload = objectMapper.writeValueAsBytes(dtos);
+        System.out.printf("%n%s payload of %d recipes: %d bytes%n", format, listSize, payload.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public List<RecipeDto> deserialize() throws IOException {
+        return objectMapper.readValue(payload, new TypeReference<>() {
+        });
+    }
+}
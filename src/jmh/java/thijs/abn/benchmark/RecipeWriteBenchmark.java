@@ -0,0 +1,65 @@
+package thijs.abn.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeStreamImportResultDto;
+import thijs.abn.service.RecipeService;
+import thijs.abn.service.RecipeStreamImporter;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * streaming import of {@link #IMPORT_SIZE} new recipes.
+ * streaming import of {@link #IMPORT_SIZE} new recipes, the path {@code RecipeDbInit} uses to seed the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RecipeWriteBenchmark {
+
+    static final int IMPORT_SIZE = 1000;
+
+    private RecipeService recipeService;
+    private RecipeStreamImporter recipeStreamImporter;
+    private ObjectMapper objectMapper;
+    private RecipeDataset dataset;
+    private final SplittableRandom random = new SplittableRandom(7);
+    private long created;
+
+    @Setup(Level.Trial)
+    public void setUp(RecipeDataset dataset) {
+        this.dataset = dataset;
+        this.recipeService = dataset.bean(RecipeService.class);
+        this.recipeStreamImporter = dataset.bean(RecipeStreamImporter.class);
+        this.objectMapper = dataset.bean(ObjectMapper.class);
+    }
+
+    @Benchmark
+    public void createRecipe() {
+        recipeService.createRecipe(RecipeDataset.newRecipe("benchmark created " + created++, random));
+    }
+
+    @Benchmark
+    public RecipeDto updateRecipe() {
+        int index = random.nextInt(dataset.recipeCount);
+        return recipeService.updateRecipe(dataset.recipeId(index), RecipeDataset.newRecipe("benchmark recipe " + index, random));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IMPORT_SIZE)
+    public RecipeStreamImportResultDto importRecipes() throws Exception {
+        List<RecipeDto> recipes = new ArrayList<>(IMPORT_SIZE);
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            recipes.add(RecipeDataset.newRecipe("benchmark imported " + created++, random));
+        }
+        return recipeStreamImporter.importStream(new ByteArrayInputStream(objectMapper.writeValueAsBytes(recipes)), 0);
+    }
+}
@@ -2,8 +2,12 @@ package thijs.abn;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication
+// The reactive API builds its own R2DBC pool; an auto-configured ConnectionFactory would disable the JDBC data source
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@ConfigurationPropertiesScan
 public class AbnApplication {
 
 	public static void main(String[] args) {
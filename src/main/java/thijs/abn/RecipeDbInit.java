@@ -1,61 +1,94 @@
 package thijs.abn;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import thijs.abn.model.RecipeDto;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.model.RecipeStreamImportResultDto;
 import thijs.abn.repository.RecipeRepository;
-import thijs.abn.service.RecipeService;
+import thijs.abn.service.CatalogueSnapshot;
+import thijs.abn.service.RecipeSeeder;
 
+import java.io.InputStream;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.List;
+import java.nio.file.Path;
 
+/**
+ * Populates an empty database once the application is ready, after the indexes have loaded, so seeding does not hold
+ * up start-up. A catalogue snapshot is restored when one is configured and exists, otherwise the seed file is imported.
+ * While this runs in the background, {@link SeedingHealthIndicator} keeps the readiness probe out of service.
+ */
 @Component
 public class RecipeDbInit {
 
     private final RecipeRepository recipeRepository;
     private final ResourceLoader resourceLoader;
-    private final RecipeService recipeService;
-    private final ObjectMapper objectMapper;
+    private final RecipeSeeder recipeSeeder;
+    private final CatalogueSnapshot catalogueSnapshot;
+    private final RecipeProperties.Seed settings;
+
+    private volatile boolean seeding;
 
     private final Logger log = LoggerFactory.getLogger(RecipeDbInit.class);
 
     String path = "classpath:recipes.json";
 
     @Autowired
-    public RecipeDbInit(RecipeService recipeService, RecipeRepository recipeRepository, ResourceLoader resourceLoader, ObjectMapper objectMapper) {
-        this.recipeService = recipeService;
+    public RecipeDbInit(RecipeSeeder recipeSeeder, CatalogueSnapshot catalogueSnapshot, RecipeRepository recipeRepository,
+                        ResourceLoader resourceLoader, RecipeProperties recipeProperties) {
+        this.recipeSeeder = recipeSeeder;
+        this.catalogueSnapshot = catalogueSnapshot;
         this.recipeRepository = recipeRepository;
         this.resourceLoader = resourceLoader;
-        this.objectMapper = objectMapper;
+        this.settings = recipeProperties.getSeed();
     }
 
-    @PostConstruct
-    private void init() {
-        try {
-            log.info("Populating database...");
-            if (recipeRepository.count() > 0) {
-                log.info("Recipe library not empty, skipping the population.");
-                return; // Database is already populated
-            }
+    public boolean isSeeding() {
+        return seeding;
+    }
 
-            // Load JSON from the file into List<RecipeDto>
-            List<RecipeDto> recipesDto = objectMapper.readValue(Files.readAllBytes(Paths.get(resourceLoader.getResource(path).getURI())), new TypeReference<List<RecipeDto>>() {
-            });
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onApplicationReady() {
+        if (recipeRepository.count() > 0) {
+            log.info("Recipe library not empty, skipping the population.");
+            return; // Database is already populated
+        }
+        seeding = true;
+        if (settings.isAsync()) {
+            Thread thread = new Thread(this::populate, "recipe-db-init");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            populate();
+        }
+    }
 
-            // Create each recipe using the service method
-            recipesDto.forEach(recipeService::createRecipe);
+    private void populate() {
+        try {
+            Path snapshot = settings.getSnapshot();
+            if (snapshot != null && Files.exists(snapshot)) {
+                log.info("Restoring database from snapshot {}...", snapshot);
+                try (InputStream inputStream = Files.newInputStream(snapshot)) {
+                    log.info("Database restored successfully with {} recipes.", catalogueSnapshot.restore(inputStream));
+                }
+                return;
+            }
 
-            System.out.println("Database populated successfully.");
-        } catch (
-                Exception e) {
+            log.info("Populating database...");
+            // Read the recipes from the resource so this also works when running from a jar
+            RecipeStreamImportResultDto result = recipeSeeder.seed(resourceLoader.getResource(path));
+            log.info("Database populated successfully with {} recipes.", result.created());
+        } catch (Exception e) {
             log.error("Error during database initialization", e);
+        } finally {
+            seeding = false;
         }
     }
 }
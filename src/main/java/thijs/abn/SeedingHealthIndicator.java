@@ -0,0 +1,26 @@
+package thijs.abn;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports out of service while {@link RecipeDbInit} is populating the database. Part of the readiness group, so
+ * traffic is only routed to an instance once its catalogue is complete; liveness is not affected.
+ */
+@Component
+public class SeedingHealthIndicator implements HealthIndicator {
+
+    private final RecipeDbInit recipeDbInit;
+
+    @Autowired
+    public SeedingHealthIndicator(RecipeDbInit recipeDbInit) {
+        this.recipeDbInit = recipeDbInit;
+    }
+
+    @Override
+    public Health health() {
+        return recipeDbInit.isSeeding() ? Health.outOfService().build() : Health.up().build();
+    }
+}
@@ -0,0 +1,85 @@
+package thijs.abn.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import thijs.abn.metrics.SqlStatementBudgetInterceptor;
+import thijs.abn.metrics.SqlStatementCountingDataSource;
+import thijs.abn.metrics.VirtualThreadPinningMonitor;
+import thijs.abn.service.IngredientDictionary;
+
+import javax.sql.DataSource;
+
+/**
+ * Application metrics on top of the ones Spring Boot provides for HTTP requests, the connection pool and the caches:
+ * timers for {@code @Timed} service methods, SQL statement counts per request and the ingredient dictionary, and, when
+ * requests run on virtual threads, the time those threads spend pinned to their carrier.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    // Static, so the data source is wrapped before anything that depends on it is created
+    @Bean
+    public static BeanPostProcessor sqlStatementCounter() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof SqlStatementCountingDataSource)
+                        ? new SqlStatementCountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer sqlStatementBudget(MeterRegistry meterRegistry, RecipeProperties recipeProperties) {
+        SqlStatementBudgetInterceptor interceptor = new SqlStatementBudgetInterceptor(meterRegistry,
+                recipeProperties.getMetrics().getSqlStatementBudget());
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor);
+            }
+
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(interceptor);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder ingredientDictionaryMetrics(IngredientDictionary ingredientDictionary) {
+        return registry -> {
+            FunctionCounter.builder("recipes.ingredient.dictionary.hits", ingredientDictionary, IngredientDictionary::hits)
+                    .register(registry);
+            FunctionCounter.builder("recipes.ingredient.dictionary.misses", ingredientDictionary, IngredientDictionary::misses)
+                    .register(registry);
+            FunctionCounter.builder("recipes.ingredient.dictionary.evictions", ingredientDictionary, IngredientDictionary::evictions)
+                    .register(registry);
+            Gauge.builder("recipes.ingredient.dictionary.size", ingredientDictionary, IngredientDictionary::size)
+                    .register(registry);
+        };
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry meterRegistry, RecipeProperties recipeProperties) {
+        return new VirtualThreadPinningMonitor(meterRegistry, recipeProperties.getMetrics().getPinnedThreadThreshold());
+    }
+}
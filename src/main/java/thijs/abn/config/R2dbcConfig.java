@@ -0,0 +1,49 @@
+package thijs.abn.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Non-blocking database access for the reactive API, next to the JPA data source used by the rest of the application.
+ * The connection pool is built from the {@code spring.r2dbc.*} properties but deliberately not exposed as a
+ * {@link io.r2dbc.spi.ConnectionFactory} bean: Spring Boot would take that as a reason to skip the JDBC data source.
+ */
+@Configuration
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class R2dbcConfig {
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient databaseClient(R2dbcProperties properties) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.getUrl()).mutate();
+        if (properties.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, properties.getUsername());
+        }
+        if (properties.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        }
+        R2dbcProperties.Pool pool = properties.getPool();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package thijs.abn.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Read-through caches for recipe lookups and searches. Caching goes through Spring's {@link
+ * org.springframework.cache.CacheManager}, so the in-process Caffeine backend can be swapped with
+ * {@code spring.cache.type}, for example {@code simple} in tests or {@code none} to disable caching.
+ */
+@Configuration
+@EnableCaching
+public class RecipeCacheConfig {
+
+    public static final String RECIPES = "recipes";
+    public static final String RECIPE_IDS_BY_NAME = "recipeIdsByName";
+    public static final String RECIPE_SEARCHES = "recipeSearches";
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> recipeCaches(RecipeProperties recipeProperties) {
+        RecipeProperties.Cache cache = recipeProperties.getCache();
+        return cacheManager -> {
+            cacheManager.registerCustomCache(RECIPES, build(cache.getRecipes()));
+            cacheManager.registerCustomCache(RECIPE_IDS_BY_NAME, build(cache.getRecipeIds()));
+            cacheManager.registerCustomCache(RECIPE_SEARCHES, build(cache.getSearches()));
+        };
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> build(RecipeProperties.Cache.Settings settings) {
+        return Caffeine.newBuilder()
+                .maximumSize(settings.getMaxSize())
+                .expireAfterWrite(settings.getTimeToLive())
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,622 @@
+package thijs.abn.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tunables for the recipe service, bound from the {@code recipes.*} properties.
+ */
+@ConfigurationProperties(prefix = "recipes")
+public class RecipeProperties {
+
+    private final Import importSettings = new Import();
+    private final IngredientDictionary ingredientDictionary = new IngredientDictionary();
+    private final Search search = new Search();
+    private final Pagination pagination = new Pagination();
+    private final Cache cache = new Cache();
+    private final Metrics metrics = new Metrics();
+    private final WriteQueue writeQueue = new WriteQueue();
+    private final Seed seed = new Seed();
+    private final Reactive reactive = new Reactive();
+
+    public Import getImport() {
+        return importSettings;
+    }
+
+    public IngredientDictionary getIngredientDictionary() {
+        return ingredientDictionary;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public WriteQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    public Seed getSeed() {
+        return seed;
+    }
+
+    public Reactive getReactive() {
+        return reactive;
+    }
+
+    public static class Import {
+        /**
+         * Number of recipes persisted per flush when importing in bulk.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Maximum number of rejected recipes listed in the report of a streaming import.
+         */
+        private int maxReportedRejections = 1000;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxReportedRejections() {
+            return maxReportedRejections;
+        }
+
+        public void setMaxReportedRejections(int maxReportedRejections) {
+            this.maxReportedRejections = maxReportedRejections;
+        }
+    }
+
+    public static class IngredientDictionary {
+        /**
+         * Maximum number of ingredient names kept in memory; the oldest entries are evicted first.
+         */
+        private int maxSize = 100_000;
+
+        /**
+         * Whether to load the ingredient vocabulary into memory once the application is ready.
+         */
+        private boolean warmUp = true;
+
+        /**
+         * How long a name that matches no ingredient is remembered, so that searches for it do not query the database
+         * every time. Ingredients created by this instance are found at once, those created by other instances after
+         * at most this long.
+         */
+        private Duration missTimeToLive = Duration.ofMinutes(1);
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public boolean isWarmUp() {
+            return warmUp;
+        }
+
+        public void setWarmUp(boolean warmUp) {
+            this.warmUp = warmUp;
+        }
+
+        public Duration getMissTimeToLive() {
+            return missTimeToLive;
+        }
+
+        public void setMissTimeToLive(Duration missTimeToLive) {
+            this.missTimeToLive = missTimeToLive;
+        }
+    }
+
+    public static class Pagination {
+        /**
+         * Page size used when a cursor is given without a limit.
+         */
+        private int defaultLimit = 50;
+
+        /**
+         * Largest page size a client may request.
+         */
+        private int maxLimit = 1000;
+
+        public int getDefaultLimit() {
+            return defaultLimit;
+        }
+
+        public void setDefaultLimit(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+    }
+
+    public static class Cache {
+        /**
+         * Recipes by id.
+         */
+        private final Settings recipes = new Settings(10_000, Duration.ofMinutes(10));
+
+        /**
+         * Recipe ids by lower-cased name.
+         */
+        private final Settings recipeIds = new Settings(10_000, Duration.ofMinutes(10));
+
+        /**
+         * Search results by normalised search criteria.
+         */
+        private final Settings searches = new Settings(1_000, Duration.ofMinutes(1));
+
+        public Settings getRecipes() {
+            return recipes;
+        }
+
+        public Settings getRecipeIds() {
+            return recipeIds;
+        }
+
+        public Settings getSearches() {
+            return searches;
+        }
+
+        public static class Settings {
+            /**
+             * Maximum number of entries; the least recently used entries are evicted first.
+             */
+            private long maxSize;
+
+            /**
+             * Time after which an entry expires, counted from when it was cached.
+             */
+            private Duration timeToLive;
+
+            Settings(long maxSize, Duration timeToLive) {
+                this.maxSize = maxSize;
+                this.timeToLive = timeToLive;
+            }
+
+            public long getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(long maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public Duration getTimeToLive() {
+                return timeToLive;
+            }
+
+            public void setTimeToLive(Duration timeToLive) {
+                this.timeToLive = timeToLive;
+            }
+        }
+    }
+
+    public static class Metrics {
+        /**
+         * Number of SQL statements a single request may execute before it is logged as a likely N+1 query pattern.
+         */
+        private int sqlStatementBudget = 20;
+
+        /**
+         * Minimum time a virtual thread must stay pinned to its carrier thread before it is recorded.
+         */
+        private Duration pinnedThreadThreshold = Duration.ofMillis(20);
+
+        public int getSqlStatementBudget() {
+            return sqlStatementBudget;
+        }
+
+        public void setSqlStatementBudget(int sqlStatementBudget) {
+            this.sqlStatementBudget = sqlStatementBudget;
+        }
+
+        public Duration getPinnedThreadThreshold() {
+            return pinnedThreadThreshold;
+        }
+
+        public void setPinnedThreadThreshold(Duration pinnedThreadThreshold) {
+            this.pinnedThreadThreshold = pinnedThreadThreshold;
+        }
+    }
+
+    public static class WriteQueue {
+        /**
+         * Whether creates, updates, patches and deletes are acknowledged with 202 Accepted and written asynchronously.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of queued writes; further writes are rejected with 429 Too Many Requests.
+         */
+        private int capacity = 10_000;
+
+        /**
+         * Maximum number of queued writes combined into one transaction.
+         */
+        private int maxBatchSize = 500;
+
+        /**
+         * Number of finished writes whose status is kept for the status endpoint.
+         */
+        private int maxTrackedWrites = 100_000;
+
+        /**
+         * Append-only file in which accepted writes are recorded until they are committed.
+         */
+        private Path journal = Path.of("data", "recipe-writes.journal");
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public int getMaxTrackedWrites() {
+            return maxTrackedWrites;
+        }
+
+        public void setMaxTrackedWrites(int maxTrackedWrites) {
+            this.maxTrackedWrites = maxTrackedWrites;
+        }
+
+        public Path getJournal() {
+            return journal;
+        }
+
+        public void setJournal(Path journal) {
+            this.journal = journal;
+        }
+    }
+
+    public static class Seed {
+        /**
+         * Whether an empty database is seeded on a background thread after start-up; readiness reports out of service
+         * until it is done. When false, start-up completes only after seeding.
+         */
+        private boolean async = true;
+
+        /**
+         * Number of threads importing the seed file in parallel.
+         */
+        private int workers = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Catalogue snapshot restored instead of the seed file when it exists, and written by the snapshot endpoint.
+         */
+        private Path snapshot;
+
+        /**
+         * Directory for the files that a snapshot restore into MySQL loads with {@code LOAD DATA LOCAL INFILE} instead
+         * of sending JDBC batches. The connection URL must allow it with {@code allowLoadLocalInfileInPath} set to this
+         * directory, and the server with {@code local_infile}. Unset, and on other databases, restores use JDBC batches.
+         */
+        private Path bulkLoadDirectory;
+
+        public boolean isAsync() {
+            return async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public Path getSnapshot() {
+            return snapshot;
+        }
+
+        public void setSnapshot(Path snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public Path getBulkLoadDirectory() {
+            return bulkLoadDirectory;
+        }
+
+        public void setBulkLoadDirectory(Path bulkLoadDirectory) {
+            this.bulkLoadDirectory = bulkLoadDirectory;
+        }
+    }
+
+    public static class Reactive {
+        /**
+         * Whether the v2 API is served on its own Netty server.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Port of the Netty server serving the v2 API; 0 picks a free port.
+         */
+        private int port = 8790;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+    }
+
+    public static class Search {
+        private final Index index = new Index();
+        private final FullText fullText = new FullText();
+        private final ReadModel readModel = new ReadModel();
+        private final Facets facets = new Facets();
+        private final Suggest suggest = new Suggest();
+        private final Fuzzy fuzzy = new Fuzzy();
+
+        public Index getIndex() {
+            return index;
+        }
+
+        public FullText getFullText() {
+            return fullText;
+        }
+
+        public ReadModel getReadModel() {
+            return readModel;
+        }
+
+        public Facets getFacets() {
+            return facets;
+        }
+
+        public Suggest getSuggest() {
+            return suggest;
+        }
+
+        public Fuzzy getFuzzy() {
+            return fuzzy;
+        }
+
+        public static class Index {
+            /**
+             * Whether searches are answered from the in-memory ingredient index instead of SQL.
+             */
+            private boolean enabled = true;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+        }
+
+        public static class FullText {
+            /**
+             * Whether instruction queries are answered from the in-memory full-text index instead of a SQL LIKE.
+             */
+            private boolean enabled = false;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+        }
+
+        public static class ReadModel {
+            /**
+             * Whether the denormalised recipe_search table is maintained and used for searches the in-memory indexes
+             * cannot answer, instead of joining the recipe tables.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Share of the searches answered by the in-memory index that are also run against the read model, to
+             * count the searches where the two disagree.
+             */
+            private double verifyRate = 0.01;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public double getVerifyRate() {
+                return verifyRate;
+            }
+
+            public void setVerifyRate(double verifyRate) {
+                this.verifyRate = verifyRate;
+            }
+        }
+
+        public static class Facets {
+            /**
+             * Lower bounds of the servings facet buckets, ascending; the last bucket is open-ended.
+             */
+            private List<Integer> servingsBuckets = List.of(1, 3, 5, 7, 10);
+
+            /**
+             * Number of most frequent co-occurring ingredients returned by the ingredients facet.
+             */
+            private int topIngredients = 10;
+
+            /**
+             * Maximum number of ingredients counted for the ingredients facet, most frequent in the whole catalogue
+             * first, which bounds its cost for filters matching most of the catalogue. A facet cut short by it is
+             * marked approximate.
+             */
+            private int maxScannedIngredients = 10_000;
+
+            public List<Integer> getServingsBuckets() {
+                return servingsBuckets;
+            }
+
+            public void setServingsBuckets(List<Integer> servingsBuckets) {
+                this.servingsBuckets = servingsBuckets;
+            }
+
+            public int getTopIngredients() {
+                return topIngredients;
+            }
+
+            public void setTopIngredients(int topIngredients) {
+                this.topIngredients = topIngredients;
+            }
+
+            public int getMaxScannedIngredients() {
+                return maxScannedIngredients;
+            }
+
+            public void setMaxScannedIngredients(int maxScannedIngredients) {
+                this.maxScannedIngredients = maxScannedIngredients;
+            }
+        }
+
+        public static class Suggest {
+            /**
+             * Whether ingredient suggestions are answered from an in-memory trie of ingredient names instead of a SQL
+             * LIKE over the ingredients table.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Maximum number of suggestions returned for a prefix; the trie keeps this many per node.
+             */
+            private int maxResults = 10;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxResults() {
+                return maxResults;
+            }
+
+            public void setMaxResults(int maxResults) {
+                this.maxResults = maxResults;
+            }
+        }
+
+        public static class Fuzzy {
+            /**
+             * Whether included and excluded ingredient names that match no ingredient are replaced by the closest
+             * ingredient names, found in an in-memory BK-tree of the ingredient vocabulary.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Maximum number of edits between a search term and an ingredient name; terms under 6 characters allow at
+             * most one edit and terms under 3 characters none.
+             */
+            private int maxDistance = 2;
+
+            /**
+             * Maximum number of ingredients a misspelled term is replaced by, most used first.
+             */
+            private int maxExpansions = 3;
+
+            /**
+             * Maximum number of names compared with a term, which bounds the cost of a lookup in a large vocabulary.
+             */
+            private int maxComparisons = 20_000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxDistance() {
+                return maxDistance;
+            }
+
+            public void setMaxDistance(int maxDistance) {
+                this.maxDistance = maxDistance;
+            }
+
+            public int getMaxExpansions() {
+                return maxExpansions;
+            }
+
+            public void setMaxExpansions(int maxExpansions) {
+                this.maxExpansions = maxExpansions;
+            }
+
+            public int getMaxComparisons() {
+                return maxComparisons;
+            }
+
+            public void setMaxComparisons(int maxComparisons) {
+                this.maxComparisons = maxComparisons;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package thijs.abn.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Serves and accepts Smile, Jackson's binary encoding of JSON, for clients that send or accept
+ * {@code application/x-jackson-smile}; JSON stays the default. Smile writes numbers and booleans in binary and
+ * property names once per response, and here also every short string value: a repeated ingredient name is written as
+ * a back-reference into the dictionary of values seen earlier in the same response.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory()).build());
+    }
+
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package thijs.abn.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import thijs.abn.model.IngredientSuggestionDto;
+import thijs.abn.service.IngredientService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/ingredients")
+@Tag(name = "ingredient service", description = "the ingredient endpoint")
+public class IngredientController {
+
+    private final IngredientService ingredientService;
+
+    @Autowired
+    public IngredientController(IngredientService ingredientService) {
+        this.ingredientService = ingredientService;
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest ingredients by prefix", description = "Autocomplete ingredient names for the include and exclude " +
+            "search filters. Existing ingredients starting with the prefix, ignoring case, are returned used in most recipes first.")
+    @ApiResponse(responseCode = "200", description = "The suggestions, possibly empty")
+    public ResponseEntity<List<IngredientSuggestionDto>> suggestIngredients(
+            @Parameter(description = "start of the ingredient name", required = true) @RequestParam(name = "prefix") String prefix,
+            @Parameter(description = "maximum number of suggestions, capped at recipes.search.suggest.max-results") @RequestParam(name = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(ingredientService.suggestIngredients(prefix, limit));
+    }
+}
@@ -5,13 +5,34 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import thijs.abn.exception.PreconditionFailedException;
+import thijs.abn.exception.ResourceNotFoundException;
 import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeFacetsDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.model.RecipePageDto;
+import thijs.abn.model.RecipePatchDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchResultDto;
+import thijs.abn.model.RecipeStreamImportResultDto;
+import thijs.abn.model.RecipeWriteStatusDto;
+import thijs.abn.service.RecipeExporter;
 import thijs.abn.service.RecipeService;
+import thijs.abn.service.RecipeStreamImporter;
+import thijs.abn.service.RecipeWriteQueue;
 
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -21,20 +42,77 @@ import java.util.stream.Stream;
 public class RecipeController {
 
     private final RecipeService recipeService;
+    private final RecipeStreamImporter recipeStreamImporter;
+    private final RecipeExporter recipeExporter;
+
+    private final RecipeWriteQueue recipeWriteQueue;
 
     @Autowired
-    public RecipeController(RecipeService recipeService) {
+    public RecipeController(RecipeService recipeService, RecipeStreamImporter recipeStreamImporter, RecipeExporter recipeExporter,
+                            RecipeWriteQueue recipeWriteQueue) {
         this.recipeService = recipeService;
+        this.recipeStreamImporter = recipeStreamImporter;
+        this.recipeExporter = recipeExporter;
+        this.recipeWriteQueue = recipeWriteQueue;
     }
 
     @PostMapping
-    @Operation(summary = "Create a new recipe", description = "Add a new recipe to the database including ingredients.")
+    @Operation(summary = "Create a new recipe", description = "Add a new recipe to the database including ingredients. " +
+            "When the asynchronous write queue is enabled, the recipe is queued and its progress can be followed at the returned Location.")
     @ApiResponse(responseCode = "201", description = "Recipe created successfully")
-    public ResponseEntity<Void> createRecipe(@RequestBody RecipeDto recipeDto) {
+    @ApiResponse(responseCode = "202", description = "Recipe queued for creation")
+    @ApiResponse(responseCode = "400", description = "Invalid recipe")
+    @ApiResponse(responseCode = "429", description = "The write queue is full")
+    public ResponseEntity<RecipeWriteStatusDto> createRecipe(@RequestBody RecipeDto recipeDto) {
+        if (recipeWriteQueue.isEnabled()) {
+            return accepted(recipeWriteQueue.submitCreate(recipeDto));
+        }
         recipeService.createRecipe(recipeDto);
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
+    @GetMapping("/writes/{writeId}")
+    @Operation(summary = "Return the progress of a queued write", description = "Get the status of a create or update accepted by the asynchronous write queue.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The write status"),
+                    @ApiResponse(responseCode = "404", description = "Unknown write")
+            })
+    public ResponseEntity<RecipeWriteStatusDto> getWriteStatus(
+            @Parameter(description = "ID of the write", required = true) @PathVariable(name = "writeId") String writeId) {
+        return recipeWriteQueue.getStatus(writeId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Write not found with id: " + writeId));
+    }
+
+    private ResponseEntity<RecipeWriteStatusDto> accepted(RecipeWriteStatusDto status) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/recipes/writes/{writeId}")
+                .buildAndExpand(status.id())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(status);
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create recipes in bulk", description = "Add many recipes in one request. Recipes are inserted in JDBC batches and committed in chunks of recipes.import.batch-size; " +
+            "invalid or duplicate recipes are reported per item instead of failing the whole import.")
+    @ApiResponse(responseCode = "200", description = "Import report with one entry per submitted recipe")
+    public ResponseEntity<RecipeImportResultDto> createRecipes(@RequestBody List<RecipeDto> recipeDtos) {
+        return ResponseEntity.ok(recipeService.createRecipes(recipeDtos));
+    }
+
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Stream recipes into the database", description = "Import a JSON array or newline-delimited JSON upload of any size. " +
+            "Records are committed in chunks while the body is still being received; pass the reported committed count as skip to resume an interrupted upload.")
+    @ApiResponse(responseCode = "200", description = "All records were processed")
+    @ApiResponse(responseCode = "422", description = "The upload was aborted; records up to the committed count were stored")
+    public ResponseEntity<RecipeStreamImportResultDto> importRecipes(
+            @Parameter(description = "number of leading records to skip because they were committed by an earlier upload") @RequestParam(name = "skip", defaultValue = "0") long skip,
+            InputStream body) {
+        RecipeStreamImportResultDto result = recipeStreamImporter.importStream(body, skip);
+        HttpStatus status = result.error() == null ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        return new ResponseEntity<>(result, status);
+    }
+
     @GetMapping("/id")
     @Operation(summary = "Returns the id of a recipe by name", description = "Get the id of a recipe by name.")
     @ApiResponse(responseCode = "200", description = "Success")
@@ -45,72 +123,205 @@ public class RecipeController {
         return ResponseEntity.ok(recipeId);
     }
 
+    @GetMapping("/{recipeId}")
+    @Operation(summary = "Return a recipe", description = "Get a recipe by id, including its ingredients. The response carries the " +
+            "recipe version as ETag; send it as If-None-Match to receive 304 Not Modified while the recipe is unchanged.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The recipe"),
+                    @ApiResponse(responseCode = "304", description = "The recipe still matches the ETag in If-None-Match"),
+                    @ApiResponse(responseCode = "404", description = "Recipe not found")
+            })
+    public ResponseEntity<RecipeDto> getRecipe(
+            @Parameter(description = "ID of the recipe", required = true) @PathVariable(name = "recipeId") Long recipeId) {
+        RecipeDto recipe = recipeService.getRecipe(recipeId);
+        return ResponseEntity.ok().eTag(eTag(recipe)).body(recipe);
+    }
+
     @PutMapping("/{recipeId}")
-    @Operation(summary = "Update a recipe", description = "Updates the specified recipe with new values provided in the request body.",
+    @Operation(summary = "Update a recipe", description = "Updates the specified recipe with new values provided in the request body. " +
+            "Send the ETag of the recipe as If-Match to make sure no other change is overwritten.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "The updated recipe"),
-                    @ApiResponse(responseCode = "404", description = "Recipe not found")
+                    @ApiResponse(responseCode = "202", description = "Update queued; follow its progress at the returned Location"),
+                    @ApiResponse(responseCode = "404", description = "Recipe not found"),
+                    @ApiResponse(responseCode = "409", description = "The recipe was changed by a concurrent request"),
+                    @ApiResponse(responseCode = "412", description = "The recipe no longer matches the ETag in If-Match"),
+                    @ApiResponse(responseCode = "429", description = "The write queue is full")
             })
-    public ResponseEntity<RecipeDto> updateRecipe(
-            @Parameter(description = "ID of the recipe to update", required = true) @PathVariable Long recipeId,
-            @Parameter(description = "Updated recipe information", required = true) @RequestBody RecipeDto recipeDto) {
+    public ResponseEntity<?> updateRecipe(
+            @Parameter(description = "ID of the recipe to update", required = true) @PathVariable(name = "recipeId") Long recipeId,
+            @Parameter(description = "Updated recipe information", required = true) @RequestBody RecipeDto recipeDto,
+            WebRequest request) {
+
+        if (recipeWriteQueue.isEnabled()) {
+            return accepted(recipeWriteQueue.submitUpdate(recipeId, recipeDto, expectedVersion(recipeId, request)));
+        }
+        RecipeDto updatedRecipeDto = recipeService.updateRecipe(recipeId, recipeDto, expectedVersion(recipeId, request));
+        return ResponseEntity.ok().eTag(eTag(updatedRecipeDto)).body(updatedRecipeDto);
+    }
+
+    @PatchMapping("/{recipeId}")
+    @Operation(summary = "Partially update a recipe", description = "Updates only the fields present in the request body. " +
+            "Ingredients can be replaced as a whole or added and removed individually; removing an ingredient the recipe does not " +
+            "have, or the last one, is rejected. Send the ETag of the recipe as If-Match " +
+            "to make sure no other change is overwritten.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The updated recipe"),
+                    @ApiResponse(responseCode = "202", description = "Patch queued; follow its progress at the returned Location"),
+                    @ApiResponse(responseCode = "404", description = "Recipe not found"),
+                    @ApiResponse(responseCode = "409", description = "The recipe was changed by a concurrent request"),
+                    @ApiResponse(responseCode = "412", description = "The recipe no longer matches the ETag in If-Match"),
+                    @ApiResponse(responseCode = "429", description = "The write queue is full")
+            })
+    public ResponseEntity<?> patchRecipe(
+            @Parameter(description = "ID of the recipe to update", required = true) @PathVariable(name = "recipeId") Long recipeId,
+            @Parameter(description = "Fields to change", required = true) @RequestBody RecipePatchDto recipePatchDto,
+            WebRequest request) {
+
+        if (recipeWriteQueue.isEnabled()) {
+            return accepted(recipeWriteQueue.submitPatch(recipeId, recipePatchDto, expectedVersion(recipeId, request)));
+        }
+        RecipeDto patchedRecipeDto = recipeService.patchRecipe(recipeId, recipePatchDto, expectedVersion(recipeId, request));
+        return ResponseEntity.ok().eTag(eTag(patchedRecipeDto)).body(patchedRecipeDto);
+    }
 
-        RecipeDto updatedRecipeDto = recipeService.updateRecipe(recipeId, recipeDto);
-        return ResponseEntity.ok(updatedRecipeDto);
+    /**
+     * Reads the version an update has to apply to from an If-Match header, or {@code null} for an unconditional request.
+     * The version is checked when the recipe is loaded for the update, so the header is not compared against a possibly
+     * stale cached copy of the recipe.
+     */
+    private static Long expectedVersion(Long recipeId, WebRequest request) {
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.equals("*")) {
+            return null;
+        }
+        // If-Match uses the strong comparison, which a weak ETag never passes; the recipe ETags are quoted versions
+        if (eTag.matches("\"\\d{1,18}\"")) {
+            return Long.valueOf(eTag.substring(1, eTag.length() - 1));
+        }
+        throw new PreconditionFailedException("Recipe " + recipeId + " does not match " + ifMatch);
+    }
+
+    private static String eTag(RecipeDto recipe) {
+        return "\"" + recipe.version() + "\"";
     }
 
     @DeleteMapping("/{recipeId}")
     @Operation(summary = "Delete a recipe", description = "Deletes the specified recipe by ID.",
             responses = {
                     @ApiResponse(responseCode = "204", description = "Recipe successfully deleted"),
-                    @ApiResponse(responseCode = "404", description = "Recipe not found")
+                    @ApiResponse(responseCode = "202", description = "Delete queued; follow its progress at the returned Location"),
+                    @ApiResponse(responseCode = "404", description = "Recipe not found"),
+                    @ApiResponse(responseCode = "429", description = "The write queue is full")
             })
-    public ResponseEntity<Void> deleteRecipe(
-            @Parameter(description = "ID of the recipe to delete", required = true) @PathVariable Long recipeId) {
+    public ResponseEntity<?> deleteRecipe(
+            @Parameter(description = "ID of the recipe to delete", required = true) @PathVariable(name = "recipeId") Long recipeId) {
 
+        if (recipeWriteQueue.isEnabled()) {
+            return accepted(recipeWriteQueue.submitDelete(recipeId));
+        }
         recipeService.deleteRecipe(recipeId);
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping()
-    @Operation(summary = "Return all recipes", description = "Get all recipes.")
+    @Operation(summary = "Return recipes", description = "Get one page of recipes in ascending id order, of limit recipes or the " +
+            "configured default. A Link header with rel=\"next\" points to the following page; use the export for the whole catalogue.")
     @ApiResponse(responseCode = "200", description = "Success")
     @ApiResponse(responseCode = "404", description = "Not Found")
     @ApiResponse(responseCode = "500", description = "Failure")
-    public List<RecipeDto> getAllRecipes() {
-        return recipeService.findAllRecipes();
+    public ResponseEntity<List<RecipeDto>> getAllRecipes(
+            @Parameter(description = "id of the last recipe of the previous page") @RequestParam(name = "after", required = false) Long after,
+            @Parameter(description = "maximum number of recipes in the page") @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(description = "false to leave the instructions out of the listed recipes") @RequestParam(name = "includeInstructions", defaultValue = "true") boolean includeInstructions) {
+        return toResponse(recipeService.findRecipes(after, limit, includeInstructions));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all recipes as newline-delimited JSON", description = "Stream the complete catalogue, one recipe per line, " +
+            "in ascending id order. The response is written while the recipes are read, so it can be consumed before the export completes.")
+    @ApiResponse(responseCode = "200", description = "Success")
+    public ResponseEntity<StreamingResponseBody> exportRecipesAsNdjson() {
+        return export(RecipeExporter.Format.NDJSON, MediaType.APPLICATION_NDJSON);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Export all recipes as a JSON array", description = "Stream the complete catalogue as one JSON array in ascending id order.")
+    @ApiResponse(responseCode = "200", description = "Success")
+    public ResponseEntity<StreamingResponseBody> exportRecipesAsJson() {
+        return export(RecipeExporter.Format.JSON_ARRAY, MediaType.APPLICATION_JSON);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(RecipeExporter.Format format, MediaType mediaType) {
+        StreamingResponseBody body = outputStream -> recipeExporter.export(outputStream, format);
+        return ResponseEntity.ok().contentType(mediaType).body(body);
     }
 
     @GetMapping("/search")
     @Operation(summary = "Search recipes", description = "Filter available recipes based on one or more of the following criteria:\n" +
             "1. Whether or not the recipe is vegetarian\n" +
             "2. The number of servings\n" +
-            "3. Specific ingredients (either include or exclude)\n" +
+            "3. Specific ingredients (either include or exclude), where included ingredients match any or all of the given names\n" +
             "4. Text search within the instructions.",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "List of recipes based on the given criteria")
+                    @ApiResponse(responseCode = "200", description = "List of recipes based on the given criteria, or the recipes " +
+                            "with facet counts over all matches when facets are requested")
             })
-    public ResponseEntity<List<RecipeDto>> searchRecipes(
+    public ResponseEntity<?> searchRecipes(
             @Parameter(description = "true for vegetarian recipes, false for non-vegetarian, null for both") @RequestParam(name = "isVegetarian", required = false) Boolean isVegetarian,
             @Parameter(description = "minimum number of servings") @RequestParam(name = "minServings", required = false) Integer minServings,
             @Parameter(description = "maximum number of servings") @RequestParam(name = "maxServings", required = false) Integer maxServings,
             @Parameter(description = "comma-separated list of ingredients to be included in the dish") @RequestParam(name = "includedIngredients", required = false) String includedIngredients,
             @Parameter(description = "comma-separated list of ingredients to be excluded from the dish") @RequestParam(name = "excludedIngredients", required = false) String excludedIngredients,
-            @Parameter(description = "word to be found in the instructions") @RequestParam(name = "queryInstructions", required = false) String queryInstructions) {
+            @Parameter(description = "word to be found in the instructions") @RequestParam(name = "queryInstructions", required = false) String queryInstructions,
+            @Parameter(description = "ANY to match recipes containing at least one included ingredient, ALL to require every included ingredient") @RequestParam(name = "ingredientMatch", defaultValue = "ANY") RecipeSearchCriteria.IngredientMatch ingredientMatch,
+            @Parameter(description = "id of the last recipe of the previous page") @RequestParam(name = "after", required = false) Long after,
+            @Parameter(description = "maximum number of recipes in the page") @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(description = "false to leave the instructions out of the listed recipes") @RequestParam(name = "includeInstructions", defaultValue = "true") boolean includeInstructions,
+            @Parameter(description = "true to return all matches at once instead of a page, with text matches ordered by relevance; after and limit are then ignored") @RequestParam(name = "all", defaultValue = "false") boolean all,
+            @Parameter(description = "comma-separated facets to count over all matches: VEGETARIAN, SERVINGS, INGREDIENTS") @RequestParam(name = "facets", required = false) Set<RecipeFacetsDto.Facet> facets) {
 
         List<String> includedIngredientsList = includedIngredients != null ? strToList(includedIngredients) : null;
         List<String> excludedIngredientsList = excludedIngredients != null ? strToList(excludedIngredients) : null;
 
-        List<RecipeDto> recipes = recipeService.searchRecipes(
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(
                 isVegetarian,
                 minServings,
                 maxServings,
                 includedIngredientsList,
                 excludedIngredientsList,
-                queryInstructions
+                queryInstructions,
+                ingredientMatch
         );
 
-        return ResponseEntity.ok(recipes);
+        if (facets != null && !facets.isEmpty()) {
+            RecipeSearchResultDto result = all
+                    ? recipeService.searchRecipes(criteria, includeInstructions, facets)
+                    : recipeService.searchRecipes(criteria, after, limit, includeInstructions, facets);
+            return withNextLink(ResponseEntity.ok(), result.nextAfter()).body(result);
+        }
+        if (all) {
+            return ResponseEntity.ok(recipeService.searchRecipes(criteria, includeInstructions));
+        }
+        return toResponse(recipeService.searchRecipes(criteria, after, limit, includeInstructions));
+    }
+
+    private ResponseEntity<List<RecipeDto>> toResponse(RecipePageDto page) {
+        return withNextLink(ResponseEntity.ok(), page.nextAfter()).body(page.recipes());
+    }
+
+    private static ResponseEntity.BodyBuilder withNextLink(ResponseEntity.BodyBuilder response, Long nextAfter) {
+        if (nextAfter != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", nextAfter)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response;
     }
 
     private List<String> strToList(String data) {
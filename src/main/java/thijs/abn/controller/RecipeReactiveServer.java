@@ -0,0 +1,229 @@
+package thijs.abn.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.exception.ResourceNotFoundException;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.service.ReactiveRecipeService;
+
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Non-blocking variant of the read endpoints of {@link RecipeController}, with the same {@link RecipeDto} contract,
+ * served by its own Reactor Netty server on {@code recipes.reactive.port}. Requests are handled on Netty's event loop
+ * threads and recipes are written as soon as R2DBC emits them, so a slow client holds a connection and its buffered
+ * lines, not a thread. Lists are only streamed as newline-delimited JSON, one recipe per line, with backpressure from
+ * the socket to the database query; a JSON array would be collected in full before it is written.
+ * <p>
+ * The endpoints are {@code GET /api/v2/recipes}, {@code GET /api/v2/recipes/{recipeId}} and
+ * {@code GET /api/v2/recipes/search}, with the query parameters of their v1 counterparts.
+ */
+@Component
+public class RecipeReactiveServer implements SmartLifecycle {
+
+    private static final String BASE_PATH = "/api/v2/recipes";
+
+    private final ReactiveRecipeService reactiveRecipeService;
+    private final ObjectMapper objectMapper;
+    private final RecipeProperties.Reactive settings;
+
+    private final Logger log = LoggerFactory.getLogger(RecipeReactiveServer.class);
+
+    private volatile DisposableServer server;
+
+    @Autowired
+    public RecipeReactiveServer(ReactiveRecipeService reactiveRecipeService, ObjectMapper objectMapper, RecipeProperties recipeProperties) {
+        this.reactiveRecipeService = reactiveRecipeService;
+        this.objectMapper = objectMapper;
+        this.settings = recipeProperties.getReactive();
+    }
+
+    @Override
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        server = HttpServer.create()
+                .port(settings.getPort())
+                .route(routes -> routes
+                        .get(BASE_PATH, this::getAllRecipes)
+                        // Before the id route, so that search is not taken for a recipe id
+                        .get(BASE_PATH + "/search", this::searchRecipes)
+                        .get(BASE_PATH + "/{recipeId}", this::getRecipe))
+                .bindNow();
+        log.info("Serving the v2 recipe API on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Returns the port the server is bound to, which differs from the configured one when that is 0.
+     */
+    public int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("The v2 recipe API is not running");
+        }
+        return server.port();
+    }
+
+    private Publisher<Void> getAllRecipes(HttpServerRequest request, HttpServerResponse response) {
+        if (!acceptsNdjson(request)) {
+            return error(request, response, HttpResponseStatus.NOT_ACCEPTABLE, "Recipes are only streamed as " + MediaType.APPLICATION_NDJSON_VALUE);
+        }
+        Map<String, List<String>> parameters = parameters(request);
+        Long after;
+        Integer limit;
+        try {
+            after = parseLong(parameters, "after");
+            limit = parseInt(parameters, "limit");
+        } catch (IllegalArgumentException e) {
+            return error(request, response, HttpResponseStatus.BAD_REQUEST, e.getMessage());
+        }
+        return stream(response, reactiveRecipeService.findRecipes(after, limit));
+    }
+
+    private Publisher<Void> getRecipe(HttpServerRequest request, HttpServerResponse response) {
+        String recipeId = request.param("recipeId");
+        if (recipeId == null || !recipeId.matches("\\d{1,18}")) {
+            return error(request, response, HttpResponseStatus.NOT_FOUND, "Recipe not found with id: " + recipeId);
+        }
+        return reactiveRecipeService.getRecipe(Long.valueOf(recipeId))
+                .flatMap(recipe -> response.header(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .sendByteArray(Mono.just(json(recipe)))
+                        .then())
+                .onErrorResume(ResourceNotFoundException.class,
+                        e -> Mono.from(error(request, response, HttpResponseStatus.NOT_FOUND, e.getMessage())));
+    }
+
+    private Publisher<Void> searchRecipes(HttpServerRequest request, HttpServerResponse response) {
+        if (!acceptsNdjson(request)) {
+            return error(request, response, HttpResponseStatus.NOT_ACCEPTABLE, "Recipes are only streamed as " + MediaType.APPLICATION_NDJSON_VALUE);
+        }
+        Map<String, List<String>> parameters = parameters(request);
+        RecipeSearchCriteria criteria;
+        try {
+            String ingredientMatch = parameter(parameters, "ingredientMatch");
+            criteria = new RecipeSearchCriteria(
+                    parseBoolean(parameters, "isVegetarian"),
+                    parseInt(parameters, "minServings"),
+                    parseInt(parameters, "maxServings"),
+                    toList(parameter(parameters, "includedIngredients")),
+                    toList(parameter(parameters, "excludedIngredients")),
+                    parameter(parameters, "queryInstructions"),
+                    ingredientMatch != null ? RecipeSearchCriteria.IngredientMatch.valueOf(ingredientMatch) : RecipeSearchCriteria.IngredientMatch.ANY);
+        } catch (IllegalArgumentException e) {
+            return error(request, response, HttpResponseStatus.BAD_REQUEST, e.getMessage());
+        }
+        return stream(response, reactiveRecipeService.searchRecipes(criteria));
+    }
+
+    private Publisher<Void> stream(HttpServerResponse response, Flux<RecipeDto> recipes) {
+        return response.header(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .sendByteArray(recipes.map(this::line));
+    }
+
+    private Publisher<Void> error(HttpServerRequest request, HttpServerResponse response, HttpResponseStatus status, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status.code());
+        body.put("error", status.reasonPhrase());
+        body.put("message", message);
+        body.put("path", request.fullPath());
+        return response.status(status)
+                .header(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .sendByteArray(Mono.just(json(body)));
+    }
+
+    private static boolean acceptsNdjson(HttpServerRequest request) {
+        String accept = request.requestHeaders().get(HttpHeaderNames.ACCEPT);
+        return accept == null || MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(mediaType -> mediaType.includes(MediaType.APPLICATION_NDJSON));
+    }
+
+    private byte[] line(RecipeDto recipe) {
+        byte[] json = json(recipe);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private byte[] json(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, List<String>> parameters(HttpServerRequest request) {
+        return new QueryStringDecoder(request.uri()).parameters();
+    }
+
+    private static String parameter(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() || values.get(0).isEmpty() ? null : values.get(0);
+    }
+
+    private static Long parseLong(Map<String, List<String>> parameters, String name) {
+        String value = parameter(parameters, name);
+        return value != null ? Long.valueOf(value) : null;
+    }
+
+    private static Integer parseInt(Map<String, List<String>> parameters, String name) {
+        String value = parameter(parameters, name);
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    private static Boolean parseBoolean(Map<String, List<String>> parameters, String name) {
+        String value = parameter(parameters, name);
+        if (value == null) {
+            return null;
+        }
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException(name + " must be true or false, not " + value);
+        }
+        return Boolean.valueOf(value);
+    }
+
+    private static List<String> toList(String data) {
+        if (data == null || data.trim().isEmpty()) {
+            return null;
+        }
+        return Stream.of(data.split(","))
+                .map(String::trim)
+                .toList();
+    }
+}
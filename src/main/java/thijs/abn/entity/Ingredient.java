@@ -11,7 +11,9 @@ import java.util.Set;
 @Table(name = "ingredients")
 public class Ingredient {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled ids, 50 per sequence call, so inserts can be batched; must match the increment in the migrations
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredients_seq")
+    @SequenceGenerator(name = "ingredients_seq", sequenceName = "ingredients_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Long id;
     @Column(name = "name", nullable = false, unique = true)
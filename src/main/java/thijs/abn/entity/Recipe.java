@@ -2,19 +2,20 @@ package thijs.abn.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@NamedEntityGraph(name = "Recipe.ingredients",
-        attributeNodes = @NamedAttributeNode(value = "ingredients"))
 @Table(name = "recipes")
 public class Recipe {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled ids, 50 per sequence call, so inserts can be batched; must match the increment in the migrations
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipes_seq")
+    @SequenceGenerator(name = "recipes_seq", sequenceName = "recipes_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Long id;
     @Column(name = "name", nullable = false, unique = true)
@@ -27,10 +28,14 @@ public class Recipe {
     @Column(name = "instructions", nullable = false)
     private String instructions;
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
+    @BatchSize(size = 250)
     @JoinTable(name = "recipe_ingredients",
             joinColumns = {@JoinColumn(name = "recipe_id")},
             inverseJoinColumns = {@JoinColumn(name = "ingredient_id")})
     private Set<Ingredient> ingredients = new HashSet<>();
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 
     public Long getId() {
         return id;
@@ -80,6 +85,14 @@ public class Recipe {
         this.ingredients = ingredients;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -101,6 +114,7 @@ public class Recipe {
                 ", servings=" + servings +
                 ", instructions='" + instructions + '\'' +
                 ", ingredients=" + ingredients +
+                ", version=" + version +
                 '}';
     }
 }
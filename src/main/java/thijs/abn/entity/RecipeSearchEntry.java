@@ -0,0 +1,64 @@
+package thijs.abn.entity;
+
+import jakarta.persistence.*;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Denormalised copy of the searchable attributes of one recipe, so a search reads this table instead of joining
+ * {@code recipes}, {@code recipe_ingredients} and {@code ingredients}. Its ingredient ids are the
+ * {@link RecipeSearchIngredient} rows of the recipe.
+ */
+@Entity
+@Table(name = "recipe_search")
+public class RecipeSearchEntry {
+
+    @Id
+    @Column(name = "recipe_id", nullable = false)
+    private Long recipeId;
+    @Column(name = "is_vegetarian", nullable = false)
+    private boolean isVegetarian;
+    @Column(name = "servings", nullable = false)
+    private int servings;
+    @Lob
+    @Column(name = "instructions", nullable = false)
+    private String instructions;
+
+    public RecipeSearchEntry() {}
+
+    public RecipeSearchEntry(Long recipeId, boolean isVegetarian, int servings, String instructions) {
+        this.recipeId = recipeId;
+        this.isVegetarian = isVegetarian;
+        this.servings = servings;
+        this.instructions = instructions == null ? "" : instructions.toLowerCase(Locale.ROOT);
+    }
+
+    public Long getRecipeId() {
+        return recipeId;
+    }
+
+    public boolean isVegetarian() {
+        return isVegetarian;
+    }
+
+    public int getServings() {
+        return servings;
+    }
+
+    public String getInstructions() {
+        return instructions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecipeSearchEntry entry)) return false;
+        return Objects.equals(recipeId, entry.recipeId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(recipeId);
+    }
+}
@@ -0,0 +1,63 @@
+package thijs.abn.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One ingredient of a {@link RecipeSearchEntry}. Ingredient filters on the read model are {@code EXISTS} subqueries on
+ * this table, answered from its primary key or from the reverse index on {@code (ingredient_id, recipe_id)}.
+ */
+@Entity
+@Table(name = "recipe_search_ingredients")
+@IdClass(RecipeSearchIngredient.Key.class)
+public class RecipeSearchIngredient {
+
+    @Id
+    @Column(name = "recipe_id", nullable = false)
+    private Long recipeId;
+    @Id
+    @Column(name = "ingredient_id", nullable = false)
+    private Long ingredientId;
+
+    public RecipeSearchIngredient() {}
+
+    public RecipeSearchIngredient(Long recipeId, Long ingredientId) {
+        this.recipeId = recipeId;
+        this.ingredientId = ingredientId;
+    }
+
+    public Long getRecipeId() {
+        return recipeId;
+    }
+
+    public Long getIngredientId() {
+        return ingredientId;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long recipeId;
+        private Long ingredientId;
+
+        public Key() {}
+
+        public Key(Long recipeId, Long ingredientId) {
+            this.recipeId = recipeId;
+            this.ingredientId = ingredientId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(recipeId, key.recipeId) && Objects.equals(ingredientId, key.ingredientId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(recipeId, ingredientId);
+        }
+    }
+}
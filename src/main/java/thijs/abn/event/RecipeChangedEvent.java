@@ -0,0 +1,65 @@
+package thijs.abn.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Published by {@link thijs.abn.service.RecipeService} for every recipe it creates, updates or deletes. Listeners that
+ * maintain derived state should use {@code @TransactionalEventListener} so they only see committed changes.
+ *
+ * @param before state before the change, {@code null} when the recipe was created
+ * @param after  state after the change, {@code null} when the recipe was deleted
+ */
+public record RecipeChangedEvent(Type type, RecipeSnapshot before, RecipeSnapshot after) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static RecipeChangedEvent created(RecipeSnapshot after) {
+        return new RecipeChangedEvent(Type.CREATED, null, after);
+    }
+
+    public static RecipeChangedEvent updated(RecipeSnapshot before, RecipeSnapshot after) {
+        return new RecipeChangedEvent(Type.UPDATED, before, after);
+    }
+
+    public static RecipeChangedEvent deleted(RecipeSnapshot before) {
+        return new RecipeChangedEvent(Type.DELETED, before, null);
+    }
+
+    public Long recipeId() {
+        return after != null ? after.id() : before.id();
+    }
+
+    /**
+     * Lower-cased names of the ingredients the recipe had before or has after the change, by id.
+     */
+    public Map<Long, String> ingredientNames() {
+        Map<Long, String> names = new HashMap<>();
+        if (before != null) {
+            names.putAll(before.ingredients());
+        }
+        if (after != null) {
+            names.putAll(after.ingredients());
+        }
+        return names;
+    }
+
+    /**
+     * Change in the number of recipes using each ingredient of {@link #ingredientNames()}: -1 when it was removed, 1
+     * when it was added and 0 when an update kept it.
+     */
+    public Map<Long, Long> ingredientDeltas() {
+        Map<Long, Long> deltas = new HashMap<>();
+        if (before != null) {
+            before.ingredients().keySet().forEach(id -> deltas.merge(id, -1L, Long::sum));
+        }
+        if (after != null) {
+            after.ingredients().keySet().forEach(id -> deltas.merge(id, 1L, Long::sum));
+        }
+        return deltas;
+    }
+}
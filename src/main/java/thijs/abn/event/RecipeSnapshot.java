@@ -0,0 +1,25 @@
+package thijs.abn.event;
+
+import thijs.abn.entity.Ingredient;
+import thijs.abn.entity.Recipe;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable copy of the searchable state of a {@link Recipe}, taken inside the writing transaction so listeners never
+ * touch a managed entity.
+ *
+ * @param ingredients ingredient ids mapped to their lower-cased names
+ * @param version     the {@code @Version} of the recipe, which orders the changes of one recipe
+ */
+public record RecipeSnapshot(Long id, String name, boolean vegetarian, int servings, String instructions,
+                             Map<Long, String> ingredients, long version) {
+
+    public static RecipeSnapshot of(Recipe recipe) {
+        return new RecipeSnapshot(recipe.getId(), recipe.getName(), recipe.isVegetarian(), recipe.getServings(),
+                recipe.getInstructions(), recipe.getIngredients().stream()
+                .collect(Collectors.toUnmodifiableMap(Ingredient::getId, Ingredient::getName, (first, second) -> first)),
+                recipe.getVersion());
+    }
+}
@@ -0,0 +1,12 @@
+package thijs.abn.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidRecipeException extends RuntimeException {
+
+    public InvalidRecipeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,161 @@
+package thijs.abn.index;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Base class for in-memory structures derived from the recipe tables. The state is loaded from the database once the
+ * application is ready and afterwards kept up to date from committed {@link RecipeChangedEvent}s. Events committed
+ * while the state is being loaded are buffered and replayed on top of it, so no change is lost.
+ * <p>
+ * Events of concurrent transactions are delivered after their commits, possibly in a different order. When
+ * {@link #replacesRecipeState()}, an event older than the last applied change of the same recipe, by
+ * {@link RecipeSnapshot#version()}, is therefore not applied as such: only what its older state may have left behind is
+ * removed, and the newer state restored.
+ *
+ * @param <S> type of the indexed state, only accessed under the index lock
+ */
+public abstract class EventSourcedIndex<S> {
+
+    // Events are reordered within moments of each other, so only the most recently changed recipes are remembered
+    private static final int MAX_TRACKED_RECIPES = 10_000;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private S state;
+    private List<RecipeChangedEvent> pending;
+    private volatile boolean ready;
+    // Last applied state per recently changed recipe, null once deleted; only accessed under the write lock
+    private final Map<Long, Applied> applied = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Applied> eldest) {
+            return size() > MAX_TRACKED_RECIPES;
+        }
+    };
+
+    protected EventSourcedIndex(PlatformTransactionManager transactionManager, boolean enabled) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Loads a complete state from the database. Runs inside a read-only transaction.
+     */
+    protected abstract S load();
+
+    /**
+     * Applies a committed change to the state. Runs under the write lock.
+     */
+    protected abstract void apply(S state, RecipeChangedEvent event);
+
+    /**
+     * Whether {@link #apply} replaces the indexed state of the recipe with the event's new state. Indexes that add up
+     * changes instead, such as counts, get every event as it is, which gives the same result in any order.
+     */
+    protected boolean replacesRecipeState() {
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        S loaded = readOnlyTransaction.execute(status -> load());
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(event -> applyInOrder(loaded, event));
+            pending = null;
+            state = loaded;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(event);
+            } else if (state != null) {
+                applyInOrder(state, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyInOrder(S state, RecipeChangedEvent event) {
+        if (!replacesRecipeState()) {
+            apply(state, event);
+            return;
+        }
+        long version = event.after() != null ? event.after().version() : Long.MAX_VALUE;
+        Applied last = applied.get(event.recipeId());
+        if (last == null || last.version() < version) {
+            applied.put(event.recipeId(), new Applied(version, event.after()));
+            apply(state, event);
+        } else if (event.before() != null || last.recipe() != null) {
+            // A newer change was applied first: remove this change's old state, which may still be indexed, and
+            // restore the newer state
+            apply(state, last.recipe() != null
+                    ? RecipeChangedEvent.updated(event.before(), last.recipe())
+                    : RecipeChangedEvent.deleted(event.before()));
+        }
+    }
+
+    /**
+     * Reads from the current state under the read lock. Callers must check {@link #isReady()} first.
+     */
+    protected <T> T read(Function<S, T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Applied(long version, RecipeSnapshot recipe) {
+    }
+}
@@ -0,0 +1,167 @@
+package thijs.abn.index;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Tokenised postings index over recipe names and instructions. Queries are analysed with {@link TextAnalyzer}; a
+ * recipe matches when every query term occurs in its name or instructions, and matches are ranked with BM25F, where a
+ * term in the name weighs more than a term in the instructions.
+ */
+@Component
+public class FullTextIndex extends EventSourcedIndex<FullTextIndex.Postings> {
+
+    private static final int NAME = 0;
+    private static final int INSTRUCTIONS = 1;
+    private static final double[] FIELD_WEIGHTS = {2.0, 1.0};
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final RecipeRepository recipeRepository;
+
+    private final Logger log = LoggerFactory.getLogger(FullTextIndex.class);
+
+    @Autowired
+    public FullTextIndex(RecipeRepository recipeRepository, PlatformTransactionManager transactionManager,
+                         RecipeProperties recipeProperties) {
+        super(transactionManager, recipeProperties.getSearch().getFullText().isEnabled());
+        this.recipeRepository = recipeRepository;
+    }
+
+    @Override
+    protected Postings load() {
+        Postings postings = new Postings();
+        try (Stream<Object[]> rows = recipeRepository.streamTextAttributes()) {
+            rows.forEach(row -> postings.add((Long) row[0], (String) row[1], (String) row[2]));
+        }
+        log.info("Full-text index built with {} recipes and {} terms", postings.documents.size(), postings.terms.size());
+        return postings;
+    }
+
+    @Override
+    protected void apply(Postings postings, RecipeChangedEvent event) {
+        if (event.before() != null) {
+            postings.remove(event.before().id());
+        }
+        RecipeSnapshot after = event.after();
+        if (after != null) {
+            postings.add(after.id(), after.name(), after.instructions());
+        }
+    }
+
+    /**
+     * Returns the ids of the recipes matching every term of the query, best match first. Only recipes in
+     * {@code candidates} are considered when it is not {@code null}. Returns {@code null} when the query contains no
+     * indexable term, for example when it only consists of stop words.
+     */
+    public long[] search(String query, Roaring64Bitmap candidates) {
+        List<String> queryTerms = TextAnalyzer.analyze(query).stream().distinct().toList();
+        if (queryTerms.isEmpty()) {
+            return null;
+        }
+        return read(postings -> postings.search(queryTerms, candidates));
+    }
+
+    static final class Postings {
+        // term -> recipe id -> term frequency per field
+        private final Map<String, Map<Long, int[]>> terms = new HashMap<>();
+        private final Map<Long, Document> documents = new HashMap<>();
+        private final long[] totalFieldLengths = new long[2];
+
+        void add(long recipeId, String name, String instructions) {
+            remove(recipeId);
+            List<String> nameTerms = TextAnalyzer.analyze(name);
+            List<String> instructionTerms = TextAnalyzer.analyze(instructions);
+            nameTerms.forEach(term -> terms.computeIfAbsent(term, key -> new HashMap<>())
+                    .computeIfAbsent(recipeId, key -> new int[2])[NAME]++);
+            instructionTerms.forEach(term -> terms.computeIfAbsent(term, key -> new HashMap<>())
+                    .computeIfAbsent(recipeId, key -> new int[2])[INSTRUCTIONS]++);
+
+            Set<String> distinctTerms = new HashSet<>(nameTerms);
+            distinctTerms.addAll(instructionTerms);
+            documents.put(recipeId, new Document(new int[]{nameTerms.size(), instructionTerms.size()}, distinctTerms.toArray(String[]::new)));
+            totalFieldLengths[NAME] += nameTerms.size();
+            totalFieldLengths[INSTRUCTIONS] += instructionTerms.size();
+        }
+
+        void remove(long recipeId) {
+            Document document = documents.remove(recipeId);
+            if (document == null) {
+                return;
+            }
+            totalFieldLengths[NAME] -= document.fieldLengths()[NAME];
+            totalFieldLengths[INSTRUCTIONS] -= document.fieldLengths()[INSTRUCTIONS];
+            for (String term : document.terms()) {
+                Map<Long, int[]> recipes = terms.get(term);
+                if (recipes != null && recipes.remove(recipeId) != null && recipes.isEmpty()) {
+                    terms.remove(term);
+                }
+            }
+        }
+
+        long[] search(List<String> queryTerms, Roaring64Bitmap candidates) {
+            List<Map<Long, int[]>> termPostings = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                Map<Long, int[]> recipes = terms.get(term);
+                if (recipes == null) {
+                    return new long[0];
+                }
+                termPostings.add(recipes);
+            }
+            // Walk the rarest term's postings and probe the others
+            termPostings.sort(Comparator.comparingInt(Map::size));
+
+            int documentCount = documents.size();
+            double[] averageLengths = {
+                    Math.max(1.0, (double) totalFieldLengths[NAME] / documentCount),
+                    Math.max(1.0, (double) totalFieldLengths[INSTRUCTIONS] / documentCount)};
+            double[] idf = termPostings.stream()
+                    .mapToDouble(recipes -> Math.log(1 + (documentCount - recipes.size() + 0.5) / (recipes.size() + 0.5)))
+                    .toArray();
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (Long recipeId : termPostings.get(0).keySet()) {
+                if (candidates != null && !candidates.contains(recipeId)) {
+                    continue;
+                }
+                int[] lengths = documents.get(recipeId).fieldLengths();
+                double score = 0;
+                for (int i = 0; i < termPostings.size(); i++) {
+                    int[] frequencies = termPostings.get(i).get(recipeId);
+                    if (frequencies == null) {
+                        score = -1;
+                        break;
+                    }
+                    double weightedFrequency = 0;
+                    for (int field = NAME; field <= INSTRUCTIONS; field++) {
+                        weightedFrequency += FIELD_WEIGHTS[field] * frequencies[field]
+                                / (1 - B + B * lengths[field] / averageLengths[field]);
+                    }
+                    score += idf[i] * weightedFrequency / (K1 + weightedFrequency);
+                }
+                if (score >= 0) {
+                    scores.put(recipeId, score);
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+        }
+
+        private record Document(int[] fieldLengths, String[] terms) {
+        }
+    }
+}
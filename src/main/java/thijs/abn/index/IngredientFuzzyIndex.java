@@ -0,0 +1,208 @@
+package thijs.abn.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * BK-tree over the lower-cased ingredient names, finding the names within a Levenshtein distance of a misspelled
+ * search term. Every child of a node lies at a fixed distance from it, so by the triangle inequality a lookup only
+ * descends into the children whose distance is within the allowed number of edits of the term's distance to the node.
+ * Lookups try one edit first and only allow more when that finds nothing, and stop after
+ * {@code recipes.search.fuzzy.max-comparisons} names, so their cost stays bounded in a large vocabulary.
+ */
+@Component
+public class IngredientFuzzyIndex extends EventSourcedIndex<IngredientFuzzyIndex.BkTree> {
+
+    private final IngredientRepository ingredientRepository;
+    private final int maxDistance;
+    private final int maxExpansions;
+    private final int maxComparisons;
+
+    private final Logger log = LoggerFactory.getLogger(IngredientFuzzyIndex.class);
+
+    @Autowired
+    public IngredientFuzzyIndex(IngredientRepository ingredientRepository, PlatformTransactionManager transactionManager,
+                                RecipeProperties recipeProperties) {
+        super(transactionManager, recipeProperties.getSearch().getFuzzy().isEnabled());
+        RecipeProperties.Search.Fuzzy settings = recipeProperties.getSearch().getFuzzy();
+        this.ingredientRepository = ingredientRepository;
+        this.maxDistance = Math.max(0, settings.getMaxDistance());
+        this.maxExpansions = Math.max(1, settings.getMaxExpansions());
+        this.maxComparisons = Math.max(1, settings.getMaxComparisons());
+    }
+
+    @Override
+    protected BkTree load() {
+        BkTree tree = new BkTree();
+        try (Stream<Object[]> rows = ingredientRepository.streamRecipeCounts()) {
+            rows.forEach(row -> tree.add((Long) row[0], (String) row[1], ((Number) row[2]).longValue()));
+        }
+        log.info("Ingredient fuzzy index built with {} names", tree.entries.size());
+        return tree;
+    }
+
+    // Recipe counts are adjusted by the difference each change makes, in whatever order the changes arrive
+    @Override
+    protected boolean replacesRecipeState() {
+        return false;
+    }
+
+    @Override
+    protected void apply(BkTree tree, RecipeChangedEvent event) {
+        Map<Long, String> names = event.ingredientNames();
+        event.ingredientDeltas().forEach((id, delta) -> {
+            Entry entry = tree.entries.get(id);
+            if (entry == null) {
+                tree.add(id, names.get(id), Math.max(0, delta));
+            } else {
+                entry.recipes = Math.max(0, entry.recipes + delta);
+            }
+        });
+    }
+
+    /**
+     * Returns the ingredients closest to the term, ignoring case, by id: at most
+     * {@code recipes.search.fuzzy.max-expansions} of the names needing the fewest edits, used in most recipes first.
+     * Terms under 3 characters are only matched exactly and terms under 6 characters with at most one edit. Returns
+     * an empty map when no name is close enough.
+     */
+    public Map<Long, String> match(String term) {
+        String key = term.toLowerCase(Locale.ROOT);
+        int allowed = key.length() < 3 ? 0 : key.length() < 6 ? Math.min(1, maxDistance) : maxDistance;
+        return read(tree -> tree.match(key, allowed, maxExpansions, maxComparisons));
+    }
+
+    static final class BkTree {
+        private static final Comparator<Entry> RANKING = Comparator.comparingLong((Entry entry) -> entry.recipes).reversed()
+                .thenComparing(entry -> entry.name);
+
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final Map<String, Entry> byName = new HashMap<>();
+        private Node root;
+
+        void add(long id, String name, long recipes) {
+            Entry entry = new Entry(id, name, recipes);
+            entries.put(id, entry);
+            if (byName.putIfAbsent(name, entry) != null) {
+                return;
+            }
+            if (root == null) {
+                root = new Node(entry);
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int distance = distance(name, node.entry.name);
+                Node child = node.child(distance);
+                if (child == null) {
+                    node.setChild(distance, new Node(entry));
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        Map<Long, String> match(String term, int allowed, int maxExpansions, int maxComparisons) {
+            Entry exact = byName.get(term);
+            if (exact != null) {
+                return Map.of(exact.id, exact.name);
+            }
+            if (root == null) {
+                return Map.of();
+            }
+            int[] budget = {maxComparisons};
+            for (int distance = 1; distance <= allowed && budget[0] > 0; distance++) {
+                List<Entry> found = new ArrayList<>();
+                collect(root, term, distance, found, budget);
+                if (!found.isEmpty()) {
+                    found.sort(RANKING);
+                    Map<Long, String> matches = new LinkedHashMap<>();
+                    found.stream().limit(maxExpansions).forEach(entry -> matches.put(entry.id, entry.name));
+                    return matches;
+                }
+            }
+            return Map.of();
+        }
+
+        // Collects the entries exactly the given distance from the term; nearer ones were looked for before
+        private static void collect(Node node, String term, int radius, List<Entry> found, int[] budget) {
+            if (budget[0]-- <= 0) {
+                return;
+            }
+            int distance = distance(term, node.entry.name);
+            if (distance == radius) {
+                found.add(node.entry);
+            }
+            Node[] children = node.children;
+            for (int i = Math.max(1, distance - radius); i <= distance + radius && i < children.length; i++) {
+                if (children[i] != null) {
+                    collect(children[i], term, radius, found, budget);
+                }
+            }
+        }
+
+        static int distance(String a, String b) {
+            int[] previous = new int[b.length() + 1];
+            int[] current = new int[b.length() + 1];
+            for (int j = 0; j <= b.length(); j++) {
+                previous[j] = j;
+            }
+            for (int i = 1; i <= a.length(); i++) {
+                current[0] = i;
+                char c = a.charAt(i - 1);
+                for (int j = 1; j <= b.length(); j++) {
+                    int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                    current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return previous[b.length()];
+        }
+
+        private static final class Node {
+            private static final Node[] NO_CHILDREN = new Node[0];
+
+            private final Entry entry;
+            // Indexed by the distance of the child to this node
+            private Node[] children = NO_CHILDREN;
+
+            Node(Entry entry) {
+                this.entry = entry;
+            }
+
+            Node child(int distance) {
+                return distance < children.length ? children[distance] : null;
+            }
+
+            void setChild(int distance, Node child) {
+                if (distance >= children.length) {
+                    children = Arrays.copyOf(children, distance + 1);
+                }
+                children[distance] = child;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final String name;
+        private long recipes;
+
+        Entry(long id, String name, long recipes) {
+            this.id = id;
+            this.name = name;
+            this.recipes = recipes;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package thijs.abn.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.model.IngredientSuggestionDto;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Radix tree over the lower-cased ingredient names, answering prefix lookups ranked by the number of recipes using
+ * each ingredient. Every node keeps the best {@code recipes.search.suggest.max-results} ingredients below it, so a
+ * lookup only walks the prefix and copies that list, whatever the size of the vocabulary. A recipe change only
+ * re-ranks the nodes on the paths of the ingredients it added or removed.
+ */
+@Component
+public class IngredientSuggestIndex extends EventSourcedIndex<IngredientSuggestIndex.Trie> {
+
+    private final IngredientRepository ingredientRepository;
+    private final int maxResults;
+
+    private final Logger log = LoggerFactory.getLogger(IngredientSuggestIndex.class);
+
+    @Autowired
+    public IngredientSuggestIndex(IngredientRepository ingredientRepository, PlatformTransactionManager transactionManager,
+                                  RecipeProperties recipeProperties) {
+        super(transactionManager, recipeProperties.getSearch().getSuggest().isEnabled());
+        this.ingredientRepository = ingredientRepository;
+        this.maxResults = Math.max(1, recipeProperties.getSearch().getSuggest().getMaxResults());
+    }
+
+    @Override
+    protected Trie load() {
+        Trie trie = new Trie(maxResults);
+        try (Stream<Object[]> rows = ingredientRepository.streamRecipeCounts()) {
+            rows.forEach(row -> trie.insert((Long) row[0], (String) row[1], ((Number) row[2]).longValue()));
+        }
+        trie.rank();
+        log.info("Ingredient suggestion index built with {} names", trie.entries.size());
+        return trie;
+    }
+
+    // Recipe counts are adjusted by the difference each change makes, in whatever order the changes arrive
+    @Override
+    protected boolean replacesRecipeState() {
+        return false;
+    }
+
+    @Override
+    protected void apply(Trie trie, RecipeChangedEvent event) {
+        Map<Long, String> names = event.ingredientNames();
+        event.ingredientDeltas().forEach((id, delta) -> {
+            if (delta != 0 || !trie.entries.containsKey(id)) {
+                trie.adjust(id, names.get(id), delta);
+            }
+        });
+    }
+
+    /**
+     * Returns at most {@code limit} ingredients whose name starts with the prefix, ignoring case, used in most recipes
+     * first and by name among equals. The limit is capped at {@code recipes.search.suggest.max-results}.
+     */
+    public List<IngredientSuggestionDto> suggest(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        return read(trie -> trie.suggest(key, Math.min(limit, maxResults)));
+    }
+
+    public int maxResults() {
+        return maxResults;
+    }
+
+    static final class Trie {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+        private static final Comparator<Entry> RANKING = Comparator.comparingLong((Entry entry) -> entry.recipes).reversed()
+                .thenComparing(entry -> entry.name);
+
+        private final int maxResults;
+        private final Node root = new Node("");
+        private final Map<Long, Entry> entries = new HashMap<>();
+
+        Trie(int maxResults) {
+            this.maxResults = maxResults;
+        }
+
+        /**
+         * Adds a name without ranking; call {@link #rank()} once every name is inserted.
+         */
+        void insert(long id, String name, long recipes) {
+            Entry entry = new Entry(id, name, recipes);
+            entries.put(id, entry);
+            List<Node> path = path(name);
+            path.get(path.size() - 1).entry = entry;
+        }
+
+        /**
+         * Ranks every node bottom-up after a bulk {@link #insert}.
+         */
+        void rank() {
+            rank(root);
+        }
+
+        /**
+         * Changes the recipe count of an ingredient, adding it when it is new, and re-ranks the nodes on its path.
+         */
+        void adjust(long id, String name, long delta) {
+            Entry entry = entries.get(id);
+            List<Node> path;
+            if (entry == null) {
+                entry = new Entry(id, name, Math.max(0, delta));
+                entries.put(id, entry);
+                path = path(name);
+                path.get(path.size() - 1).entry = entry;
+            } else {
+                entry.recipes = Math.max(0, entry.recipes + delta);
+                path = path(entry.name);
+            }
+            for (int i = path.size() - 1; i >= 0; i--) {
+                path.get(i).top = top(path.get(i));
+            }
+        }
+
+        List<IngredientSuggestionDto> suggest(String prefix, int limit) {
+            Node node = find(prefix);
+            if (node == null) {
+                return List.of();
+            }
+            Entry[] top = node.top;
+            List<IngredientSuggestionDto> suggestions = new ArrayList<>(Math.min(limit, top.length));
+            for (int i = 0; i < top.length && i < limit; i++) {
+                suggestions.add(new IngredientSuggestionDto(top[i].id, top[i].name, top[i].recipes));
+            }
+            return suggestions;
+        }
+
+        // The node holding every name starting with the prefix, or null when there is none
+        private Node find(String prefix) {
+            Node node = root;
+            int offset = 0;
+            while (offset < prefix.length()) {
+                int index = childIndex(node, prefix.charAt(offset));
+                if (index < 0) {
+                    return null;
+                }
+                Node child = node.children[index];
+                int common = commonPrefix(child.label, prefix, offset);
+                if (offset + common == prefix.length()) {
+                    return child;
+                }
+                if (common < child.label.length()) {
+                    return null;
+                }
+                node = child;
+                offset += common;
+            }
+            return node;
+        }
+
+        // The nodes from the root to the node of the name, created and split where needed
+        private List<Node> path(String name) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int offset = 0;
+            while (offset < name.length()) {
+                int index = childIndex(node, name.charAt(offset));
+                if (index < 0) {
+                    Node leaf = new Node(name.substring(offset));
+                    insertChild(node, -index - 1, leaf);
+                    path.add(leaf);
+                    return path;
+                }
+                Node child = node.children[index];
+                int common = commonPrefix(child.label, name, offset);
+                if (common < child.label.length()) {
+                    // Split the edge; the new node has the same names below it, so it shares the child's ranking
+                    Node split = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    split.children = new Node[]{child};
+                    split.top = child.top;
+                    node.children[index] = split;
+                    child = split;
+                }
+                path.add(child);
+                node = child;
+                offset += common;
+            }
+            return path;
+        }
+
+        private void rank(Node node) {
+            for (Node child : node.children) {
+                rank(child);
+            }
+            node.top = top(node);
+        }
+
+        private Entry[] top(Node node) {
+            List<Entry> candidates = new ArrayList<>();
+            if (node.entry != null) {
+                candidates.add(node.entry);
+            }
+            for (Node child : node.children) {
+                Collections.addAll(candidates, child.top);
+            }
+            if (candidates.isEmpty()) {
+                return NO_ENTRIES;
+            }
+            candidates.sort(RANKING);
+            return candidates.subList(0, Math.min(maxResults, candidates.size())).toArray(NO_ENTRIES);
+        }
+
+        // Children are sorted by their first character, which is unique among siblings
+        private static int childIndex(Node node, char c) {
+            int low = 0;
+            int high = node.children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char first = node.children[middle].label.charAt(0);
+                if (first < c) {
+                    low = middle + 1;
+                } else if (first > c) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        private static void insertChild(Node node, int index, Node child) {
+            Node[] children = new Node[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            children[index] = child;
+            System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+            node.children = children;
+        }
+
+        private static int commonPrefix(String label, String name, int offset) {
+            int length = Math.min(label.length(), name.length() - offset);
+            int common = 0;
+            while (common < length && label.charAt(common) == name.charAt(offset + common)) {
+                common++;
+            }
+            return common;
+        }
+
+        private static final class Node {
+            private String label;
+            private Node[] children = NO_CHILDREN;
+            private Entry entry;
+            private Entry[] top = NO_ENTRIES;
+
+            Node(String label) {
+                this.label = label;
+            }
+        }
+
+        private static final class Entry {
+            private final long id;
+            private final String name;
+            private long recipes;
+
+            Entry(long id, String name, long recipes) {
+                this.id = id;
+                this.name = name;
+                this.recipes = recipes;
+            }
+        }
+    }
+}
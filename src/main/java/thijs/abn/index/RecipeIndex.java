@@ -0,0 +1,313 @@
+package thijs.abn.index;
+
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the searchable recipe attributes. Every ingredient id, servings value and the
+ * vegetarian flag map to a compressed bitmap of recipe ids, so search filters resolve as bitmap AND / ANDNOT operations
+ * and the database is only needed to load the matching recipes.
+ * <p>
+ * The index is built once the application is ready and then kept up to date from committed
+ * {@link RecipeChangedEvent}s.
+ */
+@Component
+public class RecipeIndex extends EventSourcedIndex<RecipeIndex.Bitmaps> {
+
+    private final RecipeRepository recipeRepository;
+
+    private final Logger log = LoggerFactory.getLogger(RecipeIndex.class);
+
+    @Autowired
+    public RecipeIndex(RecipeRepository recipeRepository, PlatformTransactionManager transactionManager,
+                       RecipeProperties recipeProperties) {
+        super(transactionManager, recipeProperties.getSearch().getIndex().isEnabled());
+        this.recipeRepository = recipeRepository;
+    }
+
+    @Override
+    protected Bitmaps load() {
+        Bitmaps bitmaps = new Bitmaps();
+        try (Stream<Object[]> rows = recipeRepository.streamSearchAttributes()) {
+            rows.forEach(row -> bitmaps.addAttributes((Long) row[0], (Boolean) row[1], (Integer) row[2]));
+        }
+        try (Stream<Object[]> rows = recipeRepository.streamIngredientLinks()) {
+            rows.forEach(row -> bitmaps.addIngredient((Long) row[0], (Long) row[1]));
+        }
+        bitmaps.optimize();
+        bitmaps.sortByFrequency();
+        log.info("Recipe index built with {} recipes and {} ingredients", bitmaps.all.getLongCardinality(), bitmaps.byIngredient.size());
+        return bitmaps;
+    }
+
+    @Override
+    protected void apply(Bitmaps bitmaps, RecipeChangedEvent event) {
+        bitmaps.apply(event);
+    }
+
+    /**
+     * Returns the ids of the recipes matching the given filters. {@code includedIngredients} holds one set of candidate
+     * ingredient ids per requested ingredient; a recipe satisfies a requested ingredient when it contains any of its
+     * candidates.
+     */
+    public Roaring64Bitmap search(Boolean isVegetarian, Integer minServings, Integer maxServings,
+                                  List<Set<Long>> includedIngredients, IngredientMatch ingredientMatch,
+                                  Set<Long> excludedIngredients) {
+        return read(bitmaps -> {
+            Roaring64Bitmap result = bitmaps.all.clone();
+
+            if (isVegetarian != null) {
+                if (isVegetarian) {
+                    result.and(bitmaps.vegetarian);
+                } else {
+                    result.andNot(bitmaps.vegetarian);
+                }
+            }
+
+            if (minServings != null || maxServings != null) {
+                int from = minServings != null ? minServings : Integer.MIN_VALUE;
+                int to = maxServings != null ? maxServings : Integer.MAX_VALUE;
+                Roaring64Bitmap inRange = new Roaring64Bitmap();
+                if (from <= to) {
+                    bitmaps.byServings.subMap(from, true, to, true).values().forEach(inRange::or);
+                }
+                result.and(inRange);
+            }
+
+            if (includedIngredients != null && !includedIngredients.isEmpty()) {
+                if (ingredientMatch == IngredientMatch.ALL) {
+                    for (Set<Long> candidates : includedIngredients) {
+                        result.and(union(bitmaps, candidates));
+                    }
+                } else {
+                    Roaring64Bitmap any = new Roaring64Bitmap();
+                    includedIngredients.forEach(candidates -> any.or(union(bitmaps, candidates)));
+                    result.and(any);
+                }
+            }
+
+            if (excludedIngredients != null) {
+                for (Long ingredientId : excludedIngredients) {
+                    Roaring64Bitmap recipes = bitmaps.byIngredient.get(ingredientId);
+                    if (recipes != null) {
+                        result.andNot(recipes);
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Counts the vegetarian recipes among the given ones.
+     */
+    public long countVegetarian(Roaring64Bitmap recipeIds) {
+        return read(bitmaps -> andCardinality(bitmaps.vegetarian, recipeIds));
+    }
+
+    /**
+     * Counts the given recipes per number of servings, leaving out values without recipes.
+     */
+    public NavigableMap<Integer, Long> countByServings(Roaring64Bitmap recipeIds) {
+        return read(bitmaps -> {
+            NavigableMap<Integer, Long> counts = new TreeMap<>();
+            bitmaps.byServings.forEach((servings, recipes) -> {
+                long count = andCardinality(recipes, recipeIds);
+                if (count > 0) {
+                    counts.put(servings, count);
+                }
+            });
+            return counts;
+        });
+    }
+
+    /**
+     * Returns the ids of at most {@code limit} ingredients occurring most often in the given recipes, mapped to their
+     * number of occurrences, most frequent first. Ingredients are counted in descending order of their number of
+     * recipes in the whole catalogue, which the index keeps sorted, so the scan ends as soon as no remaining ingredient
+     * can enter the result. It also ends after {@code maxScanned} ingredients, in which case the result is marked
+     * approximate: an ingredient that was not counted might have entered it.
+     */
+    public TopIngredients topIngredients(Roaring64Bitmap recipeIds, int limit, int maxScanned, Set<Long> skipped) {
+        return read(bitmaps -> {
+            // Least frequent of the current top ingredients first, so it is the one to drop
+            Comparator<long[]> byCount = Comparator.<long[]>comparingLong(counted -> counted[1])
+                    .thenComparing(counted -> -counted[0]);
+            PriorityQueue<long[]> top = new PriorityQueue<>(byCount);
+            int scanned = 0;
+            boolean approximate = false;
+            for (Frequency candidate : bitmaps.byFrequency) {
+                if (top.size() == limit && candidate.recipes() <= top.peek()[1]) {
+                    break;
+                }
+                if (skipped.contains(candidate.ingredientId())) {
+                    continue;
+                }
+                if (scanned == maxScanned) {
+                    approximate = true;
+                    break;
+                }
+                scanned++;
+                long count = andCardinality(bitmaps.byIngredient.get(candidate.ingredientId()), recipeIds);
+                if (count > 0) {
+                    top.add(new long[]{candidate.ingredientId(), count});
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            Map<Long, Long> counts = new LinkedHashMap<>();
+            top.stream()
+                    .sorted(byCount.reversed())
+                    .forEach(counted -> counts.put(counted[0], counted[1]));
+            return new TopIngredients(counts, approximate);
+        });
+    }
+
+    /**
+     * Ingredient ids mapped to their number of occurrences, most frequent first.
+     *
+     * @param approximate whether the scan stopped at its limit before every ingredient that could enter was counted
+     */
+    public record TopIngredients(Map<Long, Long> counts, boolean approximate) {
+    }
+
+    /**
+     * Counts the recipes in both bitmaps without building their intersection: each iterator skips ahead to the other's
+     * next id, which passes over whole containers at once.
+     */
+    private static long andCardinality(Roaring64Bitmap recipes, Roaring64Bitmap recipeIds) {
+        PeekableLongIterator left = recipes.getLongIterator();
+        PeekableLongIterator right = recipeIds.getLongIterator();
+        long count = 0;
+        while (left.hasNext() && right.hasNext()) {
+            long leftId = left.peekNext();
+            long rightId = right.peekNext();
+            if (leftId == rightId) {
+                count++;
+                left.next();
+                right.next();
+            } else if (leftId < rightId) {
+                left.advanceIfNeeded(rightId);
+            } else {
+                right.advanceIfNeeded(leftId);
+            }
+        }
+        return count;
+    }
+
+    private static Roaring64Bitmap union(Bitmaps bitmaps, Set<Long> ingredientIds) {
+        Roaring64Bitmap union = new Roaring64Bitmap();
+        for (Long ingredientId : ingredientIds) {
+            Roaring64Bitmap recipes = bitmaps.byIngredient.get(ingredientId);
+            if (recipes != null) {
+                union.or(recipes);
+            }
+        }
+        return union;
+    }
+
+    static final class Bitmaps {
+        private final Roaring64Bitmap all = new Roaring64Bitmap();
+        private final Roaring64Bitmap vegetarian = new Roaring64Bitmap();
+        private final NavigableMap<Integer, Roaring64Bitmap> byServings = new TreeMap<>();
+        private final Map<Long, Roaring64Bitmap> byIngredient = new HashMap<>();
+        // The ingredients by descending number of recipes, for topIngredients; kept in step with byIngredient by add and remove
+        private final NavigableSet<Frequency> byFrequency = new TreeSet<>(Comparator.comparingLong(Frequency::recipes).reversed()
+                .thenComparingLong(Frequency::ingredientId));
+
+        void addAttributes(long recipeId, boolean isVegetarian, int servings) {
+            all.addLong(recipeId);
+            if (isVegetarian) {
+                vegetarian.addLong(recipeId);
+            }
+            byServings.computeIfAbsent(servings, key -> new Roaring64Bitmap()).addLong(recipeId);
+        }
+
+        void addIngredient(long recipeId, long ingredientId) {
+            byIngredient.computeIfAbsent(ingredientId, key -> new Roaring64Bitmap()).addLong(recipeId);
+        }
+
+        void apply(RecipeChangedEvent event) {
+            if (event.before() != null) {
+                remove(event.before());
+            }
+            if (event.after() != null) {
+                add(event.after());
+            }
+        }
+
+        private void add(RecipeSnapshot recipe) {
+            addAttributes(recipe.id(), recipe.vegetarian(), recipe.servings());
+            recipe.ingredients().keySet().forEach(ingredientId -> {
+                forgetFrequency(ingredientId);
+                addIngredient(recipe.id(), ingredientId);
+                recordFrequency(ingredientId);
+            });
+        }
+
+        private void remove(RecipeSnapshot recipe) {
+            all.removeLong(recipe.id());
+            vegetarian.removeLong(recipe.id());
+            removeFrom(byServings, recipe.servings(), recipe.id());
+            recipe.ingredients().keySet().forEach(ingredientId -> {
+                forgetFrequency(ingredientId);
+                removeFrom(byIngredient, ingredientId, recipe.id());
+                recordFrequency(ingredientId);
+            });
+        }
+
+        private void forgetFrequency(long ingredientId) {
+            Roaring64Bitmap recipes = byIngredient.get(ingredientId);
+            if (recipes != null) {
+                byFrequency.remove(new Frequency(ingredientId, recipes.getLongCardinality()));
+            }
+        }
+
+        private void recordFrequency(long ingredientId) {
+            Roaring64Bitmap recipes = byIngredient.get(ingredientId);
+            if (recipes != null) {
+                byFrequency.add(new Frequency(ingredientId, recipes.getLongCardinality()));
+            }
+        }
+
+        void sortByFrequency() {
+            byFrequency.clear();
+            byIngredient.keySet().forEach(this::recordFrequency);
+        }
+
+        private static <K> void removeFrom(Map<K, Roaring64Bitmap> bitmaps, K key, long recipeId) {
+            Roaring64Bitmap recipes = bitmaps.get(key);
+            if (recipes != null) {
+                recipes.removeLong(recipeId);
+                if (recipes.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+
+        void optimize() {
+            all.runOptimize();
+            vegetarian.runOptimize();
+            byServings.values().forEach(Roaring64Bitmap::runOptimize);
+            byIngredient.values().forEach(Roaring64Bitmap::runOptimize);
+        }
+    }
+
+    private record Frequency(long ingredientId, long recipes) {
+    }
+}
@@ -0,0 +1,83 @@
+package thijs.abn.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns recipe text into index terms: lower-cases, splits on anything that is not a letter or digit, drops common
+ * English stop words and reduces words to a light stem, so that "baked", "bakes" and "baking" all become "bak".
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is", "it", "of", "on", "or",
+            "the", "then", "to", "until", "with");
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean wordChar = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = lowerCase.substring(start, i);
+                if (!STOP_WORDS.contains(word)) {
+                    terms.add(stem(word));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String word) {
+        if (word.length() <= 3 || !Character.isLetter(word.charAt(word.length() - 1))) {
+            return word;
+        }
+        String stem = word;
+
+        // Plurals and third person singular
+        if (stem.endsWith("ies") && stem.length() > 4) {
+            stem = stem.substring(0, stem.length() - 3) + "y";
+        } else if (stem.endsWith("sses") || stem.endsWith("shes") || stem.endsWith("ches") || stem.endsWith("xes")
+                || stem.endsWith("zes") || stem.endsWith("oes")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us") && !stem.endsWith("is")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+
+        // Verb forms, keeping at least three characters
+        if (stem.endsWith("ing") && stem.length() >= 6) {
+            stem = undouble(stem.substring(0, stem.length() - 3));
+        } else if (stem.endsWith("ed") && stem.length() >= 5) {
+            stem = undouble(stem.substring(0, stem.length() - 2));
+        } else if (stem.endsWith("ly") && stem.length() >= 5) {
+            stem = stem.substring(0, stem.length() - 2);
+        }
+
+        // A trailing e is dropped so that "bake" and "baked" meet
+        if (stem.endsWith("e") && stem.length() > 3) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+
+    private static String undouble(String stem) {
+        int length = stem.length();
+        if (length >= 4 && stem.charAt(length - 1) == stem.charAt(length - 2) && "lsz".indexOf(stem.charAt(length - 1)) < 0
+                && "aeiou".indexOf(stem.charAt(length - 1)) < 0) {
+            return stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+}
@@ -10,6 +10,7 @@ import thijs.abn.model.RecipeDto;
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.WARN)
 public interface RecipeMapper {
     @Mapping(target = "vegetarian", source = "isVegetarian")
+    @Mapping(target = "version", ignore = true)
     Recipe map(RecipeDto recipeDto);
 
     @InheritInverseConfiguration
@@ -0,0 +1,95 @@
+package thijs.abn.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the number of SQL statements every request executes and flags requests above the statement budget, which
+ * usually means lazy associations are loaded one row at a time (the N+1 pattern).
+ * <p>
+ * The count of a request is kept as a request attribute. An asynchronous request, such as an export streamed with
+ * {@code StreamingResponseBody}, continues it on the thread that produces the body and is recorded once, when its
+ * final dispatch completes. Writes acknowledged with 202 Accepted are executed later by the write queue and are not
+ * part of the request's count, and neither are the R2DBC queries of the v2 API.
+ */
+public class SqlStatementBudgetInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+
+    private static final String COUNT_ATTRIBUTE = SqlStatementBudgetInterceptor.class.getName() + ".count";
+
+    private final MeterRegistry meterRegistry;
+    private final int budget;
+
+    private final Logger log = LoggerFactory.getLogger(SqlStatementBudgetInterceptor.class);
+
+    public SqlStatementBudgetInterceptor(MeterRegistry meterRegistry, int budget) {
+        this.meterRegistry = meterRegistry;
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The dispatch that completes an asynchronous request continues the count its first dispatch started
+        if (request.getAttribute(COUNT_ATTRIBUTE) instanceof AtomicInteger count) {
+            SqlStatementCounter.bind(count);
+        } else {
+            request.setAttribute(COUNT_ATTRIBUTE, SqlStatementCounter.reset());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementCounter.unbind();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        if (request.getAttribute(COUNT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof AtomicInteger count) {
+            SqlStatementCounter.bind(count);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        SqlStatementCounter.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        int statements = SqlStatementCounter.count();
+        SqlStatementCounter.unbind();
+        String uri = String.valueOf(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        String method = request.getMethod();
+
+        DistributionSummary.builder("recipes.sql.statements")
+                .description("SQL statements executed per request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statements);
+
+        if (statements > budget) {
+            Counter.builder("recipes.sql.budget.exceeded")
+                    .description("Requests that executed more SQL statements than the budget")
+                    .tag("method", method)
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("{} {} executed {} SQL statements, over the budget of {}", method, request.getRequestURI(), statements, budget);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package thijs.abn.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the JDBC statements prepared on the current thread, through {@link SqlStatementCountingDataSource}, so it sees
+ * Hibernate and plain {@code JdbcTemplate} queries alike. {@link SqlStatementBudgetInterceptor} starts a count for
+ * every request and binds it to the thread that continues an asynchronous request, so the count reflects all statements
+ * of that request. A JDBC batch counts once, as it is prepared once.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<AtomicInteger> COUNT = ThreadLocal.withInitial(AtomicInteger::new);
+
+    private SqlStatementCounter() {
+    }
+
+    static void increment() {
+        COUNT.get().incrementAndGet();
+    }
+
+    /**
+     * Starts a new count on the current thread and returns it, so that it can be bound to another thread.
+     */
+    public static AtomicInteger reset() {
+        AtomicInteger count = new AtomicInteger();
+        COUNT.set(count);
+        return count;
+    }
+
+    /**
+     * Continues the given count on the current thread.
+     */
+    public static void bind(AtomicInteger count) {
+        COUNT.set(count);
+    }
+
+    public static void unbind() {
+        COUNT.remove();
+    }
+
+    public static int count() {
+        return COUNT.get().get();
+    }
+}
@@ -0,0 +1,77 @@
+package thijs.abn.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Streams the JFR {@code jdk.VirtualThreadPinned} events of the running JVM into the {@code recipes.virtual.threads.pinned}
+ * timer. A virtual thread is pinned when it blocks inside a {@code synchronized} block or a native frame, which keeps
+ * its carrier thread blocked as well; the JDBC driver and connection pool are the usual suspects. Each event is tagged
+ * with the first frame outside the JDK, so the timer shows which code pins and for how long.
+ */
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+
+    private final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    public synchronized void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+        log.info("Recording virtual threads pinned for longer than {} ms", threshold.toMillis());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        String frame = firstApplicationFrame(event.getStackTrace());
+        Timer.builder("recipes.virtual.threads.pinned")
+                .description("Time virtual threads spent pinned to their carrier thread")
+                .tag("frame", frame)
+                .register(meterRegistry)
+                .record(event.getDuration());
+        log.debug("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frame);
+    }
+
+    private static String firstApplicationFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.getMethod() == null) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,22 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+
+/**
+ * An existing ingredient whose name starts with the typed prefix.
+ *
+ * @param recipeCount number of recipes using the ingredient, by which suggestions are ranked
+ */
+@Schema(description = "Ingredient suggestion")
+public record IngredientSuggestionDto(
+        @JsonProperty("id") Long id,
+
+        @Schema(example = "cinnamon")
+        @JsonProperty("name") String name,
+
+        @Schema(example = "42")
+        @JsonProperty("recipeCount") long recipeCount) implements Serializable {
+}
@@ -29,5 +29,12 @@ public record RecipeDto(
         @JsonProperty("instructions") @NotEmpty @NotBlank @NotNull String instructions,
 
         @Schema(example = "[{\"name\": \"Tomato Sauce\"}, {\"name\": \"Mozzarella Cheese\"}]", requiredMode = Schema.RequiredMode.REQUIRED)
-        @JsonProperty("ingredients") Set<IngredientDto> ingredients) implements Serializable {
+        @JsonProperty("ingredients") Set<IngredientDto> ingredients,
+
+        @Schema(example = "3", description = "Incremented on every change; also returned as the ETag", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+        @JsonProperty("version") Long version) implements Serializable {
+
+    public RecipeDto(Long id, String name, boolean isVegetarian, int servings, String instructions, Set<IngredientDto> ingredients) {
+        this(id, name, isVegetarian, servings, instructions, ingredients, null);
+    }
 }
\ No newline at end of file
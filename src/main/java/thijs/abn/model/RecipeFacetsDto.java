@@ -0,0 +1,53 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates over all recipes matching a search, not only the returned page. Facets that were not requested are
+ * {@code null}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Counts over all recipes matching a search")
+public record RecipeFacetsDto(
+        @Schema(example = "2016")
+        @JsonProperty("total") long total,
+
+        @JsonProperty("vegetarian") VegetarianCount vegetarian,
+
+        @Schema(example = "{\"1-2\": 640, \"3-4\": 911, \"5-6\": 301, \"7-9\": 112, \"10+\": 52}",
+                description = "Recipes per servings bucket, in ascending order")
+        @JsonProperty("servings") Map<String, Long> servings,
+
+        @Schema(description = "Ingredients occurring most often in the matching recipes, most frequent first; included ingredients are left out")
+        @JsonProperty("ingredients") List<IngredientCount> ingredients,
+
+        @Schema(description = "true when the ingredients facet stopped counting at recipes.search.facets.max-scanned-ingredients, "
+                + "so an ingredient that was not counted may be missing or the order may differ")
+        @JsonProperty("ingredientsApproximate") Boolean ingredientsApproximate) implements Serializable {
+
+    public RecipeFacetsDto(long total, VegetarianCount vegetarian, Map<String, Long> servings, List<IngredientCount> ingredients) {
+        this(total, vegetarian, servings, ingredients, null);
+    }
+
+    /**
+     * Facets that can be requested with a search.
+     */
+    public enum Facet {VEGETARIAN, SERVINGS, INGREDIENTS}
+
+    public record VegetarianCount(
+            @Schema(example = "812") @JsonProperty("vegetarian") long vegetarian,
+            @Schema(example = "1204") @JsonProperty("nonVegetarian") long nonVegetarian) implements Serializable {
+    }
+
+    public record IngredientCount(
+            @Schema(example = "17") @JsonProperty("id") Long id,
+            @Schema(example = "garlic") @JsonProperty("name") String name,
+            @Schema(example = "433") @JsonProperty("count") long count) implements Serializable {
+    }
+}
@@ -0,0 +1,43 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of a single recipe within a bulk import.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of importing a single recipe")
+public record RecipeImportItemDto(
+        @Schema(example = "0", description = "Position of the recipe in the submitted list")
+        @JsonProperty("index") int index,
+
+        @Schema(example = "Pizza Margherita")
+        @JsonProperty("name") String name,
+
+        @Schema(example = "42", description = "Id of the created recipe, absent when the recipe was rejected")
+        @JsonProperty("id") Long id,
+
+        @Schema(example = "CREATED")
+        @JsonProperty("status") Status status,
+
+        @Schema(example = "Recipe already exists with name: Pizza Margherita")
+        @JsonProperty("message") String message) implements Serializable {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+
+    public static RecipeImportItemDto created(int index, String name, Long id) {
+        return new RecipeImportItemDto(index, name, id, Status.CREATED, null);
+    }
+
+    public static RecipeImportItemDto rejected(int index, String name, Status status, String message) {
+        return new RecipeImportItemDto(index, name, null, status, message);
+    }
+}
@@ -0,0 +1,28 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Report returned by a bulk import, with one item per submitted recipe in submission order.
+ */
+@Schema(description = "Result of a bulk recipe import")
+public record RecipeImportResultDto(
+        @Schema(example = "998")
+        @JsonProperty("created") int created,
+
+        @Schema(example = "2")
+        @JsonProperty("rejected") int rejected,
+
+        @JsonProperty("items") List<RecipeImportItemDto> items) implements Serializable {
+
+    public static RecipeImportResultDto of(List<RecipeImportItemDto> items) {
+        int created = (int) items.stream()
+                .filter(item -> item.status() == RecipeImportItemDto.Status.CREATED)
+                .count();
+        return new RecipeImportResultDto(created, items.size() - created, items);
+    }
+}
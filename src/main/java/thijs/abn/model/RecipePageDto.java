@@ -0,0 +1,12 @@
+package thijs.abn.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of recipes in ascending id order.
+ *
+ * @param nextAfter cursor for the next page, {@code null} on the last page
+ */
+public record RecipePageDto(List<RecipeDto> recipes, Long nextAfter) implements Serializable {
+}
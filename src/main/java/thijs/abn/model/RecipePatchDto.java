@@ -0,0 +1,35 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * Partial update of a {@link thijs.abn.entity.Recipe}. Fields that are {@code null} are left unchanged.
+ * {@code ingredients} replaces the ingredient list; {@code removedIngredients} and {@code addedIngredients} change
+ * single ingredients and are applied after it, removals first. Every removed ingredient has to be one the recipe has,
+ * and a patch that changes the ingredients has to leave at least one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Partial update of a recipe")
+public record RecipePatchDto(
+        @Schema(example = "Pizza Margherita")
+        @JsonProperty("name") @Size(min = 2, max = 30) String name,
+        @Schema(example = "true")
+        @JsonProperty("isVegetarian") Boolean isVegetarian,
+        @Schema(example = "4")
+        @JsonProperty("servings") @Positive Integer servings,
+        @Schema(example = "Spread the tomato sauce on the dough and bake for 10 minutes.")
+        @JsonProperty("instructions") String instructions,
+        @Schema(example = "[{\"name\": \"Tomato Sauce\"}, {\"name\": \"Mozzarella Cheese\"}]")
+        @JsonProperty("ingredients") Set<IngredientDto> ingredients,
+        @Schema(example = "[{\"name\": \"Basil\"}]")
+        @JsonProperty("addedIngredients") Set<IngredientDto> addedIngredients,
+        @Schema(example = "[{\"name\": \"Oregano\"}]")
+        @JsonProperty("removedIngredients") Set<IngredientDto> removedIngredients) implements Serializable {
+}
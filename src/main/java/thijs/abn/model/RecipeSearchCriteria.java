@@ -0,0 +1,64 @@
+package thijs.abn.model;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Filters accepted by {@link thijs.abn.service.RecipeService#searchRecipes(RecipeSearchCriteria)}. Every filter is
+ * optional; {@code null} means the filter is not applied.
+ */
+public record RecipeSearchCriteria(Boolean isVegetarian, Integer minServings, Integer maxServings,
+                                   List<String> includedIngredients, List<String> excludedIngredients,
+                                   String queryInstructions, IngredientMatch ingredientMatch) {
+
+    /**
+     * How {@code includedIngredients} are combined.
+     */
+    public enum IngredientMatch {
+        /**
+         * The recipe contains at least one of the included ingredients.
+         */
+        ANY,
+        /**
+         * The recipe contains every included ingredient.
+         */
+        ALL
+    }
+
+    public RecipeSearchCriteria {
+        if (ingredientMatch == null) {
+            ingredientMatch = IngredientMatch.ANY;
+        }
+    }
+
+    /**
+     * Returns the same filters in a canonical form: ingredient names lower-cased, de-duplicated and sorted, the
+     * instruction query lower-cased and empty filters replaced by {@code null}. Criteria that select the same recipes
+     * normalise to equal values, so the result can be used as a cache key.
+     */
+    public RecipeSearchCriteria normalized() {
+        List<String> included = normalize(includedIngredients);
+        return new RecipeSearchCriteria(isVegetarian, minServings, maxServings, included, normalize(excludedIngredients),
+                hasQueryInstructions() ? queryInstructions.toLowerCase(Locale.ROOT) : null,
+                included != null && included.size() > 1 ? ingredientMatch : IngredientMatch.ANY);
+    }
+
+    private static List<String> normalize(List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return null;
+        }
+        return names.stream().map(name -> name.toLowerCase(Locale.ROOT)).distinct().sorted().toList();
+    }
+
+    public boolean hasIncludedIngredients() {
+        return includedIngredients != null && !includedIngredients.isEmpty();
+    }
+
+    public boolean hasExcludedIngredients() {
+        return excludedIngredients != null && !excludedIngredients.isEmpty();
+    }
+
+    public boolean hasQueryInstructions() {
+        return queryInstructions != null && !queryInstructions.isBlank();
+    }
+}
@@ -0,0 +1,24 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Search results together with their facets, returned instead of a plain list when facets are requested.
+ *
+ * @param nextAfter cursor for the next page, {@code null} on the last page or when the results are not paged
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Recipes matching a search with their facets")
+public record RecipeSearchResultDto(
+        @JsonProperty("recipes") List<RecipeDto> recipes,
+
+        @Schema(example = "1234", description = "Pass as after to fetch the next page")
+        @JsonProperty("nextAfter") Long nextAfter,
+
+        @JsonProperty("facets") RecipeFacetsDto facets) implements Serializable {
+}
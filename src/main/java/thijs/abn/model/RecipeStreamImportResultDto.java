@@ -0,0 +1,32 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Report of a streaming import. Only rejected recipes are listed, so the report stays small for very large uploads.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of a streaming recipe import")
+public record RecipeStreamImportResultDto(
+        @Schema(example = "50000", description = "Number of records committed, including skipped ones; pass it as skip to resume")
+        @JsonProperty("committed") long committed,
+
+        @Schema(example = "0", description = "Number of leading records skipped because they were committed by an earlier upload")
+        @JsonProperty("skipped") long skipped,
+
+        @Schema(example = "49990")
+        @JsonProperty("created") long created,
+
+        @Schema(example = "10")
+        @JsonProperty("rejected") long rejected,
+
+        @JsonProperty("rejections") List<RecipeImportItemDto> rejections,
+
+        @Schema(example = "Unexpected end-of-input", description = "Present when the upload was aborted before the end of the stream")
+        @JsonProperty("error") String error) implements Serializable {
+}
@@ -0,0 +1,69 @@
+package thijs.abn.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+
+/**
+ * Progress of a create, update, patch or delete that was accepted by the asynchronous write queue.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Progress of a queued recipe write")
+public record RecipeWriteStatusDto(
+        @Schema(example = "5f0c8a3e-3d5b-4c0e-9f43-0c1f6c2b9a71")
+        @JsonProperty("id") String id,
+
+        @Schema(example = "DONE")
+        @JsonProperty("status") Status status,
+
+        @Schema(example = "42", description = "Id of the written recipe, known once a create is done")
+        @JsonProperty("recipeId") Long recipeId,
+
+        @Schema(example = "Recipe already exists with name: Pizza Margherita")
+        @JsonProperty("message") String message) implements Serializable {
+
+    public enum Status {
+        /**
+         * Accepted and journaled, not written yet.
+         */
+        QUEUED,
+        /**
+         * Committed to the database.
+         */
+        DONE,
+        /**
+         * Replaced by a later unconditional update of the same recipe before it was written.
+         */
+        SUPERSEDED,
+        /**
+         * A conditional write whose recipe no longer had the version of its If-Match when it was written.
+         */
+        PRECONDITION_FAILED,
+        /**
+         * Rejected when it was written; see the message.
+         */
+        FAILED
+    }
+
+    public static RecipeWriteStatusDto queued(String id, Long recipeId) {
+        return new RecipeWriteStatusDto(id, Status.QUEUED, recipeId, null);
+    }
+
+    public static RecipeWriteStatusDto done(String id, Long recipeId) {
+        return new RecipeWriteStatusDto(id, Status.DONE, recipeId, null);
+    }
+
+    public static RecipeWriteStatusDto superseded(String id, Long recipeId) {
+        return new RecipeWriteStatusDto(id, Status.SUPERSEDED, recipeId, null);
+    }
+
+    public static RecipeWriteStatusDto preconditionFailed(String id, Long recipeId, String message) {
+        return new RecipeWriteStatusDto(id, Status.PRECONDITION_FAILED, recipeId, message);
+    }
+
+    public static RecipeWriteStatusDto failed(String id, Long recipeId, String message) {
+        return new RecipeWriteStatusDto(id, Status.FAILED, recipeId, message);
+    }
+}
@@ -1,15 +1,36 @@
 package thijs.abn.repository;
 
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import thijs.abn.entity.Ingredient;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
 
     Optional<Ingredient> findByName(String name);
+
+    List<Ingredient> findByNameIn(Collection<String> names);
+
+    // Rows of [id, name, recipe count] for every ingredient, used to build the in-memory suggestion trie
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT i.id, i.name, COUNT(r.id) FROM Ingredient i LEFT JOIN i.recipes r GROUP BY i.id, i.name")
+    Stream<Object[]> streamRecipeCounts();
+
+    // Rows of [id, name, recipe count] for the ingredients whose name matches the LIKE pattern, most used first
+    @Query("SELECT i.id, i.name, COUNT(r.id) FROM Ingredient i LEFT JOIN i.recipes r WHERE i.name LIKE :pattern ESCAPE '\\' " +
+            "GROUP BY i.id, i.name ORDER BY COUNT(r.id) DESC, i.name")
+    List<Object[]> findRecipeCountsByNameLike(@Param("pattern") String pattern, Pageable pageable);
 }
@@ -1,22 +1,68 @@
 package thijs.abn.repository;
 
-import org.springframework.data.jpa.domain.Specification;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
-import org.springframework.data.jpa.repository.Query;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import thijs.abn.entity.Recipe;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-@Repository
-public interface RecipeRepository extends JpaRepository<Recipe, Long>, JpaSpecificationExecutor<Recipe> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
-    // Custom method to fetch all recipes along with their ingredients
-    @Query("SELECT r FROM Recipe r JOIN FETCH r.ingredients")
-    List<Recipe> findAllRecipesWithIngredients();
+@Repository
+public interface RecipeRepository extends JpaRepository<Recipe, Long>, JpaSpecificationExecutor<Recipe>, RecipeRepositoryCustom {
 
     Optional<Recipe> findByName(String name);
 
+    @Query("SELECT r.name FROM Recipe r WHERE r.name IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Query("SELECT r.id FROM Recipe r WHERE r.id > :after ORDER BY r.id")
+    List<Long> findIdsAfter(@Param("after") long after, Pageable pageable);
+
+    @Query("SELECT new thijs.abn.repository.RecipeRow(r.id, r.name, r.isVegetarian, r.servings, r.instructions, r.version) " +
+            "FROM Recipe r WHERE r.id IN :ids")
+    List<RecipeRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new thijs.abn.repository.RecipeRow(r.id, r.name, r.isVegetarian, r.servings, r.version) FROM Recipe r WHERE r.id IN :ids")
+    List<RecipeRow> findRowsWithoutInstructionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Rows of [recipe id, ingredient id, ingredient name] for the ingredients of the given recipes
+    @Query("SELECT r.id, i.id, i.name FROM Recipe r JOIN r.ingredients i WHERE r.id IN :ids")
+    List<Object[]> findIngredientNamesByRecipeIdIn(@Param("ids") Collection<Long> ids);
+
+    // Forward-only cursor over every recipe, used for the full catalogue export
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r FROM Recipe r ORDER BY r.id")
+    Stream<Recipe> streamAll();
+
+    // Rows of [id, isVegetarian, servings], used to build the in-memory search index
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.id, r.isVegetarian, r.servings FROM Recipe r")
+    Stream<Object[]> streamSearchAttributes();
+
+    // Rows of [id, name, instructions], used to build the in-memory full-text index
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.id, r.name, r.instructions FROM Recipe r")
+    Stream<Object[]> streamTextAttributes();
+
+    // One row of [count, sum of ids, sum of servings, vegetarian count], compared with the search read model
+    @Query("SELECT COUNT(r), SUM(r.id), SUM(r.servings), SUM(CASE WHEN r.isVegetarian = true THEN 1 ELSE 0 END) FROM Recipe r")
+    List<Object[]> summarise();
+
+    // One row of [count, checksum] of the recipe_ingredients links, compared with the search read model
+    @Query("SELECT COUNT(i), SUM(r.id * 31 + i.id) FROM Recipe r JOIN r.ingredients i")
+    List<Object[]> summariseIngredientLinks();
+
+    // Rows of [recipe id, ingredient id] for every recipe_ingredients link
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.id, i.id FROM Recipe r JOIN r.ingredients i")
+    Stream<Object[]> streamIngredientLinks();
+
 }
@@ -0,0 +1,29 @@
+package thijs.abn.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import thijs.abn.entity.Recipe;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface RecipeRepositoryCustom {
+
+    /**
+     * Returns the ids of at most {@code limit} recipes matching the specification with an id greater than
+     * {@code after}, in ascending id order. Only ids are selected, so the recipes can be loaded afterwards in one batch.
+     */
+    List<Long> findIds(Specification<Recipe> spec, Long after, int limit);
+
+    /**
+     * Counts the recipes matching the specification per value of the given attribute, with one grouped query.
+     */
+    Map<Object, Long> countBy(Specification<Recipe> spec, String attribute);
+
+    /**
+     * Returns rows of [ingredient id, ingredient name, number of recipes] for the at most {@code limit} ingredients
+     * occurring most often in the recipes matching the specification, most frequent first, leaving out the ingredients
+     * with the given names.
+     */
+    List<Object[]> findTopIngredients(Specification<Recipe> spec, Collection<String> skippedNames, int limit);
+}
@@ -0,0 +1,89 @@
+package thijs.abn.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import thijs.abn.entity.Ingredient;
+import thijs.abn.entity.Recipe;
+
+import java.util.*;
+
+public class RecipeRepositoryImpl implements RecipeRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public RecipeRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Recipe> spec, Long after, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Recipe> root = query.from(Recipe.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = spec.toPredicate(root, query, criteriaBuilder);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+        if (after != null) {
+            predicates.add(criteriaBuilder.greaterThan(root.get("id"), after));
+        }
+
+        query.select(root.get("id"))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(criteriaBuilder.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Map<Object, Long> countBy(Specification<Recipe> spec, String attribute) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+        Root<Recipe> root = query.from(Recipe.class);
+
+        Predicate filter = spec.toPredicate(root, query, criteriaBuilder);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.multiselect(root.get(attribute), criteriaBuilder.count(root))
+                .groupBy(root.get(attribute));
+
+        Map<Object, Long> counts = new HashMap<>();
+        for (Object[] row : entityManager.createQuery(query).getResultList()) {
+            counts.put(row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Object[]> findTopIngredients(Specification<Recipe> spec, Collection<String> skippedNames, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+        Root<Recipe> root = query.from(Recipe.class);
+        Join<Recipe, Ingredient> ingredient = root.join("ingredients");
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = spec.toPredicate(root, query, criteriaBuilder);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+        if (!skippedNames.isEmpty()) {
+            predicates.add(criteriaBuilder.not(ingredient.get("name").in(skippedNames)));
+        }
+
+        Expression<Long> recipes = criteriaBuilder.count(root);
+        query.multiselect(ingredient.get("id"), ingredient.get("name"), recipes)
+                .where(predicates.toArray(new Predicate[0]))
+                .groupBy(ingredient.get("id"), ingredient.get("name"))
+                .orderBy(criteriaBuilder.desc(recipes), criteriaBuilder.asc(ingredient.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,21 @@
+package thijs.abn.repository;
+
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+
+import java.util.Set;
+
+/**
+ * Columns of one recipe row, selected with a constructor expression so that read paths get plain values instead of
+ * managed entities. {@code instructions} is {@code null} when the query leaves the large instructions column out.
+ */
+public record RecipeRow(Long id, String name, boolean isVegetarian, int servings, String instructions, long version) {
+
+    public RecipeRow(Long id, String name, boolean isVegetarian, int servings, long version) {
+        this(id, name, isVegetarian, servings, null, version);
+    }
+
+    public RecipeDto toDto(Set<IngredientDto> ingredients) {
+        return new RecipeDto(id, name, isVegetarian, servings, instructions, ingredients, version);
+    }
+}
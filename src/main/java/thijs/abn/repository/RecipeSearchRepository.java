@@ -0,0 +1,43 @@
+package thijs.abn.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import thijs.abn.entity.RecipeSearchEntry;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RecipeSearchRepository extends JpaRepository<RecipeSearchEntry, Long>, RecipeSearchRepositoryCustom {
+
+    @Modifying
+    @Query("UPDATE RecipeSearchEntry e SET e.isVegetarian = :#{#entry.vegetarian}, e.servings = :#{#entry.servings}, " +
+            "e.instructions = :#{#entry.instructions} WHERE e.recipeId = :#{#entry.recipeId}")
+    int update(@Param("entry") RecipeSearchEntry entry);
+
+    @Modifying
+    @Query("DELETE FROM RecipeSearchEntry e WHERE e.recipeId = :recipeId")
+    int deleteByRecipeId(@Param("recipeId") Long recipeId);
+
+    @Modifying
+    @Query("DELETE FROM RecipeSearchIngredient i WHERE i.recipeId = :recipeId AND i.ingredientId IN :ingredientIds")
+    int deleteIngredients(@Param("recipeId") Long recipeId, @Param("ingredientIds") Collection<Long> ingredientIds);
+
+    @Modifying
+    @Query("DELETE FROM RecipeSearchIngredient i WHERE i.recipeId = :recipeId")
+    int deleteIngredientsByRecipeId(@Param("recipeId") Long recipeId);
+
+    @Modifying
+    @Query("DELETE FROM RecipeSearchIngredient i")
+    int deleteAllIngredients();
+
+    // Same summaries as RecipeRepository.summarise() and summariseIngredientLinks(), over the read model
+    @Query("SELECT COUNT(e), SUM(e.recipeId), SUM(e.servings), SUM(CASE WHEN e.isVegetarian = true THEN 1 ELSE 0 END) FROM RecipeSearchEntry e")
+    List<Object[]> summarise();
+
+    @Query("SELECT COUNT(i), SUM(i.recipeId * 31 + i.ingredientId) FROM RecipeSearchIngredient i")
+    List<Object[]> summariseIngredients();
+}
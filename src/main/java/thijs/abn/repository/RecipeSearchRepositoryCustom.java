@@ -0,0 +1,15 @@
+package thijs.abn.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import thijs.abn.entity.RecipeSearchEntry;
+
+import java.util.List;
+
+public interface RecipeSearchRepositoryCustom {
+
+    /**
+     * Returns the recipe ids of at most {@code limit} entries matching the specification with an id greater than
+     * {@code after}, in ascending id order.
+     */
+    List<Long> findRecipeIds(Specification<RecipeSearchEntry> spec, Long after, int limit);
+}
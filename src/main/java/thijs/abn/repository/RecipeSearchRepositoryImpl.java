@@ -0,0 +1,46 @@
+package thijs.abn.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import thijs.abn.entity.RecipeSearchEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecipeSearchRepositoryImpl implements RecipeSearchRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public RecipeSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Long> findRecipeIds(Specification<RecipeSearchEntry> spec, Long after, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<RecipeSearchEntry> root = query.from(RecipeSearchEntry.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = spec.toPredicate(root, query, criteriaBuilder);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+        if (after != null) {
+            predicates.add(criteriaBuilder.greaterThan(root.get("recipeId"), after));
+        }
+
+        query.select(root.get("recipeId"))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(criteriaBuilder.asc(root.get("recipeId")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
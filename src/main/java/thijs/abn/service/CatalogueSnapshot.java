@@ -0,0 +1,473 @@
+package thijs.abn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.entity.RecipeSearchEntry;
+import thijs.abn.index.FullTextIndex;
+import thijs.abn.index.IngredientFuzzyIndex;
+import thijs.abn.index.IngredientSuggestIndex;
+import thijs.abn.index.RecipeIndex;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binary copy of the whole catalogue, to bring up a fresh environment much faster than seeding it recipe by recipe.
+ * The snapshot carries the database ids, so restoring it needs no lookups: ingredients, recipes, their links and,
+ * when enabled, the search read model rows are inserted with plain JDBC batches, committed per batch by
+ * {@code recipes.seed.workers} threads, after which the id sequences are moved past the restored ids, the in-memory
+ * indexes are rebuilt and the recipe caches are emptied. The {@link RecipeWriteFence} is closed for the whole restore,
+ * so recipe writes are rejected until the restored catalogue is searchable.
+ * <p>
+ * On MySQL, with {@code recipes.seed.bulk-load-directory} set, each batch is written to tab-separated files in that
+ * directory instead and loaded with {@code LOAD DATA LOCAL INFILE}, with unique and foreign key checks off. Other
+ * databases always use JDBC batches; H2's {@code CSVREAD} is no faster than those.
+ * <p>
+ * The format is a {@link DataOutputStream}: a magic number and version, then tagged records, all ingredients before
+ * the recipes that link to them, and an end marker. A recipe record holds the ids of its ingredients.
+ */
+@Service
+public class CatalogueSnapshot {
+
+    private static final int MAGIC = 0x52435053; // "RCPS"
+    private static final int VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte INGREDIENT = 1;
+    private static final byte RECIPE = 2;
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int BATCH_SIZE = 10_000;
+
+    // Matches the allocationSize of the entity id generators
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readTransaction;
+    private final RecipeIndex recipeIndex;
+    private final FullTextIndex fullTextIndex;
+    private final IngredientSuggestIndex ingredientSuggestIndex;
+    private final IngredientFuzzyIndex ingredientFuzzyIndex;
+    private final RecipeSearchReadModel recipeSearchReadModel;
+    private final IngredientDictionary ingredientDictionary;
+    private final RecipeCacheInvalidator recipeCacheInvalidator;
+    private final RecipeWriteFence recipeWriteFence;
+    private final RecipeProperties recipeProperties;
+
+    private final Logger log = LoggerFactory.getLogger(CatalogueSnapshot.class);
+
+    @Autowired
+    public CatalogueSnapshot(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, RecipeIndex recipeIndex,
+                             FullTextIndex fullTextIndex, IngredientSuggestIndex ingredientSuggestIndex,
+                             IngredientFuzzyIndex ingredientFuzzyIndex, RecipeSearchReadModel recipeSearchReadModel,
+                             IngredientDictionary ingredientDictionary, RecipeCacheInvalidator recipeCacheInvalidator,
+                             RecipeWriteFence recipeWriteFence, RecipeProperties recipeProperties) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(PAGE_SIZE);
+        this.transaction = new TransactionTemplate(transactionManager);
+        // One consistent view of the catalogue, however long writing it takes
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.recipeIndex = recipeIndex;
+        this.fullTextIndex = fullTextIndex;
+        this.ingredientSuggestIndex = ingredientSuggestIndex;
+        this.ingredientFuzzyIndex = ingredientFuzzyIndex;
+        this.recipeSearchReadModel = recipeSearchReadModel;
+        this.ingredientDictionary = ingredientDictionary;
+        this.recipeCacheInvalidator = recipeCacheInvalidator;
+        this.recipeWriteFence = recipeWriteFence;
+        this.recipeProperties = recipeProperties;
+    }
+
+    /**
+     * Writes the catalogue to the stream and returns the number of recipes written. The stream is flushed but not
+     * closed.
+     */
+    public long write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        Long written;
+        try {
+            written = readTransaction.execute(status -> {
+                try {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    writeIngredients(out);
+                    long recipes = writeRecipes(out);
+                    out.writeByte(END);
+                    return recipes;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        log.info("Wrote a catalogue snapshot of {} recipes", written);
+        return written != null ? written : 0;
+    }
+
+    private void writeIngredients(DataOutputStream out) {
+        jdbcTemplate.query("SELECT id, name FROM ingredients ORDER BY id", row -> {
+            try {
+                out.writeByte(INGREDIENT);
+                out.writeLong(row.getLong(1));
+                out.writeUTF(row.getString(2));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private long writeRecipes(DataOutputStream out) throws IOException {
+        long count = 0;
+        long after = 0;
+        List<RecipeRecord> page;
+        do {
+            page = jdbcTemplate.query("SELECT id, name, is_vegetarian, servings, instructions FROM recipes"
+                            + " WHERE id > ? ORDER BY id LIMIT " + PAGE_SIZE,
+                    (row, rowNum) -> new RecipeRecord(row.getLong(1), row.getString(2), row.getBoolean(3), row.getInt(4),
+                            row.getString(5), new ArrayList<>()),
+                    after);
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<Long, RecipeRecord> byId = new HashMap<>();
+            page.forEach(recipe -> byId.put(recipe.id(), recipe));
+            jdbcTemplate.query("SELECT recipe_id, ingredient_id FROM recipe_ingredients WHERE recipe_id BETWEEN ? AND ?",
+                    row -> {
+                        byId.get(row.getLong(1)).ingredientIds().add(row.getLong(2));
+                    },
+                    page.get(0).id(), page.get(page.size() - 1).id());
+            for (RecipeRecord recipe : page) {
+                recipe.write(out);
+                count++;
+            }
+            after = page.get(page.size() - 1).id();
+        } while (page.size() == PAGE_SIZE);
+        return count;
+    }
+
+    /**
+     * Restores a snapshot into an empty catalogue and returns the number of recipes restored. When the restore fails
+     * the catalogue is emptied again, so it can simply be retried. Recipe writes are rejected while it runs.
+     *
+     * @throws IllegalStateException when the catalogue already holds ingredients or recipes
+     */
+    public long restore(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream, 1 << 16));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a catalogue snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported catalogue snapshot version " + version);
+        }
+        // Waits for running writes, so the emptiness check below sees every committed recipe
+        recipeWriteFence.close();
+        try {
+            return restoreFenced(in);
+        } finally {
+            recipeWriteFence.open();
+        }
+    }
+
+    private long restoreFenced(DataInputStream in) throws IOException {
+        Long existing = jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM recipes) + (SELECT COUNT(*) FROM ingredients)", Long.class);
+        if (existing != null && existing > 0) {
+            throw new IllegalStateException("A catalogue snapshot can only be restored into an empty database");
+        }
+
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        Path bulkLoadDirectory = bulkLoadDirectory(database);
+        int workers = Math.max(1, recipeProperties.getSeed().getWorkers());
+        AtomicInteger threads = new AtomicInteger();
+        // Batches commit independently and in parallel; at most two per worker wait, beyond that the reader inserts
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2),
+                runnable -> new Thread(runnable, "catalogue-restore-" + threads.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        long restored;
+        try {
+            restored = restore(in, database, bulkLoadDirectory, recipeSearchReadModel.isEnabled(), executor);
+        } catch (IOException | RuntimeException e) {
+            executor.shutdownNow();
+            awaitTermination(executor);
+            clear();
+            recipeCacheInvalidator.evictAll();
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+
+        // Every batch has committed; the rows were written without events, so nothing has updated the indexes or caches
+        recipeIndex.rebuild();
+        fullTextIndex.rebuild();
+        ingredientSuggestIndex.rebuild();
+        ingredientFuzzyIndex.rebuild();
+        ingredientDictionary.warmUp();
+        // After the indexes, so a search cannot cache a result from the indexes as they were before the restore
+        recipeCacheInvalidator.evictAll();
+        log.info("Restored a catalogue snapshot of {} recipes", restored);
+        return restored;
+    }
+
+    private long restore(DataInputStream in, String database, Path bulkLoadDirectory, boolean readModel,
+                         ExecutorService executor) throws IOException {
+        List<Future<?>> batches = new ArrayList<>();
+        List<Object[]> ingredients = new ArrayList<>(BATCH_SIZE);
+        Batch batch = new Batch();
+        long maxIngredientId = 0;
+        long maxRecipeId = 0;
+        long count = 0;
+
+        byte tag;
+        while ((tag = in.readByte()) != END) {
+            switch (tag) {
+                case INGREDIENT -> {
+                    long id = in.readLong();
+                    ingredients.add(new Object[]{id, in.readUTF()});
+                    maxIngredientId = Math.max(maxIngredientId, id);
+                    if (ingredients.size() == BATCH_SIZE) {
+                        insertIngredients(ingredients, bulkLoadDirectory);
+                    }
+                }
+                case RECIPE -> {
+                    // The links of every recipe batch need the ingredients committed first
+                    insertIngredients(ingredients, bulkLoadDirectory);
+                    RecipeRecord recipe = RecipeRecord.read(in);
+                    batch.add(recipe, readModel);
+                    maxRecipeId = Math.max(maxRecipeId, recipe.id());
+                    count++;
+                    if (batch.recipes.size() == BATCH_SIZE) {
+                        Batch full = batch;
+                        batches.add(executor.submit(() -> insert(full, bulkLoadDirectory)));
+                        batch = new Batch();
+                    }
+                }
+                default -> throw new IOException("Corrupt catalogue snapshot: unknown record " + tag);
+            }
+        }
+        insertIngredients(ingredients, bulkLoadDirectory);
+        if (!batch.recipes.isEmpty()) {
+            insert(batch, bulkLoadDirectory);
+        }
+        for (Future<?> future : batches) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Restore interrupted", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+            }
+        }
+
+        moveSequence(database, "ingredients_seq", maxIngredientId);
+        moveSequence(database, "recipes_seq", maxRecipeId);
+        return count;
+    }
+
+    private void insertIngredients(List<Object[]> ingredients, Path bulkLoadDirectory) {
+        if (!ingredients.isEmpty()) {
+            transaction.executeWithoutResult(status ->
+                    insertRows("ingredients", "id, name", ingredients, bulkLoadDirectory));
+            ingredients.clear();
+        }
+    }
+
+    private void insert(Batch batch, Path bulkLoadDirectory) {
+        transaction.executeWithoutResult(status -> {
+            if (bulkLoadDirectory != null) {
+                // The snapshot was written from a catalogue that satisfied them, and the target was empty
+                jdbcTemplate.execute("SET unique_checks = 0, foreign_key_checks = 0");
+            }
+            try {
+                insertRows("recipes", "id, name, is_vegetarian, servings, instructions, version", batch.recipes, bulkLoadDirectory);
+                insertRows("recipe_ingredients", "recipe_id, ingredient_id", batch.links, bulkLoadDirectory);
+                if (!batch.entries.isEmpty()) {
+                    insertRows("recipe_search", "recipe_id, is_vegetarian, servings, instructions", batch.entries, bulkLoadDirectory);
+                    insertRows("recipe_search_ingredients", "recipe_id, ingredient_id", batch.links, bulkLoadDirectory);
+                }
+            } finally {
+                if (bulkLoadDirectory != null) {
+                    // The connection goes back to the pool
+                    jdbcTemplate.execute("SET unique_checks = 1, foreign_key_checks = 1");
+                }
+            }
+        });
+    }
+
+    private void insertRows(String table, String columns, List<Object[]> rows, Path bulkLoadDirectory) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (bulkLoadDirectory == null) {
+            String placeholders = String.join(", ", Collections.nCopies(rows.get(0).length, "?"));
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")", rows);
+            return;
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile(bulkLoadDirectory, table + "-", ".tsv");
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (Object[] row : rows) {
+                    writer.write(loadDataLine(row));
+                }
+            }
+            // Connector/J reads the file and sends it over the connection, so the server needs no access to it
+            String path = file.toAbsolutePath().toString().replace('\\', '/').replace("'", "''");
+            jdbcTemplate.execute("LOAD DATA LOCAL INFILE '" + path + "' INTO TABLE " + table
+                    + " CHARACTER SET utf8mb4 (" + columns + ")");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete bulk load file {}", file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Formats a row for {@code LOAD DATA} with its default field and line terminators and escape character.
+     */
+    static String loadDataLine(Object[] row) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            Object value = row[i];
+            if (value == null) {
+                line.append("\\N");
+            } else if (value instanceof Boolean bool) {
+                line.append(bool ? '1' : '0');
+            } else if (value instanceof String text) {
+                for (int j = 0; j < text.length(); j++) {
+                    char c = text.charAt(j);
+                    switch (c) {
+                        case '\\' -> line.append("\\\\");
+                        case '\t' -> line.append("\\t");
+                        case '\n' -> line.append("\\n");
+                        case '\r' -> line.append("\\r");
+                        case '\0' -> line.append("\\0");
+                        default -> line.append(c);
+                    }
+                }
+            } else {
+                line.append(value);
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    private Path bulkLoadDirectory(String database) throws IOException {
+        Path directory = recipeProperties.getSeed().getBulkLoadDirectory();
+        if (directory == null) {
+            return null;
+        }
+        if (!"MySQL".equals(database)) {
+            log.info("Bulk loading is only supported on MySQL, restoring into {} with JDBC batches", database);
+            return null;
+        }
+        Files.createDirectories(directory);
+        return directory;
+    }
+
+    private void clear() {
+        log.warn("Catalogue restore failed, emptying the catalogue again");
+        for (String table : List.of("recipe_search_ingredients", "recipe_search", "recipe_ingredients", "recipes", "ingredients")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The pooled optimizer hands out the block of ids up to the value it reads, as in V6__pooled_id_sequences
+    private void moveSequence(String database, String sequence, long maxId) {
+        long next = maxId + ID_ALLOCATION_SIZE;
+        switch (database) {
+            case "H2" -> jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+            case "MySQL" -> jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ?", next);
+            default -> throw new IllegalStateException("Cannot move sequence " + sequence + " on " + database);
+        }
+    }
+
+    // The rows of up to BATCH_SIZE recipes, inserted in one transaction
+    private static class Batch {
+        final List<Object[]> recipes = new ArrayList<>(BATCH_SIZE);
+        final List<Object[]> links = new ArrayList<>();
+        final List<Object[]> entries = new ArrayList<>();
+
+        void add(RecipeRecord recipe, boolean readModel) {
+            recipes.add(new Object[]{recipe.id(), recipe.name(), recipe.vegetarian(), recipe.servings(), recipe.instructions(), 0L});
+            recipe.ingredientIds().forEach(ingredientId -> links.add(new Object[]{recipe.id(), ingredientId}));
+            if (readModel) {
+                RecipeSearchEntry entry = new RecipeSearchEntry(recipe.id(), recipe.vegetarian(), recipe.servings(),
+                        recipe.instructions());
+                entries.add(new Object[]{entry.getRecipeId(), entry.isVegetarian(), entry.getServings(), entry.getInstructions()});
+            }
+        }
+    }
+
+    private record RecipeRecord(long id, String name, boolean vegetarian, int servings, String instructions,
+                                List<Long> ingredientIds) {
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(RECIPE);
+            out.writeLong(id);
+            out.writeUTF(name);
+            out.writeBoolean(vegetarian);
+            out.writeInt(servings);
+            // Instructions may exceed the 64 KB limit of writeUTF
+            byte[] text = instructions.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+            out.writeInt(ingredientIds.size());
+            for (long ingredientId : ingredientIds) {
+                out.writeLong(ingredientId);
+            }
+        }
+
+        static RecipeRecord read(DataInputStream in) throws IOException {
+            long id = in.readLong();
+            String name = in.readUTF();
+            boolean vegetarian = in.readBoolean();
+            int servings = in.readInt();
+            byte[] text = new byte[in.readInt()];
+            in.readFully(text);
+            int ingredientCount = in.readInt();
+            List<Long> ingredientIds = new ArrayList<>(ingredientCount);
+            for (int i = 0; i < ingredientCount; i++) {
+                ingredientIds.add(in.readLong());
+            }
+            return new RecipeRecord(id, name, vegetarian, servings, new String(text, StandardCharsets.UTF_8), ingredientIds);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package thijs.abn.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import thijs.abn.config.RecipeProperties;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Actuator endpoint writing a {@link CatalogueSnapshot} to {@code recipes.seed.snapshot}, for fresh environments to
+ * restore on start-up: {@code POST /actuator/cataloguesnapshot}.
+ */
+@Component
+@Endpoint(id = "cataloguesnapshot")
+public class CatalogueSnapshotEndpoint {
+
+    private final CatalogueSnapshot catalogueSnapshot;
+    private final RecipeProperties recipeProperties;
+
+    @Autowired
+    public CatalogueSnapshotEndpoint(CatalogueSnapshot catalogueSnapshot, RecipeProperties recipeProperties) {
+        this.catalogueSnapshot = catalogueSnapshot;
+        this.recipeProperties = recipeProperties;
+    }
+
+    @WriteOperation
+    public Map<String, Object> write() throws IOException {
+        Path path = recipeProperties.getSeed().getSnapshot();
+        if (path == null) {
+            throw new IllegalStateException("No snapshot path configured in recipes.seed.snapshot");
+        }
+        if (path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+        // Written next to the target and moved into place, so a restore never reads a half-written snapshot
+        Path written = path.resolveSibling(path.getFileName() + ".tmp");
+        long recipes;
+        try (OutputStream outputStream = Files.newOutputStream(written)) {
+            recipes = catalogueSnapshot.write(outputStream);
+        }
+        Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Map.of("recipes", recipes, "path", path.toString());
+    }
+}
@@ -0,0 +1,234 @@
+package thijs.abn.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.entity.Ingredient;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory dictionary of lower-cased ingredient names to ingredient ids, sitting in front of
+ * {@link IngredientRepository}. Missing ingredients are created in the caller's transaction, so a write uses a single
+ * connection and its new ingredients roll back with it; they are only added to the dictionary once that transaction
+ * commits. When two writers create the same ingredient concurrently, the loser hits the unique constraint on
+ * {@code ingredients.name}, which fails its transaction, so callers retry the whole write. Outside a transaction,
+ * missing ingredients are created in one of their own, and the loser re-reads the winner's row.
+ * <p>
+ * The dictionary holds at most {@code recipes.ingredient-dictionary.max-size} names and evicts the oldest entries first.
+ */
+@Component
+public class IngredientDictionary {
+
+    private final IngredientRepository ingredientRepository;
+    private final TransactionTemplate transaction;
+    private final int maxSize;
+    private final boolean warmUp;
+
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+    // Names that matched no ingredient when last looked up
+    private final Cache<String, Boolean> absent;
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final Logger log = LoggerFactory.getLogger(IngredientDictionary.class);
+
+    @Autowired
+    public IngredientDictionary(IngredientRepository ingredientRepository, PlatformTransactionManager transactionManager,
+                                RecipeProperties recipeProperties) {
+        this.ingredientRepository = ingredientRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxSize = Math.max(1, recipeProperties.getIngredientDictionary().getMaxSize());
+        this.warmUp = recipeProperties.getIngredientDictionary().isWarmUp();
+        this.absent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(recipeProperties.getIngredientDictionary().getMissTimeToLive())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void warmUp() {
+        if (!warmUp) {
+            return;
+        }
+        ingredientRepository.findAll(PageRequest.of(0, maxSize))
+                .forEach(ingredient -> put(ingredient.getName(), ingredient.getId()));
+        log.info("Ingredient dictionary warmed up with {} names", ids.size());
+    }
+
+    /**
+     * Looks up the id of an existing ingredient without creating it. A name that matches no ingredient is remembered for
+     * {@code recipes.ingredient-dictionary.miss-time-to-live}, and counts as a hit while it is.
+     */
+    public Optional<Long> find(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Long id = ids.get(key);
+        if (id != null || absent.getIfPresent(key) != null) {
+            hits.increment();
+            return Optional.ofNullable(id);
+        }
+        misses.increment();
+        Optional<Long> found = ingredientRepository.findByName(key).map(Ingredient::getId);
+        if (found.isPresent()) {
+            put(key, found.get());
+        } else {
+            absent.put(key, Boolean.TRUE);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the id of every given ingredient name, creating the ingredients that do not exist yet. Names that are not
+     * cached are resolved with a single query. Inside a transaction, a concurrently created name fails that transaction
+     * with a {@link DataIntegrityViolationException}.
+     */
+    public Map<String, Long> resolve(Collection<String> names) {
+        Map<String, Long> resolved = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String name : names) {
+            String key = name.toLowerCase(Locale.ROOT);
+            Long id = ids.get(key);
+            if (id != null) {
+                hits.increment();
+                resolved.put(key, id);
+            } else if (!resolved.containsKey(key) && missing.add(key)) {
+                misses.increment();
+            }
+        }
+        if (missing.isEmpty()) {
+            return resolved;
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            Map<String, Long> loaded = loadOrCreate(missing);
+            // Until the caller commits, the new ids only exist in its transaction
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    loaded.forEach(IngredientDictionary.this::put);
+                }
+            });
+            resolved.putAll(loaded);
+            return resolved;
+        }
+
+        Map<String, Long> loaded;
+        try {
+            loaded = transaction.execute(status -> loadOrCreate(missing));
+        } catch (DataIntegrityViolationException e) {
+            // Another writer created one of the names first; resolve them one by one so only the conflicting ones retry
+            log.debug("Concurrent ingredient creation detected, resolving {} names individually", missing.size());
+            loaded = new HashMap<>();
+            for (String name : missing) {
+                loaded.put(name, resolveSingle(name));
+            }
+        }
+        loaded.forEach(this::put);
+        resolved.putAll(loaded);
+        return resolved;
+    }
+
+    /**
+     * Returns the names of the given ingredients, with one query.
+     */
+    public Map<Long, String> findNames(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return ingredientRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Ingredient::getId, Ingredient::getName));
+    }
+
+    public Long resolve(String name) {
+        return resolve(List.of(name)).get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Creates a detached {@link Ingredient} carrying only the id and name, suitable for linking to a recipe without
+     * loading the ingredient.
+     */
+    public static Ingredient reference(String name, Long id) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setId(id);
+        ingredient.setName(name);
+        return ingredient;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private Map<String, Long> loadOrCreate(Set<String> names) {
+        Map<String, Long> loaded = ingredientRepository.findByNameIn(names).stream()
+                .collect(Collectors.toMap(Ingredient::getName, Ingredient::getId));
+        List<Ingredient> newIngredients = names.stream()
+                .filter(name -> !loaded.containsKey(name))
+                .map(name -> reference(name, null))
+                .collect(Collectors.toList());
+        if (!newIngredients.isEmpty()) {
+            ingredientRepository.saveAllAndFlush(newIngredients)
+                    .forEach(ingredient -> loaded.put(ingredient.getName(), ingredient.getId()));
+        }
+        return loaded;
+    }
+
+    private Long resolveSingle(String name) {
+        try {
+            return transaction.execute(status -> loadOrCreate(Set.of(name)).get(name));
+        } catch (DataIntegrityViolationException e) {
+            return transaction.execute(status -> ingredientRepository.findByName(name)
+                    .map(Ingredient::getId)
+                    .orElseThrow(() -> e));
+        }
+    }
+
+    private void put(String name, Long id) {
+        absent.invalidate(name);
+        if (ids.put(name, id) != null) {
+            return;
+        }
+        insertionOrder.offer(name);
+        while (ids.size() > maxSize) {
+            String eldest = insertionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            if (ids.remove(eldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+}
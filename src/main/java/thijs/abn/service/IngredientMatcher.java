@@ -0,0 +1,63 @@
+package thijs.abn.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import thijs.abn.index.IngredientFuzzyIndex;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the ingredient names of search filters. A name of an existing ingredient stands for that ingredient only;
+ * a name matching no ingredient stands for the closest ingredient names from {@link IngredientFuzzyIndex} once it is
+ * built, so a misspelled filter still selects the intended recipes.
+ */
+@Component
+public class IngredientMatcher {
+
+    private final IngredientDictionary ingredientDictionary;
+    private final IngredientFuzzyIndex ingredientFuzzyIndex;
+
+    @Autowired
+    public IngredientMatcher(IngredientDictionary ingredientDictionary, IngredientFuzzyIndex ingredientFuzzyIndex) {
+        this.ingredientDictionary = ingredientDictionary;
+        this.ingredientFuzzyIndex = ingredientFuzzyIndex;
+    }
+
+    /**
+     * Returns the names of the ingredients the term stands for by id, empty when it matches no ingredient.
+     */
+    public Map<Long, String> match(String term) {
+        String name = term.toLowerCase(Locale.ROOT);
+        Long id = ingredientDictionary.find(name).orElse(null);
+        if (id != null) {
+            return Map.of(id, name);
+        }
+        return ingredientFuzzyIndex.isReady() ? ingredientFuzzyIndex.match(name) : Map.of();
+    }
+
+    /**
+     * Returns the names the term stands for, or the lower-cased term itself when it matches no ingredient, for
+     * queries that compare names.
+     */
+    public List<String> matchNames(String term) {
+        if (!ingredientFuzzyIndex.isReady()) {
+            return List.of(term.toLowerCase(Locale.ROOT));
+        }
+        Map<Long, String> matches = match(term);
+        return matches.isEmpty() ? List.of(term.toLowerCase(Locale.ROOT)) : List.copyOf(matches.values());
+    }
+
+    /**
+     * Returns the ids of the ingredients any of the terms stands for.
+     */
+    public Set<Long> matchAll(Collection<String> terms) {
+        Set<Long> ids = new HashSet<>();
+        terms.forEach(term -> ids.addAll(match(term).keySet()));
+        return ids;
+    }
+}
@@ -0,0 +1,47 @@
+package thijs.abn.service;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import thijs.abn.index.IngredientSuggestIndex;
+import thijs.abn.model.IngredientSuggestionDto;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.List;
+import java.util.Locale;
+
+@Service
+@Timed(value = "recipes.service", histogram = true)
+public class IngredientService {
+
+    private final IngredientRepository ingredientRepository;
+    private final IngredientSuggestIndex ingredientSuggestIndex;
+
+    @Autowired
+    public IngredientService(IngredientRepository ingredientRepository, IngredientSuggestIndex ingredientSuggestIndex) {
+        this.ingredientRepository = ingredientRepository;
+        this.ingredientSuggestIndex = ingredientSuggestIndex;
+    }
+
+    /**
+     * Returns the ingredients whose name starts with the prefix, ignoring case, used in most recipes first. Answered
+     * from {@link IngredientSuggestIndex} once it is built, otherwise with a grouped SQL query.
+     */
+    @Transactional(readOnly = true)
+    public List<IngredientSuggestionDto> suggestIngredients(String prefix, Integer limit) {
+        int maxResults = ingredientSuggestIndex.maxResults();
+        int size = limit == null || limit <= 0 ? maxResults : Math.min(limit, maxResults);
+        if (ingredientSuggestIndex.isReady()) {
+            return ingredientSuggestIndex.suggest(prefix, size);
+        }
+        String pattern = prefix.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return ingredientRepository.findRecipeCountsByNameLike(pattern, PageRequest.of(0, size)).stream()
+                .map(row -> new IngredientSuggestionDto((Long) row[0], (String) row[1], ((Number) row[2]).longValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,279 @@
+package thijs.abn.service;
+
+import io.r2dbc.spi.Readable;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.entity.Ingredient;
+import thijs.abn.entity.Recipe;
+import thijs.abn.exception.ResourceNotFoundException;
+import thijs.abn.index.FullTextIndex;
+import thijs.abn.index.IngredientFuzzyIndex;
+import thijs.abn.index.RecipeIndex;
+import thijs.abn.mapper.RecipeMapper;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking read side of the recipe API on R2DBC. Recipes are streamed from the database in id order and their
+ * ingredients are loaded per chunk of {@link #CHUNK_SIZE} recipes, so demand from a slow client propagates back to the
+ * database query instead of buffering the whole result. Search uses the same in-memory indexes as {@link RecipeService}
+ * when they are ready and an equivalent SQL query otherwise; either way misspelled ingredient filters stand for the
+ * closest ingredient names, as in v1. The rows are mapped with the shared {@link RecipeMapper}.
+ */
+@Service
+public class ReactiveRecipeService {
+
+    static final int CHUNK_SIZE = 250;
+
+    private static final String RECIPE_COLUMNS = "r.id, r.name, r.is_vegetarian, r.servings, r.instructions, r.version";
+
+    private final DatabaseClient databaseClient;
+    private final RecipeMapper recipeMapper;
+    private final RecipeProperties recipeProperties;
+    private final RecipeIndex recipeIndex;
+    private final FullTextIndex fullTextIndex;
+    private final IngredientFuzzyIndex ingredientFuzzyIndex;
+
+    @Autowired
+    public ReactiveRecipeService(DatabaseClient databaseClient, RecipeMapper recipeMapper, RecipeProperties recipeProperties,
+                                 RecipeIndex recipeIndex, FullTextIndex fullTextIndex, IngredientFuzzyIndex ingredientFuzzyIndex) {
+        this.databaseClient = databaseClient;
+        this.recipeMapper = recipeMapper;
+        this.recipeProperties = recipeProperties;
+        this.recipeIndex = recipeIndex;
+        this.fullTextIndex = fullTextIndex;
+        this.ingredientFuzzyIndex = ingredientFuzzyIndex;
+    }
+
+    /**
+     * Streams the recipes with an id greater than {@code after} in ascending id order; all of them when {@code limit}
+     * is {@code null}, otherwise at most {@code limit} capped at the maximum page size.
+     */
+    public Flux<RecipeDto> findRecipes(Long after, Integer limit) {
+        String sql = "SELECT " + RECIPE_COLUMNS + " FROM recipes r WHERE r.id > :after ORDER BY r.id";
+        DatabaseClient.GenericExecuteSpec spec;
+        if (limit != null) {
+            spec = databaseClient.sql(sql + " LIMIT :limit")
+                    .bind("limit", Math.max(1, Math.min(limit, recipeProperties.getPagination().getMaxLimit())));
+        } else {
+            spec = databaseClient.sql(sql);
+        }
+        return withIngredients(spec.bind("after", after != null ? after : 0L).map(ReactiveRecipeService::recipe).all());
+    }
+
+    public Mono<RecipeDto> getRecipe(Long recipeId) {
+        return withIngredients(databaseClient.sql("SELECT " + RECIPE_COLUMNS + " FROM recipes r WHERE r.id = :id")
+                .bind("id", recipeId)
+                .map(ReactiveRecipeService::recipe)
+                .all())
+                .next()
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Recipe not found with id: " + recipeId)));
+    }
+
+    /**
+     * Streams the recipes matching the criteria with the semantics of {@link RecipeService#searchRecipes}: ranked by
+     * relevance when the full-text index answers an instructions query, otherwise in ascending id order.
+     */
+    public Flux<RecipeDto> searchRecipes(RecipeSearchCriteria criteria) {
+        if (!recipeIndex.isReady()) {
+            return findIngredientIds(filterNames(criteria)).flatMapMany(ids -> searchSql(criteria, ids));
+        }
+        return searchIndex(criteria).flatMapMany(matches -> {
+            if (!criteria.hasQueryInstructions()) {
+                return findByIds(matches.toArray(), null);
+            }
+            if (fullTextIndex.isReady()) {
+                long[] ids = fullTextIndex.search(criteria.queryInstructions(), matches);
+                if (ids != null) {
+                    return findByIds(ids, null);
+                }
+            }
+            return findByIds(matches.toArray(), criteria.queryInstructions());
+        });
+    }
+
+    private Mono<Roaring64Bitmap> searchIndex(RecipeSearchCriteria criteria) {
+        return findIngredientIds(filterNames(criteria)).map(ids -> {
+            List<Set<Long>> included = criteria.hasIncludedIngredients()
+                    ? criteria.includedIngredients().stream()
+                    .map(name -> match(ids, name))
+                    .collect(Collectors.toList())
+                    : null;
+            Set<Long> excluded = criteria.hasExcludedIngredients()
+                    ? criteria.excludedIngredients().stream()
+                    .flatMap(name -> match(ids, name).stream())
+                    .collect(Collectors.toSet())
+                    : null;
+            return recipeIndex.search(criteria.isVegetarian(), criteria.minServings(), criteria.maxServings(),
+                    included, criteria.ingredientMatch(), excluded);
+        });
+    }
+
+    private static Set<String> filterNames(RecipeSearchCriteria criteria) {
+        Set<String> names = new HashSet<>();
+        if (criteria.hasIncludedIngredients()) {
+            criteria.includedIngredients().forEach(name -> names.add(name.toLowerCase(Locale.ROOT)));
+        }
+        if (criteria.hasExcludedIngredients()) {
+            criteria.excludedIngredients().forEach(name -> names.add(name.toLowerCase(Locale.ROOT)));
+        }
+        return names;
+    }
+
+    /**
+     * The ingredient of that name, or the closest names from the in-memory fuzzy index like {@link IngredientMatcher}.
+     */
+    private Set<Long> match(Map<String, Long> ids, String name) {
+        Long id = ids.get(name.toLowerCase(Locale.ROOT));
+        if (id != null) {
+            return Set.of(id);
+        }
+        return ingredientFuzzyIndex.isReady() ? ingredientFuzzyIndex.match(name).keySet() : Set.of();
+    }
+
+    /**
+     * The names a filter stands for in SQL, like {@link IngredientMatcher#matchNames}: the name itself when it is an
+     * ingredient or nothing is close to it, otherwise the closest names.
+     */
+    private List<String> matchNames(Map<String, Long> ids, String name) {
+        String lowercaseName = name.toLowerCase(Locale.ROOT);
+        if (ids.containsKey(lowercaseName) || !ingredientFuzzyIndex.isReady()) {
+            return List.of(lowercaseName);
+        }
+        Map<Long, String> matches = ingredientFuzzyIndex.match(lowercaseName);
+        return matches.isEmpty() ? List.of(lowercaseName) : List.copyOf(matches.values());
+    }
+
+    private Mono<Map<String, Long>> findIngredientIds(Set<String> names) {
+        if (names.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return databaseClient.sql("SELECT id, name FROM ingredients WHERE name IN (:names)")
+                .bind("names", names)
+                .map(row -> Map.entry(row.get("name", String.class), row.get("id", Long.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Streams the given recipes in the order of the ids, keeping only those whose instructions contain
+     * {@code instructionsQuery} when it is not {@code null}.
+     */
+    private Flux<RecipeDto> findByIds(long[] ids, String instructionsQuery) {
+        String sql = "SELECT " + RECIPE_COLUMNS + " FROM recipes r WHERE r.id IN (:ids)"
+                + (instructionsQuery != null ? " AND LOWER(r.instructions) LIKE :instructions" : "");
+        Flux<Recipe> recipes = Flux.range(0, (ids.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                .map(chunk -> Arrays.stream(ids, chunk * CHUNK_SIZE, Math.min((chunk + 1) * CHUNK_SIZE, ids.length)).boxed().toList())
+                .concatMap(chunk -> {
+                    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("ids", chunk);
+                    if (instructionsQuery != null) {
+                        spec = spec.bind("instructions", "%" + instructionsQuery.toLowerCase(Locale.ROOT) + "%");
+                    }
+                    return spec.map(ReactiveRecipeService::recipe).all()
+                            .collectMap(Recipe::getId)
+                            .flatMapIterable(loaded -> chunk.stream().map(loaded::get).filter(Objects::nonNull).toList());
+                }, 1);
+        return withIngredients(recipes);
+    }
+
+    private Flux<RecipeDto> searchSql(RecipeSearchCriteria criteria, Map<String, Long> ingredientIds) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(RECIPE_COLUMNS).append(" FROM recipes r WHERE 1 = 1");
+        Map<String, Object> bindings = new HashMap<>();
+
+        if (criteria.isVegetarian() != null) {
+            sql.append(" AND r.is_vegetarian = :vegetarian");
+            bindings.put("vegetarian", criteria.isVegetarian());
+        }
+        if (criteria.minServings() != null) {
+            sql.append(" AND r.servings >= :minServings");
+            bindings.put("minServings", criteria.minServings());
+        }
+        if (criteria.maxServings() != null) {
+            sql.append(" AND r.servings <= :maxServings");
+            bindings.put("maxServings", criteria.maxServings());
+        }
+        if (criteria.hasIncludedIngredients()) {
+            List<List<String>> included = criteria.includedIngredients().stream()
+                    .map(name -> matchNames(ingredientIds, name))
+                    .distinct()
+                    .toList();
+            if (criteria.ingredientMatch() == IngredientMatch.ALL) {
+                // One membership check per ingredient, each matching any of the names it stands for
+                for (int i = 0; i < included.size(); i++) {
+                    sql.append(" AND r.id IN (").append(recipesWithIngredients("included" + i)).append(")");
+                    bindings.put("included" + i, included.get(i));
+                }
+            } else {
+                sql.append(" AND r.id IN (").append(recipesWithIngredients("included")).append(")");
+                bindings.put("included", included.stream().flatMap(List::stream).distinct().toList());
+            }
+        }
+        if (criteria.hasExcludedIngredients()) {
+            sql.append(" AND r.id NOT IN (").append(recipesWithIngredients("excluded")).append(")");
+            bindings.put("excluded", criteria.excludedIngredients().stream()
+                    .flatMap(name -> matchNames(ingredientIds, name).stream())
+                    .distinct()
+                    .toList());
+        }
+        if (criteria.hasQueryInstructions()) {
+            sql.append(" AND LOWER(r.instructions) LIKE :instructions");
+            bindings.put("instructions", "%" + criteria.queryInstructions().toLowerCase(Locale.ROOT) + "%");
+        }
+        sql.append(" ORDER BY r.id");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+            spec = spec.bind(binding.getKey(), binding.getValue());
+        }
+        return withIngredients(spec.map(ReactiveRecipeService::recipe).all());
+    }
+
+    private static String recipesWithIngredients(String namesParameter) {
+        return "SELECT ri.recipe_id FROM recipe_ingredients ri JOIN ingredients i ON i.id = ri.ingredient_id"
+                + " WHERE i.name IN (:" + namesParameter + ")";
+    }
+
+    /**
+     * Loads the ingredients of the streamed recipes with one query per chunk and maps them to DTOs, in stream order.
+     */
+    private Flux<RecipeDto> withIngredients(Flux<Recipe> recipes) {
+        return recipes.buffer(CHUNK_SIZE).concatMap(chunk -> databaseClient.sql(
+                                "SELECT ri.recipe_id, i.id, i.name FROM recipe_ingredients ri"
+                                        + " JOIN ingredients i ON i.id = ri.ingredient_id WHERE ri.recipe_id IN (:ids)")
+                        .bind("ids", chunk.stream().map(Recipe::getId).toList())
+                        .map(row -> Map.entry(row.get("recipe_id", Long.class),
+                                IngredientDictionary.reference(row.get("name", String.class), row.get("id", Long.class))))
+                        .all()
+                        .collectMultimap(Map.Entry::getKey, Map.Entry::getValue)
+                        .flatMapIterable(ingredients -> chunk.stream()
+                                .map(recipe -> {
+                                    Collection<Ingredient> linked = ingredients.get(recipe.getId());
+                                    if (linked != null) {
+                                        recipe.setIngredients(new HashSet<>(linked));
+                                    }
+                                    return recipeMapper.map(recipe);
+                                })
+                                .toList()),
+                1);
+    }
+
+    private static Recipe recipe(Readable row) {
+        Recipe recipe = new Recipe();
+        recipe.setId(row.get("id", Long.class));
+        recipe.setName(row.get("name", String.class));
+        recipe.setVegetarian(Boolean.TRUE.equals(row.get("is_vegetarian", Boolean.class)));
+        recipe.setServings(Objects.requireNonNull(row.get("servings", Integer.class)));
+        recipe.setInstructions(row.get("instructions", String.class));
+        recipe.setVersion(Objects.requireNonNullElse(row.get("version", Long.class), 0L));
+        return recipe;
+    }
+}
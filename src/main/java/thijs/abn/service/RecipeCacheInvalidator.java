@@ -0,0 +1,72 @@
+package thijs.abn.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+
+import java.util.Locale;
+
+import static thijs.abn.config.RecipeCacheConfig.*;
+
+/**
+ * Evicts cached recipe data once a change is committed. Lookups by id and name are evicted for exactly the changed
+ * recipe, under both its old and new name. Cached searches are left to {@link RecipeSearchCache}, which only evicts
+ * those whose result the change alters.
+ */
+@Component
+public class RecipeCacheInvalidator {
+
+    private final CacheManager cacheManager;
+    private final RecipeSearchCache recipeSearchCache;
+
+    @Autowired
+    public RecipeCacheInvalidator(CacheManager cacheManager, RecipeSearchCache recipeSearchCache) {
+        this.cacheManager = cacheManager;
+        this.recipeSearchCache = recipeSearchCache;
+    }
+
+    // Runs after the search indexes have applied the change, so a search cannot re-cache the old result
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        evict(RECIPES, event.recipeId());
+        evictName(event.before());
+        evictName(event.after());
+        recipeSearchCache.evict(event);
+    }
+
+    /**
+     * Evicts all cached recipe data, for changes made without publishing events, like a restored catalogue snapshot.
+     */
+    public void evictAll() {
+        clear(RECIPES);
+        clear(RECIPE_IDS_BY_NAME);
+        recipeSearchCache.clear();
+    }
+
+    private void evictName(RecipeSnapshot recipe) {
+        if (recipe != null) {
+            evict(RECIPE_IDS_BY_NAME, recipe.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
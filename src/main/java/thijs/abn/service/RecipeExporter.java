@@ -0,0 +1,102 @@
+package thijs.abn.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.entity.Recipe;
+import thijs.abn.mapper.RecipeMapper;
+import thijs.abn.repository.RecipeRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes the complete recipe catalogue to an output stream without materialising it. Recipes are read from a
+ * forward-only cursor in chunks; the ingredients of a chunk are loaded by one batch fetch, the chunk is written and
+ * flushed, and the persistence context is cleared, so heap usage does not depend on the catalogue size.
+ */
+@Service
+public class RecipeExporter {
+
+    public enum Format {JSON_ARRAY, NDJSON}
+
+    // Matches the @BatchSize of Recipe.ingredients, so each chunk loads its ingredients in one query
+    static final int CHUNK_SIZE = 250;
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeMapper recipeMapper;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Logger log = LoggerFactory.getLogger(RecipeExporter.class);
+
+    @Autowired
+    public RecipeExporter(RecipeRepository recipeRepository, RecipeMapper recipeMapper, EntityManager entityManager,
+                          ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.recipeRepository = recipeRepository;
+        this.recipeMapper = recipeMapper;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes every recipe in ascending id order and returns the number of recipes written. The stream is flushed
+     * after every chunk but not closed.
+     */
+    public long export(OutputStream outputStream, Format format) {
+        Long exported = readOnlyTransaction.execute(status -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+                 Stream<Recipe> recipes = recipeRepository.streamAll()) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                return write(recipes.iterator(), generator, format);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Exported {} recipes as {}", exported, format);
+        return exported;
+    }
+
+    private long write(Iterator<Recipe> recipes, JsonGenerator generator, Format format) throws IOException {
+        if (format == Format.JSON_ARRAY) {
+            generator.writeStartArray();
+        }
+        List<Recipe> chunk = new ArrayList<>(CHUNK_SIZE);
+        long count = 0;
+        while (recipes.hasNext()) {
+            chunk.add(recipes.next());
+            if (chunk.size() == CHUNK_SIZE || !recipes.hasNext()) {
+                for (Recipe recipe : chunk) {
+                    objectMapper.writeValue(generator, recipeMapper.map(recipe));
+                    if (format == Format.NDJSON) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                count += chunk.size();
+                chunk.clear();
+                generator.flush();
+                entityManager.clear();
+            }
+        }
+        if (format == Format.JSON_ARRAY) {
+            generator.writeEndArray();
+        }
+        generator.flush();
+        return count;
+    }
+}
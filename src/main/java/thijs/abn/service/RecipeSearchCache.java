@@ -0,0 +1,177 @@
+package thijs.abn.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import thijs.abn.config.RecipeCacheConfig;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the ids of the recipes matching a search in {@link RecipeCacheConfig#RECIPE_SEARCHES}, keyed on the
+ * {@link RecipeSearchCriteria#normalized() normalised} criteria, so equivalent searches share one entry. Next to the
+ * ids, an entry keeps the ingredient ids its ingredient names stood for when it was cached.
+ * <p>
+ * A committed change only evicts the entries whose result it alters: those that contain the changed recipe but would
+ * no longer match it, or that do not contain it but would now. Entries with an instructions query are ranked on
+ * statistics of the whole catalogue, and entries with a misspelled or unknown ingredient name depend on the ingredient
+ * vocabulary, so any change evicts those.
+ */
+@Component
+public class RecipeSearchCache {
+
+    private final CacheManager cacheManager;
+    private final IngredientMatcher ingredientMatcher;
+
+    // Incremented on every change, so a search that overlapped a change does not cache its possibly stale result
+    private final AtomicLong changes = new AtomicLong();
+
+    // Held to cache a result and to evict, so an entry is either put before an eviction looks at it or not at all
+    private final Object writes = new Object();
+
+    @Autowired
+    public RecipeSearchCache(CacheManager cacheManager, IngredientMatcher ingredientMatcher) {
+        this.cacheManager = cacheManager;
+        this.ingredientMatcher = ingredientMatcher;
+    }
+
+    /**
+     * Returns the cached ids of the recipes matching the criteria, or runs the search and caches its result.
+     */
+    public long[] get(RecipeSearchCriteria criteria, Supplier<long[]> search) {
+        Cache cache = cacheManager.getCache(RecipeCacheConfig.RECIPE_SEARCHES);
+        if (cache == null) {
+            return search.get();
+        }
+        RecipeSearchCriteria key = criteria.normalized();
+        Entry cached = cache.get(key, Entry.class);
+        if (cached != null) {
+            return cached.ids();
+        }
+
+        long generation = changes.get();
+        Entry entry = entry(key, search.get());
+        synchronized (writes) {
+            if (changes.get() == generation) {
+                cache.put(key, entry);
+            }
+        }
+        return entry.ids();
+    }
+
+    /**
+     * Evicts the entries whose result the committed change alters.
+     */
+    public void evict(RecipeChangedEvent event) {
+        Cache cache = cacheManager.getCache(RecipeCacheConfig.RECIPE_SEARCHES);
+        synchronized (writes) {
+            changes.incrementAndGet();
+            if (cache == null) {
+                return;
+            }
+            ConcurrentMap<?, ?> entries = entries(cache);
+            if (entries == null) {
+                cache.clear();
+                return;
+            }
+            long recipeId = event.recipeId();
+            entries.values().removeIf(value -> !(value instanceof Entry entry) || entry.isAffectedBy(recipeId, event.after()));
+        }
+    }
+
+    /**
+     * Evicts every entry.
+     */
+    public void clear() {
+        Cache cache = cacheManager.getCache(RecipeCacheConfig.RECIPE_SEARCHES);
+        synchronized (writes) {
+            changes.incrementAndGet();
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    // The entries of the backends that expose them as a map, null for others
+    private static ConcurrentMap<?, ?> entries(Cache cache) {
+        Object nativeCache = cache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            return caffeine.asMap();
+        }
+        return nativeCache instanceof ConcurrentMap<?, ?> map ? map : null;
+    }
+
+    private Entry entry(RecipeSearchCriteria criteria, long[] ids) {
+        boolean exact = true;
+        List<Set<Long>> included = null;
+        if (criteria.hasIncludedIngredients()) {
+            included = new ArrayList<>();
+            for (String name : criteria.includedIngredients()) {
+                Map<Long, String> matches = ingredientMatcher.match(name);
+                exact &= isExact(name, matches);
+                included.add(Set.copyOf(matches.keySet()));
+            }
+        }
+        Set<Long> excluded = new HashSet<>();
+        if (criteria.hasExcludedIngredients()) {
+            for (String name : criteria.excludedIngredients()) {
+                Map<Long, String> matches = ingredientMatcher.match(name);
+                exact &= isExact(name, matches);
+                excluded.addAll(matches.keySet());
+            }
+        }
+        return new Entry(criteria, ids, included, excluded, exact && !criteria.hasQueryInstructions());
+    }
+
+    private static boolean isExact(String name, Map<Long, String> matches) {
+        return matches.size() == 1 && matches.containsValue(name);
+    }
+
+    /**
+     * @param included ingredient ids per included name, {@code null} when the search has no included ingredients
+     * @param selective whether {@link #isAffectedBy} can decide from the recipe alone; otherwise any change evicts it
+     */
+    private record Entry(RecipeSearchCriteria criteria, long[] ids, List<Set<Long>> included, Set<Long> excluded,
+                         boolean selective) {
+
+        boolean isAffectedBy(long recipeId, RecipeSnapshot after) {
+            if (!selective) {
+                return true;
+            }
+            // Non-text results are in ascending id order
+            boolean contained = Arrays.binarySearch(ids, recipeId) >= 0;
+            return contained != (after != null && matches(after));
+        }
+
+        private boolean matches(RecipeSnapshot recipe) {
+            if (criteria.isVegetarian() != null && criteria.isVegetarian() != recipe.vegetarian()) {
+                return false;
+            }
+            if (criteria.minServings() != null && recipe.servings() < criteria.minServings()) {
+                return false;
+            }
+            if (criteria.maxServings() != null && recipe.servings() > criteria.maxServings()) {
+                return false;
+            }
+            Set<Long> ingredients = recipe.ingredients().keySet();
+            if (included != null) {
+                boolean all = criteria.ingredientMatch() == IngredientMatch.ALL;
+                boolean matched = all
+                        ? included.stream().allMatch(candidates -> candidates.stream().anyMatch(ingredients::contains))
+                        : included.stream().anyMatch(candidates -> candidates.stream().anyMatch(ingredients::contains));
+                if (!matched) {
+                    return false;
+                }
+            }
+            return excluded.stream().noneMatch(ingredients::contains);
+        }
+    }
+}
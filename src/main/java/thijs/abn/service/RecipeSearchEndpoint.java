@@ -0,0 +1,29 @@
+package thijs.abn.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint to rebuild the search read model, for example after recipes were loaded into the database
+ * directly: {@code POST /actuator/recipesearch}.
+ */
+@Component
+@Endpoint(id = "recipesearch")
+public class RecipeSearchEndpoint {
+
+    private final RecipeSearchReadModel recipeSearchReadModel;
+
+    @Autowired
+    public RecipeSearchEndpoint(RecipeSearchReadModel recipeSearchReadModel) {
+        this.recipeSearchReadModel = recipeSearchReadModel;
+    }
+
+    @WriteOperation
+    public Map<String, Long> rebuild() {
+        return Map.of("entries", recipeSearchReadModel.rebuild());
+    }
+}
@@ -0,0 +1,347 @@
+package thijs.abn.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.entity.RecipeSearchEntry;
+import thijs.abn.entity.RecipeSearchIngredient;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.repository.RecipeRepository;
+import thijs.abn.repository.RecipeRow;
+import thijs.abn.repository.RecipeSearchRepository;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maintains the {@code recipe_search} table, one {@link RecipeSearchEntry} per recipe with a
+ * {@link RecipeSearchIngredient} per ingredient, and answers searches from it.
+ * Unlike the in-memory indexes, the table is written by a plain {@link EventListener} inside the transaction that
+ * changes the recipe, so it commits or rolls back together with the change and is shared by every instance.
+ * <p>
+ * Recipes written before the listeners are registered, or while the read model was disabled, are backfilled once the
+ * application is ready when a summary of the entries differs from the same summary of the recipes; {@link #rebuild()}
+ * does the same on demand. A rebuild fences recipe writes: it waits for the transactions that changed the read model
+ * to finish, and writes that start meanwhile wait for the rebuild to commit.
+ * <p>
+ * While the in-memory index answers the searches, a sample of them is run against the read model too, and searches
+ * where the two disagree are counted in {@code recipes.search.read.model.mismatches}.
+ */
+@Component
+public class RecipeSearchReadModel {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final RecipeSearchRepository recipeSearchRepository;
+    private final RecipeRepository recipeRepository;
+    private final IngredientMatcher ingredientMatcher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+
+    private final double verifyRate;
+    private final Counter mismatches;
+
+    // Held shared by every transaction writing the read model until it completes, and exclusively by a rebuild
+    private final ReadWriteLock fence = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    private final Logger log = LoggerFactory.getLogger(RecipeSearchReadModel.class);
+
+    @Autowired
+    public RecipeSearchReadModel(RecipeSearchRepository recipeSearchRepository, RecipeRepository recipeRepository,
+                                 IngredientMatcher ingredientMatcher, EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager, RecipeProperties recipeProperties,
+                                 MeterRegistry meterRegistry) {
+        this.recipeSearchRepository = recipeSearchRepository;
+        this.recipeRepository = recipeRepository;
+        this.ingredientMatcher = ingredientMatcher;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = recipeProperties.getSearch().getReadModel().isEnabled();
+        this.verifyRate = recipeProperties.getSearch().getReadModel().getVerifyRate();
+        this.mismatches = Counter.builder("recipes.search.read.model.mismatches")
+                .description("Searches answered by the in-memory index that the read model answered differently")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        if (!isConsistent()) {
+            log.info("Search read model differs from the recipe tables, rebuilding");
+            rebuild();
+        }
+        ready = true;
+    }
+
+    /**
+     * Compares the number of entries, the sums of their ids and servings, the number of vegetarian ones and a checksum
+     * of their ingredients with the same figures of the recipe tables. The instructions are not compared.
+     */
+    public boolean isConsistent() {
+        return transaction.execute(status -> summary(recipeSearchRepository.summarise()).equals(summary(recipeRepository.summarise()))
+                && summary(recipeSearchRepository.summariseIngredients()).equals(summary(recipeRepository.summariseIngredientLinks())));
+    }
+
+    // The single row of an aggregate query, with the sums of an empty table as 0
+    private static List<Long> summary(List<Object[]> rows) {
+        return Arrays.stream(rows.get(0))
+                .map(value -> value != null ? ((Number) value).longValue() : 0L)
+                .toList();
+    }
+
+    /**
+     * Replaces every entry with one derived from the current recipe tables, in a single transaction. The recipes are
+     * read in batches of {@link #REBUILD_BATCH_SIZE}, so memory use does not depend on the size of the catalogue.
+     * Recipe writes are fenced until the transaction commits, so none can be deleted by the rebuild or collide with it.
+     *
+     * @return the number of entries written
+     */
+    public long rebuild() {
+        if (!enabled) {
+            throw new IllegalStateException("The search read model is disabled");
+        }
+        Long written;
+        fence.writeLock().lock();
+        try {
+            written = transaction.execute(status -> rebuildEntries());
+        } finally {
+            fence.writeLock().unlock();
+        }
+        log.info("Search read model rebuilt with {} entries", written);
+        return written != null ? written : 0;
+    }
+
+    private long rebuildEntries() {
+        recipeSearchRepository.deleteAllIngredients();
+        recipeSearchRepository.deleteAllInBatch();
+        long count = 0;
+        long after = 0;
+        List<Long> ids;
+        do {
+            ids = recipeRepository.findIdsAfter(after, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Map<Long, List<Long>> ingredients = new HashMap<>();
+            for (Object[] row : recipeRepository.findIngredientNamesByRecipeIdIn(ids)) {
+                ingredients.computeIfAbsent((Long) row[0], key -> new ArrayList<>()).add((Long) row[1]);
+            }
+            for (RecipeRow row : recipeRepository.findRowsByIdIn(ids)) {
+                persist(new RecipeSearchEntry(row.id(), row.isVegetarian(), row.servings(), row.instructions()),
+                        ingredients.getOrDefault(row.id(), List.of()));
+                count++;
+            }
+            entityManager.flush();
+            entityManager.clear();
+            after = ids.get(ids.size() - 1);
+        } while (ids.size() == REBUILD_BATCH_SIZE);
+        return count;
+    }
+
+    // Runs in the publishing transaction, so the entry commits or rolls back with the recipe
+    @EventListener
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            fence.readLock().lock();
+            try {
+                apply(event);
+            } finally {
+                fence.readLock().unlock();
+            }
+            return;
+        }
+        // Held until the transaction completes, so that a rebuild does not start before the change is committed
+        if (!TransactionSynchronizationManager.hasResource(fence)) {
+            fence.readLock().lock();
+            TransactionSynchronizationManager.bindResource(fence, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(fence);
+                    fence.readLock().unlock();
+                }
+            });
+        }
+        apply(event);
+    }
+
+    private void apply(RecipeChangedEvent event) {
+        switch (event.type()) {
+            case CREATED -> persist(entry(event.after()), event.after().ingredients().keySet());
+            case UPDATED -> update(event.before(), event.after());
+            case DELETED -> {
+                recipeSearchRepository.deleteIngredientsByRecipeId(event.before().id());
+                recipeSearchRepository.deleteByRecipeId(event.before().id());
+            }
+        }
+    }
+
+    // Writes only what changed: the entry when one of its attributes did, and the added and removed ingredients
+    private void update(RecipeSnapshot before, RecipeSnapshot after) {
+        if (!attributes(before).equals(attributes(after)) && recipeSearchRepository.update(entry(after)) == 0) {
+            // The recipe has no entry yet
+            recipeSearchRepository.deleteIngredientsByRecipeId(after.id());
+            persist(entry(after), after.ingredients().keySet());
+            return;
+        }
+        Set<Long> removed = new HashSet<>(before.ingredients().keySet());
+        removed.removeAll(after.ingredients().keySet());
+        if (!removed.isEmpty()) {
+            recipeSearchRepository.deleteIngredients(after.id(), removed);
+        }
+        after.ingredients().keySet().stream()
+                .filter(ingredientId -> !before.ingredients().containsKey(ingredientId))
+                .forEach(ingredientId -> entityManager.persist(new RecipeSearchIngredient(after.id(), ingredientId)));
+    }
+
+    private void persist(RecipeSearchEntry entry, Collection<Long> ingredientIds) {
+        entityManager.persist(entry);
+        ingredientIds.forEach(ingredientId -> entityManager.persist(new RecipeSearchIngredient(entry.getRecipeId(), ingredientId)));
+    }
+
+    // Only these attributes end up in an entry; a change to anything else, like the name, leaves it as it is
+    private static List<Object> attributes(RecipeSnapshot recipe) {
+        return List.of(recipe.vegetarian(), recipe.servings(), Objects.toString(recipe.instructions()));
+    }
+
+    private static RecipeSearchEntry entry(RecipeSnapshot recipe) {
+        return new RecipeSearchEntry(recipe.id(), recipe.vegetarian(), recipe.servings(), recipe.instructions());
+    }
+
+    /**
+     * Runs a search the in-memory index answered with {@code matches} against the read model as well, for a share of
+     * {@code recipes.search.read-model.verify-rate} of the searches, and counts it when the ids differ. A write
+     * committed between the two reads also shows up as a difference.
+     */
+    public void verify(RecipeSearchCriteria criteria, long[] matches) {
+        if (!ready || criteria.hasQueryInstructions() || ThreadLocalRandom.current().nextDouble() >= verifyRate) {
+            return;
+        }
+        long[] ids = findIds(criteria, null, Integer.MAX_VALUE).stream().mapToLong(Long::longValue).toArray();
+        if (!Arrays.equals(ids, matches)) {
+            mismatches.increment();
+            log.warn("Search read model found {} recipes where the index found {} for {}", ids.length, matches.length, criteria);
+        }
+    }
+
+    /**
+     * Returns the ids of at most {@code limit} recipes matching the criteria with an id greater than {@code after}, in
+     * ascending id order. Callers must check {@link #isReady()} first.
+     */
+    public List<Long> findIds(RecipeSearchCriteria criteria, Long after, int limit) {
+        // The ingredient ids per included name, any of which matches the name
+        List<Set<Long>> included = new ArrayList<>();
+        if (criteria.hasIncludedIngredients()) {
+            for (String name : criteria.includedIngredients()) {
+                Set<Long> ingredientIds = ingredientMatcher.match(name).keySet();
+                if (!ingredientIds.isEmpty()) {
+                    included.add(ingredientIds);
+                } else if (criteria.ingredientMatch() == IngredientMatch.ALL) {
+                    return List.of();
+                }
+            }
+            if (included.isEmpty()) {
+                return List.of();
+            }
+        }
+        Set<Long> excluded = criteria.hasExcludedIngredients()
+                ? ingredientMatcher.matchAll(criteria.excludedIngredients())
+                : Set.of();
+
+        Specification<RecipeSearchEntry> spec = (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (criteria.isVegetarian() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("isVegetarian"), criteria.isVegetarian()));
+            }
+            if (criteria.minServings() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("servings"), criteria.minServings()));
+            }
+            if (criteria.maxServings() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("servings"), criteria.maxServings()));
+            }
+            // Included ingredients select the recipes through the reverse index; excluded ones are checked per recipe
+            if (!included.isEmpty()) {
+                if (criteria.ingredientMatch() == IngredientMatch.ALL) {
+                    included.forEach(ingredientIds ->
+                            predicates.add(root.get("recipeId").in(recipesWithIngredients(query, ingredientIds))));
+                } else {
+                    Set<Long> any = new HashSet<>();
+                    included.forEach(any::addAll);
+                    predicates.add(root.get("recipeId").in(recipesWithIngredients(query, any)));
+                }
+            }
+            if (!excluded.isEmpty()) {
+                predicates.add(criteriaBuilder.not(criteriaBuilder.exists(ingredientsOf(root, query, criteriaBuilder, excluded))));
+            }
+            if (criteria.hasQueryInstructions()) {
+                predicates.add(criteriaBuilder.like(root.get("instructions"), "%" + criteria.queryInstructions().toLowerCase(Locale.ROOT) + "%"));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+        return recipeSearchRepository.findRecipeIds(spec, after, limit);
+    }
+
+    /**
+     * Ids of the recipes with any of the given ingredients, read from the index on {@code (ingredient_id, recipe_id)}.
+     */
+    private static Subquery<Long> recipesWithIngredients(CriteriaQuery<?> query, Set<Long> ingredientIds) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<RecipeSearchIngredient> ingredient = subquery.from(RecipeSearchIngredient.class);
+        return subquery.select(ingredient.get("recipeId"))
+                .where(ingredient.get("ingredientId").in(ingredientIds));
+    }
+
+    /**
+     * The rows of the entry's ingredients that are among the given ingredients, read from the primary key of
+     * {@code recipe_search_ingredients}.
+     */
+    private static Subquery<Long> ingredientsOf(Root<RecipeSearchEntry> root, CriteriaQuery<?> query,
+                                                CriteriaBuilder criteriaBuilder, Set<Long> ingredientIds) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<RecipeSearchIngredient> ingredient = subquery.from(RecipeSearchIngredient.class);
+        return subquery.select(ingredient.get("ingredientId"))
+                .where(criteriaBuilder.equal(ingredient.get("recipeId"), root.get("recipeId")),
+                        ingredient.get("ingredientId").in(ingredientIds));
+    }
+}
@@ -0,0 +1,144 @@
+package thijs.abn.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.model.RecipeStreamImportResultDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Seeds an empty database from a JSON array or newline-delimited JSON file using several threads. The file is read
+ * twice: the first pass only collects the ingredient names, which are created at once through the
+ * {@link IngredientDictionary}, so the workers never compete to create the same ingredient. The second pass hands
+ * chunks of recipes to a bounded pool of workers, each committing its chunk through {@link RecipeService#createRecipes}.
+ * Unlike {@link RecipeStreamImporter} the chunks commit out of order, so a seed cannot be resumed part-way.
+ */
+@Service
+public class RecipeSeeder {
+
+    // A chunk racing another chunk for the same recipe name is retried, after which the name is reported as a duplicate
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final RecipeService recipeService;
+    private final IngredientDictionary ingredientDictionary;
+    private final ObjectMapper objectMapper;
+    private final RecipeProperties recipeProperties;
+
+    private final Logger log = LoggerFactory.getLogger(RecipeSeeder.class);
+
+    @Autowired
+    public RecipeSeeder(RecipeService recipeService, IngredientDictionary ingredientDictionary, ObjectMapper objectMapper,
+                        RecipeProperties recipeProperties) {
+        this.recipeService = recipeService;
+        this.ingredientDictionary = ingredientDictionary;
+        this.objectMapper = objectMapper;
+        this.recipeProperties = recipeProperties;
+    }
+
+    public RecipeStreamImportResultDto seed(Resource resource) throws IOException {
+        Set<String> ingredientNames = new HashSet<>();
+        try (InputStream inputStream = resource.getInputStream()) {
+            read(inputStream, recipe -> {
+                if (recipe.ingredients() != null) {
+                    recipe.ingredients().stream()
+                            .map(IngredientDto::name)
+                            .filter(Objects::nonNull)
+                            .forEach(name -> ingredientNames.add(name.toLowerCase(Locale.ROOT)));
+                }
+            });
+        }
+        ingredientDictionary.resolve(ingredientNames);
+        log.info("Resolved {} seed ingredients", ingredientNames.size());
+
+        int chunkSize = Math.max(1, recipeProperties.getImport().getBatchSize());
+        int workers = Math.max(1, recipeProperties.getSeed().getWorkers());
+        AtomicInteger threads = new AtomicInteger();
+        // Twice as many chunks as workers may be parsed ahead; beyond that the reading thread imports a chunk itself
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2),
+                runnable -> new Thread(runnable, "recipe-seeder-" + threads.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        AtomicLong created = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        List<Future<?>> chunks = new ArrayList<>();
+        try (InputStream inputStream = resource.getInputStream()) {
+            List<RecipeDto> chunk = new ArrayList<>(chunkSize);
+            read(inputStream, recipe -> {
+                chunk.add(recipe);
+                if (chunk.size() == chunkSize) {
+                    chunks.add(executor.submit(importer(List.copyOf(chunk), created, rejected)));
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                chunks.add(executor.submit(importer(List.copyOf(chunk), created, rejected)));
+            }
+            for (Future<?> future : chunks) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Seeding interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Seeding failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new RecipeStreamImportResultDto(created.get() + rejected.get(), 0, created.get(), rejected.get(),
+                List.of(), null);
+    }
+
+    private Runnable importer(List<RecipeDto> chunk, AtomicLong created, AtomicLong rejected) {
+        return () -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    RecipeImportResultDto result = recipeService.createRecipes(chunk);
+                    created.addAndGet(result.created());
+                    rejected.addAndGet(result.rejected());
+                    return;
+                } catch (DataIntegrityViolationException e) {
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.debug("Seed chunk conflicted with a concurrent chunk, retrying", e);
+                }
+            }
+        };
+    }
+
+    private void read(InputStream inputStream, Consumer<RecipeDto> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            long position = 0;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a recipe object at record " + position + " but found " + token);
+                }
+                consumer.accept(objectMapper.readValue(parser, RecipeDto.class));
+                position++;
+                token = parser.nextToken();
+            }
+        }
+    }
+}
@@ -1,105 +1,567 @@
 package thijs.abn.service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.criteria.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.config.RecipeCacheConfig;
+import thijs.abn.config.RecipeProperties;
 import thijs.abn.entity.Ingredient;
 import thijs.abn.entity.Recipe;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.exception.ConflictException;
+import thijs.abn.exception.InvalidRecipeException;
+import thijs.abn.exception.PreconditionFailedException;
 import thijs.abn.exception.ResourceNotFoundException;
+import thijs.abn.index.FullTextIndex;
+import thijs.abn.index.RecipeIndex;
 import thijs.abn.mapper.RecipeMapper;
+import thijs.abn.model.IngredientDto;
 import thijs.abn.model.RecipeDto;
-import thijs.abn.repository.IngredientRepository;
+import thijs.abn.model.RecipeFacetsDto;
+import thijs.abn.model.RecipeFacetsDto.Facet;
+import thijs.abn.model.RecipeFacetsDto.IngredientCount;
+import thijs.abn.model.RecipeFacetsDto.VegetarianCount;
+import thijs.abn.model.RecipeImportItemDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.model.RecipePageDto;
+import thijs.abn.model.RecipePatchDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchResultDto;
 import thijs.abn.repository.RecipeRepository;
+import thijs.abn.repository.RecipeRow;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "recipes.service", histogram = true)
 public class RecipeService {
 
     private final RecipeRepository recipeRepository;
 
-    private final IngredientRepository ingredientRepository;
+    private final IngredientDictionary ingredientDictionary;
+    private final IngredientMatcher ingredientMatcher;
     private final RecipeMapper recipeMapper;
+    private final EntityManager entityManager;
+    private final RecipeProperties recipeProperties;
+    private final RecipeIndex recipeIndex;
+    private final FullTextIndex fullTextIndex;
+    private final RecipeSearchReadModel recipeSearchReadModel;
+    private final RecipeSearchCache recipeSearchCache;
+    private final RecipeWriteFence recipeWriteFence;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
 
     private final Logger log = LoggerFactory.getLogger(RecipeService.class);
 
+    private static final int HYDRATION_BATCH_SIZE = 1000;
+
     @Autowired
-    public RecipeService(RecipeRepository recipeRepository, IngredientRepository ingredientRepository,
-                         RecipeMapper recipeMapper) {
+    public RecipeService(RecipeRepository recipeRepository, IngredientDictionary ingredientDictionary,
+                         IngredientMatcher ingredientMatcher, RecipeMapper recipeMapper, EntityManager entityManager, RecipeProperties recipeProperties,
+                         RecipeIndex recipeIndex, FullTextIndex fullTextIndex, RecipeSearchReadModel recipeSearchReadModel,
+                         RecipeSearchCache recipeSearchCache, RecipeWriteFence recipeWriteFence,
+                         ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
         this.recipeRepository = recipeRepository;
         this.recipeMapper = recipeMapper;
-        this.ingredientRepository = ingredientRepository;
+        this.ingredientDictionary = ingredientDictionary;
+        this.ingredientMatcher = ingredientMatcher;
+        this.entityManager = entityManager;
+        this.recipeProperties = recipeProperties;
+        this.recipeIndex = recipeIndex;
+        this.fullTextIndex = fullTextIndex;
+        this.recipeSearchReadModel = recipeSearchReadModel;
+        this.recipeSearchCache = recipeSearchCache;
+        this.recipeWriteFence = recipeWriteFence;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Returns the recipes with an id greater than {@code after}, in ascending id order, or the first page without
+     * {@code after}. Pages hold {@code limit} recipes, or {@code recipes.pagination.default-limit} without a limit. Only
+     * the ids of the page are selected with a limit; the recipes and their ingredients are then loaded in a second
+     * batched query, so the cost of a page does not depend on the size of the catalogue.
+     */
+    public RecipePageDto findRecipes(Long after, Integer limit) {
+        return findRecipes(after, limit, true);
     }
 
-    public List<RecipeDto> findAllRecipes() {
-        List<RecipeDto> recipeDtoList = recipeRepository.findAllRecipesWithIngredients()
-                .stream()
-                .map(recipeMapper::map)
-                .collect(Collectors.toList());
-        log.debug("RecipeDtoList: " + recipeDtoList);
-        return recipeDtoList;
+    @Transactional(readOnly = true)
+    public RecipePageDto findRecipes(Long after, Integer limit, boolean includeInstructions) {
+        int pageSize = pageSize(limit);
+        List<Long> ids = recipeRepository.findIdsAfter(after != null ? after : 0L, PageRequest.of(0, pageSize + 1));
+        return toPage(ids.stream().mapToLong(Long::longValue).toArray(), pageSize, includeInstructions);
     }
 
+    @Cacheable(cacheNames = RecipeCacheConfig.RECIPES, key = "#p0")
+    @Transactional(readOnly = true)
+    public RecipeDto getRecipe(Long recipeId) {
+        return findRecipesByIds(new long[]{recipeId}, true).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with id: " + recipeId));
+    }
+
+    @Cacheable(cacheNames = RecipeCacheConfig.RECIPE_IDS_BY_NAME, key = "#p0.toLowerCase(T(java.util.Locale).ROOT)")
     public Long getRecipeIdByName(String name) {
-        return recipeRepository.findByName(name.toLowerCase())
+        return recipeRepository.findByName(name.toLowerCase(Locale.ROOT))
                 .map(Recipe::getId)
                 .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with name: " + name));
     }
 
-    @Transactional
     public void createRecipe(RecipeDto recipeDto) {
-        Recipe recipe = recipeMapper.map(recipeDto);
-
-        // Handle ingredients
-        Set<Ingredient> ingredients = recipeDto.ingredients().stream()
-                .map(dto -> {
-                    String ingredientNameLowercase = dto.name().toLowerCase();
-                    return ingredientRepository.findByName(ingredientNameLowercase)
-                            .orElseGet(() -> {
-                                Ingredient newIngredient = new Ingredient();
-                                newIngredient.setName(ingredientNameLowercase);
-                                return ingredientRepository.save(newIngredient); // Ensure the new ingredient is saved
-                            });
-                })
+        write(status -> {
+            Recipe recipe = recipeMapper.map(recipeDto);
+
+            // Handle ingredients
+            Set<Ingredient> ingredients = resolveIngredients(ingredientsOf(recipeDto));
+
+            // Set ingredients to recipe and save
+            recipe.setIngredients(ingredients);
+
+            // Save recipe (which also saves ingredient relationships due to cascade settings)
+            recipeRepository.save(recipe);
+            eventPublisher.publishEvent(RecipeChangedEvent.created(RecipeSnapshot.of(recipe)));
+            return null;
+        });
+    }
+
+    /**
+     * Persists many recipes at once. Recipes are written in chunks of {@code recipes.import.batch-size}; every chunk
+     * resolves its ingredients with a single query and is flushed as JDBC batches of {@code hibernate.jdbc.batch_size}
+     * before the persistence context is cleared, so memory stays bounded no matter how many recipes are submitted.
+     * Invalid recipes and recipes whose name already exists are reported instead of failing the whole import.
+     * <p>
+     * Outside a transaction every chunk commits on its own, and a chunk that conflicts with a concurrent write is the
+     * only one retried. When a chunk fails the exception is thrown and the chunks before it stay committed. Inside a
+     * transaction all chunks join it.
+     */
+    public RecipeImportResultDto createRecipes(List<RecipeDto> recipeDtos) {
+        RecipeImportItemDto[] items = new RecipeImportItemDto[recipeDtos.size()];
+        int batchSize = Math.max(1, recipeProperties.getImport().getBatchSize());
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            write(status -> {
+                Set<String> seenNames = new HashSet<>();
+                for (int from = 0; from < recipeDtos.size(); from += batchSize) {
+                    importChunk(recipeDtos.subList(from, Math.min(from + batchSize, recipeDtos.size())), from, items, seenNames);
+                }
+                return null;
+            });
+        } else {
+            Set<String> seenNames = new HashSet<>();
+            for (int from = 0; from < recipeDtos.size(); from += batchSize) {
+                List<RecipeDto> chunk = recipeDtos.subList(from, Math.min(from + batchSize, recipeDtos.size()));
+                int offset = from;
+                Set<String> committedNames = seenNames;
+                // A retried chunk must not see the names of its own rolled back attempt
+                seenNames = write(status -> {
+                    Set<String> names = new HashSet<>(committedNames);
+                    importChunk(chunk, offset, items, names);
+                    return names;
+                });
+            }
+        }
+
+        RecipeImportResultDto result = RecipeImportResultDto.of(Arrays.asList(items));
+        log.info("Imported {} recipes, rejected {}", result.created(), result.rejected());
+        return result;
+    }
+
+    private void importChunk(List<RecipeDto> chunk, int offset, RecipeImportItemDto[] items, Set<String> seenNames) {
+        Set<String> existingNames = new HashSet<>(recipeRepository.findExistingNames(chunk.stream()
+                .map(RecipeDto::name)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet())));
+
+        Map<Integer, RecipeDto> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            int index = offset + i;
+            RecipeDto dto = chunk.get(i);
+            String error = validate(dto);
+            if (error != null) {
+                items[index] = RecipeImportItemDto.rejected(index, dto == null ? null : dto.name(), RecipeImportItemDto.Status.INVALID, error);
+            } else if (existingNames.contains(dto.name()) || !seenNames.add(dto.name())) {
+                items[index] = RecipeImportItemDto.rejected(index, dto.name(), RecipeImportItemDto.Status.DUPLICATE, "Recipe already exists with name: " + dto.name());
+            } else {
+                accepted.put(index, dto);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> ingredientIds = ingredientDictionary.resolve(accepted.values().stream()
+                .flatMap(dto -> ingredientsOf(dto).stream())
+                .map(IngredientDto::name)
+                .collect(Collectors.toSet()));
+
+        Map<Integer, Recipe> recipes = new LinkedHashMap<>();
+        accepted.forEach((index, dto) -> {
+            Recipe recipe = recipeMapper.map(dto);
+            recipe.setIngredients(ingredientsOf(dto).stream()
+                    .map(ingredient -> ingredient.name().toLowerCase(Locale.ROOT))
+                    .map(name -> IngredientDictionary.reference(name, ingredientIds.get(name)))
+                    .collect(Collectors.toSet()));
+            recipes.put(index, recipe);
+        });
+        recipeRepository.saveAll(recipes.values());
+        recipes.values().forEach(recipe -> eventPublisher.publishEvent(RecipeChangedEvent.created(RecipeSnapshot.of(recipe))));
+
+        // Through the repository, so a name taken concurrently surfaces as a DataIntegrityViolationException
+        recipeRepository.flush();
+        entityManager.clear();
+        recipes.forEach((index, recipe) -> items[index] = RecipeImportItemDto.created(index, recipe.getName(), recipe.getId()));
+    }
+
+    /**
+     * Maps ingredient DTOs to ingredient references, creating ingredients that do not exist yet. The references are not
+     * loaded from the database; they only carry the id needed to link them to a recipe.
+     */
+    private Set<Ingredient> resolveIngredients(Collection<IngredientDto> ingredientDtos) {
+        Map<String, Long> ingredientIds = ingredientDictionary.resolve(ingredientDtos.stream()
+                .map(IngredientDto::name)
+                .collect(Collectors.toSet()));
+        return ingredientIds.entrySet().stream()
+                .map(entry -> IngredientDictionary.reference(entry.getKey(), entry.getValue()))
                 .collect(Collectors.toSet());
+    }
 
-        // Set ingredients to recipe and save
-        recipe.setIngredients(ingredients);
+    static String validate(RecipeDto dto) {
+        if (dto == null) {
+            return "Recipe must not be null";
+        }
+        if (dto.name() == null || dto.name().isBlank()) {
+            return "Recipe name must not be blank";
+        }
+        if (dto.instructions() == null || dto.instructions().isBlank()) {
+            return "Recipe instructions must not be blank";
+        }
+        if (dto.servings() <= 0) {
+            return "Recipe servings must be positive";
+        }
+        if (ingredientsOf(dto).stream().anyMatch(ingredient -> ingredient == null || ingredient.name() == null || ingredient.name().isBlank())) {
+            return "Ingredient names must not be blank";
+        }
+        return null;
+    }
 
-        // Save recipe (which also saves ingredient relationships due to cascade settings)
-        recipeRepository.save(recipe);
+    private static Set<IngredientDto> ingredientsOf(RecipeDto dto) {
+        return dto.ingredients() != null ? dto.ingredients() : Set.of();
     }
 
-    public List<RecipeDto> searchRecipes(Boolean isVegetarian, Integer minServings, Integer maxServings,
-                                         List<String> includedIngredients, List<String> excludedIngredients,
-                                         String queryInstructions) {
-        Specification<Recipe> spec = createSpecification(isVegetarian, minServings, maxServings, includedIngredients, excludedIngredients, queryInstructions);
-        List<Recipe> recipes = recipeRepository.findAll(spec);
-        return recipes.stream()
-                .map(recipeMapper::map)
-                .collect(Collectors.toList());
+    /**
+     * Searches recipes. Filters are answered from the in-memory indexes when they are ready, in which case text matches
+     * are ordered by relevance; otherwise, or when the instructions query has no indexable words, the search runs as
+     * SQL. The matching ids are cached by {@link RecipeSearchCache}; the recipes themselves are read per call.
+     */
+    @Transactional(readOnly = true)
+    public List<RecipeDto> searchRecipes(RecipeSearchCriteria criteria) {
+        return search(criteria, true);
     }
 
-    private Specification<Recipe> createSpecification(Boolean isVegetarian, Integer minServings, Integer maxServings,
-                                                      List<String> includedIngredients, List<String> excludedIngredients,
-                                                      String queryInstructions) {
-        return (root, query, criteriaBuilder) -> {
+    /**
+     * Same as {@link #searchRecipes(RecipeSearchCriteria)}, leaving the instructions out of the results unless
+     * {@code includeInstructions} is set.
+     */
+    @Transactional(readOnly = true)
+    public List<RecipeDto> searchRecipes(RecipeSearchCriteria criteria, boolean includeInstructions) {
+        return search(criteria, includeInstructions);
+    }
+
+    private List<RecipeDto> search(RecipeSearchCriteria criteria, boolean includeInstructions) {
+        return findRecipesByIds(recipeSearchCache.get(criteria, () -> findMatchingIds(criteria)), includeInstructions);
+    }
+
+    private long[] findMatchingIds(RecipeSearchCriteria criteria) {
+        if (recipeIndex.isReady()) {
+            if (!criteria.hasQueryInstructions()) {
+                long[] ids = searchIndex(criteria).toArray();
+                recipeSearchReadModel.verify(criteria, ids);
+                return ids;
+            }
+            if (fullTextIndex.isReady()) {
+                long[] ids = fullTextIndex.search(criteria.queryInstructions(), searchIndex(criteria));
+                if (ids != null) {
+                    return ids;
+                }
+            }
+        }
+        return findIds(criteria, null, Integer.MAX_VALUE).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Returns one page of the search results in ascending id order, starting after the recipe with id {@code after}.
+     * Unlike {@link #searchRecipes(RecipeSearchCriteria)}, text matches are not ordered by relevance, so that the
+     * cursor stays stable between pages.
+     */
+    public RecipePageDto searchRecipes(RecipeSearchCriteria criteria, Long after, Integer limit) {
+        return searchRecipes(criteria, after, limit, true);
+    }
+
+    @Transactional(readOnly = true)
+    public RecipePageDto searchRecipes(RecipeSearchCriteria criteria, Long after, Integer limit, boolean includeInstructions) {
+        int pageSize = pageSize(limit);
+        if (recipeIndex.isReady()) {
+            Roaring64Bitmap matches = searchIndex(criteria);
+            if (!criteria.hasQueryInstructions()) {
+                return toPage(matches, after, pageSize, includeInstructions);
+            }
+            if (fullTextIndex.isReady()) {
+                long[] ids = fullTextIndex.search(criteria.queryInstructions(), matches);
+                if (ids != null) {
+                    return toPage(Roaring64Bitmap.bitmapOf(ids), after, pageSize, includeInstructions);
+                }
+            }
+        }
+        List<Long> ids = findIds(criteria, after, pageSize + 1);
+        return toPage(ids.stream().mapToLong(Long::longValue).toArray(), pageSize, includeInstructions);
+    }
+
+    /**
+     * Searches one page like {@link #searchRecipes(RecipeSearchCriteria, Long, Integer, boolean)} and counts the
+     * requested facets over all matches. When the in-memory indexes answer the search, the facets are aggregated over
+     * the same bitmap of matches the page is taken from, without loading any recipe; otherwise each facet is one grouped
+     * query with the search filters.
+     */
+    @Transactional(readOnly = true)
+    public RecipeSearchResultDto searchRecipes(RecipeSearchCriteria criteria, Long after, Integer limit,
+                                               boolean includeInstructions, Set<Facet> facets) {
+        return search(criteria, after, limit, true, includeInstructions, facets);
+    }
+
+    /**
+     * Searches like {@link #searchRecipes(RecipeSearchCriteria, boolean)}, returning all matches, and counts the
+     * requested facets over them.
+     */
+    @Transactional(readOnly = true)
+    public RecipeSearchResultDto searchRecipes(RecipeSearchCriteria criteria, boolean includeInstructions, Set<Facet> facets) {
+        return search(criteria, null, null, false, includeInstructions, facets);
+    }
 
-            query.distinct(true);
+    private RecipeSearchResultDto search(RecipeSearchCriteria criteria, Long after, Integer limit, boolean paged,
+                                         boolean includeInstructions, Set<Facet> facets) {
+        if (recipeIndex.isReady()) {
+            Roaring64Bitmap matches = searchIndex(criteria);
+            long[] ranked = null;
+            if (criteria.hasQueryInstructions()) {
+                ranked = fullTextIndex.isReady() ? fullTextIndex.search(criteria.queryInstructions(), matches) : null;
+                matches = ranked != null ? Roaring64Bitmap.bitmapOf(ranked) : null;
+            }
+            if (matches != null) {
+                RecipeFacetsDto counts = countFacets(matches, criteria, facets);
+                if (paged) {
+                    RecipePageDto page = toPage(matches, after, pageSize(limit), includeInstructions);
+                    return new RecipeSearchResultDto(page.recipes(), page.nextAfter(), counts);
+                }
+                List<RecipeDto> recipes = findRecipesByIds(ranked != null ? ranked : matches.toArray(), includeInstructions);
+                return new RecipeSearchResultDto(recipes, null, counts);
+            }
+        }
+
+        RecipeFacetsDto counts = countFacets(createSpecification(criteria), criteria, facets);
+        if (paged) {
+            RecipePageDto page = searchRecipes(criteria, after, limit, includeInstructions);
+            return new RecipeSearchResultDto(page.recipes(), page.nextAfter(), counts);
+        }
+        return new RecipeSearchResultDto(search(criteria, includeInstructions), null, counts);
+    }
+
+    private RecipeFacetsDto countFacets(Roaring64Bitmap matches, RecipeSearchCriteria criteria, Set<Facet> facets) {
+        long total = matches.getLongCardinality();
+        VegetarianCount vegetarian = null;
+        if (facets.contains(Facet.VEGETARIAN)) {
+            long count = recipeIndex.countVegetarian(matches);
+            vegetarian = new VegetarianCount(count, total - count);
+        }
+        Map<String, Long> servings = facets.contains(Facet.SERVINGS)
+                ? servingsBuckets(recipeIndex.countByServings(matches))
+                : null;
+        List<IngredientCount> ingredients = null;
+        Boolean ingredientsApproximate = null;
+        if (facets.contains(Facet.INGREDIENTS)) {
+            Set<Long> included = criteria.hasIncludedIngredients()
+                    ? ingredientMatcher.matchAll(criteria.includedIngredients())
+                    : Set.of();
+            RecipeProperties.Search.Facets settings = recipeProperties.getSearch().getFacets();
+            RecipeIndex.TopIngredients top = recipeIndex.topIngredients(matches, settings.getTopIngredients(),
+                    settings.getMaxScannedIngredients(), included);
+            Map<Long, String> names = ingredientDictionary.findNames(top.counts().keySet());
+            ingredients = top.counts().entrySet().stream()
+                    .map(entry -> new IngredientCount(entry.getKey(), names.get(entry.getKey()), entry.getValue()))
+                    .toList();
+            ingredientsApproximate = top.approximate();
+        }
+        return new RecipeFacetsDto(total, vegetarian, servings, ingredients, ingredientsApproximate);
+    }
+
+    private RecipeFacetsDto countFacets(Specification<Recipe> spec, RecipeSearchCriteria criteria, Set<Facet> facets) {
+        // The vegetarian counts also give the total
+        Map<Object, Long> byVegetarian = recipeRepository.countBy(spec, "isVegetarian");
+        long vegetarianCount = byVegetarian.getOrDefault(true, 0L);
+        long total = vegetarianCount + byVegetarian.getOrDefault(false, 0L);
+        VegetarianCount vegetarian = facets.contains(Facet.VEGETARIAN)
+                ? new VegetarianCount(vegetarianCount, total - vegetarianCount)
+                : null;
+        Map<String, Long> servings = null;
+        if (facets.contains(Facet.SERVINGS)) {
+            NavigableMap<Integer, Long> byServings = new TreeMap<>();
+            recipeRepository.countBy(spec, "servings").forEach((value, count) -> byServings.put((Integer) value, count));
+            servings = servingsBuckets(byServings);
+        }
+        List<IngredientCount> ingredients = null;
+        if (facets.contains(Facet.INGREDIENTS)) {
+            List<String> included = criteria.hasIncludedIngredients()
+                    ? criteria.includedIngredients().stream().flatMap(name -> ingredientMatcher.matchNames(name).stream()).toList()
+                    : List.of();
+            ingredients = recipeRepository.findTopIngredients(spec, included, recipeProperties.getSearch().getFacets().getTopIngredients())
+                    .stream()
+                    .map(row -> new IngredientCount((Long) row[0], (String) row[1], (Long) row[2]))
+                    .toList();
+        }
+        // Counted over every ingredient by the database, so never approximate
+        return new RecipeFacetsDto(total, vegetarian, servings, ingredients, ingredients != null ? false : null);
+    }
+
+    /**
+     * Sums the counts per number of servings into the configured buckets, like {@code 1-2}, {@code 3-4} and
+     * {@code 10+}, in ascending order and including empty buckets.
+     */
+    private Map<String, Long> servingsBuckets(NavigableMap<Integer, Long> countsByServings) {
+        List<Integer> bounds = recipeProperties.getSearch().getFacets().getServingsBuckets().stream().sorted().toList();
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < bounds.size(); i++) {
+            int from = bounds.get(i);
+            boolean last = i == bounds.size() - 1;
+            int to = last ? Integer.MAX_VALUE : bounds.get(i + 1) - 1;
+            String label = last ? from + "+" : from == to ? String.valueOf(from) : from + "-" + to;
+            buckets.put(label, countsByServings.subMap(from, true, to, true).values().stream().mapToLong(Long::longValue).sum());
+        }
+        return buckets;
+    }
+
+    /**
+     * Selects the ids of the matching recipes in SQL, from the search read model when it is ready and otherwise by
+     * joining the recipe tables.
+     */
+    private List<Long> findIds(RecipeSearchCriteria criteria, Long after, int limit) {
+        if (recipeSearchReadModel.isReady()) {
+            return recipeSearchReadModel.findIds(criteria, after, limit);
+        }
+        return recipeRepository.findIds(createSpecification(criteria), after, limit);
+    }
+
+    private int pageSize(Integer limit) {
+        RecipeProperties.Pagination pagination = recipeProperties.getPagination();
+        if (limit == null || limit <= 0) {
+            return pagination.getDefaultLimit();
+        }
+        return Math.min(limit, pagination.getMaxLimit());
+    }
+
+    private RecipePageDto toPage(Roaring64Bitmap matches, Long after, int pageSize, boolean includeInstructions) {
+        PeekableLongIterator iterator = after != null ? matches.getLongIteratorFrom(after + 1) : matches.getLongIterator();
+        long[] ids = new long[pageSize + 1];
+        int count = 0;
+        while (count < ids.length && iterator.hasNext()) {
+            ids[count++] = iterator.next();
+        }
+        return toPage(Arrays.copyOf(ids, count), pageSize, includeInstructions);
+    }
+
+    /**
+     * Builds a page from up to {@code pageSize + 1} ids; the extra id only signals that another page follows.
+     */
+    private RecipePageDto toPage(long[] ids, int pageSize, boolean includeInstructions) {
+        boolean hasNext = ids.length > pageSize;
+        long[] pageIds = hasNext ? Arrays.copyOf(ids, pageSize) : ids;
+        return new RecipePageDto(findRecipesByIds(pageIds, includeInstructions), hasNext ? pageIds[pageSize - 1] : null);
+    }
+
+    private Roaring64Bitmap searchIndex(RecipeSearchCriteria criteria) {
+        List<Set<Long>> includedIngredientIds = criteria.hasIncludedIngredients()
+                ? criteria.includedIngredients().stream()
+                .map(name -> ingredientMatcher.match(name).keySet())
+                .collect(Collectors.toList())
+                : null;
+        Set<Long> excludedIngredientIds = criteria.hasExcludedIngredients()
+                ? ingredientMatcher.matchAll(criteria.excludedIngredients())
+                : null;
+        return recipeIndex.search(criteria.isVegetarian(), criteria.minServings(), criteria.maxServings(),
+                includedIngredientIds, criteria.ingredientMatch(), excludedIngredientIds);
+    }
+
+    /**
+     * Loads the given recipes with their ingredients, in the order of the given ids. Recipe rows and ingredient names
+     * are selected as projections, so nothing enters the persistence context and the rows go straight into DTOs.
+     */
+    private List<RecipeDto> findRecipesByIds(long[] ids, boolean includeInstructions) {
+        List<RecipeDto> recipes = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += HYDRATION_BATCH_SIZE) {
+            List<Long> batch = Arrays.stream(ids, from, Math.min(from + HYDRATION_BATCH_SIZE, ids.length)).boxed().toList();
+            List<RecipeRow> rows = includeInstructions
+                    ? recipeRepository.findRowsByIdIn(batch)
+                    : recipeRepository.findRowsWithoutInstructionsByIdIn(batch);
+            Map<Long, RecipeRow> loaded = rows.stream().collect(Collectors.toMap(RecipeRow::id, row -> row));
+            Map<Long, Set<IngredientDto>> ingredients = groupIngredients(recipeRepository.findIngredientNamesByRecipeIdIn(batch));
+            batch.stream()
+                    .map(loaded::get)
+                    .filter(Objects::nonNull)
+                    .map(row -> row.toDto(ingredients.getOrDefault(row.id(), new HashSet<>())))
+                    .forEach(recipes::add);
+        }
+        return recipes;
+    }
+
+    /**
+     * Groups rows of [recipe id, ingredient id, ingredient name] by recipe.
+     */
+    private static Map<Long, Set<IngredientDto>> groupIngredients(List<Object[]> rows) {
+        Map<Long, Set<IngredientDto>> ingredients = new HashMap<>();
+        for (Object[] row : rows) {
+            ingredients.computeIfAbsent((Long) row[0], key -> new HashSet<>()).add(new IngredientDto((Long) row[1], (String) row[2]));
+        }
+        return ingredients;
+    }
+
+    private Specification<Recipe> createSpecification(RecipeSearchCriteria criteria) {
+        // Resolved once here rather than in the lambda, which runs again for every query built from it, count queries included
+        // The lower-cased names each included name stands for, for case-insensitive comparison
+        List<List<String>> includedNames = criteria.hasIncludedIngredients()
+                ? criteria.includedIngredients().stream().map(ingredientMatcher::matchNames).toList()
+                : List.of();
+        List<String> lowercaseExcludedIngredients = criteria.hasExcludedIngredients()
+                ? criteria.excludedIngredients().stream().flatMap(name -> ingredientMatcher.matchNames(name).stream()).toList()
+                : List.of();
+
+        return (root, query, criteriaBuilder) -> {
 
             List<Predicate> predicates = new ArrayList<>();
 
-            if (isVegetarian != null) {
-                predicates.add(criteriaBuilder.equal(root.get("isVegetarian"), isVegetarian));
+            if (criteria.isVegetarian() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("isVegetarian"), criteria.isVegetarian()));
             }
 
+            Integer minServings = criteria.minServings();
+            Integer maxServings = criteria.maxServings();
             if (minServings != null && maxServings != null) {
                 predicates.add(criteriaBuilder.between(root.get("servings"), minServings, maxServings));
             } else if (minServings != null) {
@@ -108,80 +570,244 @@ public class RecipeService {
                 predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("servings"), maxServings));
             }
 
-            if (includedIngredients != null && !includedIngredients.isEmpty()) {
-                // Convert all included ingredients to lowercase for case-insensitive comparison
-                List<String> lowercaseIncludedIngredients = includedIngredients.stream().map(String::toLowerCase).collect(Collectors.toList());
-                // Join with ingredients and perform a case-insensitive check
-                predicates.add(root.join("ingredients").get("name").as(String.class).in(lowercaseIncludedIngredients));
+            if (criteria.hasIncludedIngredients()) {
+                if (criteria.ingredientMatch() == RecipeSearchCriteria.IngredientMatch.ALL) {
+                    // One membership check per ingredient, so the recipe has to contain every one of them
+                    includedNames.forEach(names ->
+                            predicates.add(root.get("id").in(recipesWithIngredients(query, names))));
+                } else {
+                    // A membership check instead of a join, so a recipe with several matching ingredients is returned once
+                    predicates.add(root.get("id").in(recipesWithIngredients(query,
+                            includedNames.stream().flatMap(List::stream).toList())));
+                }
             }
 
-            if (excludedIngredients != null && !excludedIngredients.isEmpty()) {
-                List<String> lowercaseExcludedIngredients = excludedIngredients.stream().map(String::toLowerCase).collect(Collectors.toList());
-
-                Subquery<Recipe> excludedRecipesSubquery = query.subquery(Recipe.class);
-                Root<Recipe> subqueryRoot = excludedRecipesSubquery.from(Recipe.class);
-                Join<Recipe, Ingredient> excludedIngredientsJoin = subqueryRoot.join("ingredients");
-
-                excludedRecipesSubquery.select(subqueryRoot)
-                        .where(excludedIngredientsJoin.get("name").as(String.class).in(lowercaseExcludedIngredients));
-
+            if (criteria.hasExcludedIngredients()) {
                 // Ensure the main query excludes recipes that match the subquery
-                predicates.add(criteriaBuilder.not(root.in(excludedRecipesSubquery)));
+                predicates.add(criteriaBuilder.not(root.get("id").in(recipesWithIngredients(query, lowercaseExcludedIngredients))));
             }
 
-            if (queryInstructions != null && !queryInstructions.isBlank()) {
+            if (criteria.hasQueryInstructions()) {
                 // Ensure the explicit casting of the 'instructions' attribute to String.
                 Expression<String> instructions = root.get("instructions").as(String.class);
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(instructions), "%" + queryInstructions.toLowerCase() + "%"));
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(instructions), "%" + criteria.queryInstructions().toLowerCase(Locale.ROOT) + "%"));
             }
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
 
-    @Transactional
+    /**
+     * Ids of the recipes containing any of the given ingredients. The subquery starts from the ingredient names, so it
+     * reads the unique index on {@code ingredients.name} and then the reverse index on {@code recipe_ingredients}.
+     */
+    private Subquery<Long> recipesWithIngredients(CriteriaQuery<?> query, List<String> ingredientNames) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<Ingredient> subqueryRoot = subquery.from(Ingredient.class);
+        Join<Ingredient, Recipe> recipesJoin = subqueryRoot.join("recipes");
+        return subquery.select(recipesJoin.get("id"))
+                .where(subqueryRoot.get("name").in(ingredientNames));
+    }
+
     public RecipeDto updateRecipe(Long recipeId, RecipeDto recipeDto) {
-        Recipe recipe = recipeRepository.findById(recipeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with id: " + recipeId));
+        return updateRecipe(recipeId, recipeDto, null);
+    }
+
+    /**
+     * Replaces the recipe. When {@code expectedVersion} is given, the update is rejected with a
+     * {@link PreconditionFailedException} unless the recipe still has that version.
+     */
+    public RecipeDto updateRecipe(Long recipeId, RecipeDto recipeDto, Long expectedVersion) {
+        return write(status -> update(recipeId, recipeDto, expectedVersion));
+    }
+
+    private RecipeDto update(Long recipeId, RecipeDto recipeDto, Long expectedVersion) {
+        Recipe recipe = findForUpdate(recipeId, expectedVersion);
+
+        RecipeSnapshot before = RecipeSnapshot.of(recipe);
 
-        // Update recipe properties
+        // Update recipe properties; unchanged values leave the entity clean, so no UPDATE is issued
         recipe.setName(recipeDto.name());
         recipe.setVegetarian(recipeDto.isVegetarian());
         recipe.setServings(recipeDto.servings());
         recipe.setInstructions(recipeDto.instructions());
 
-        // Existing ingredients in the recipe
-        Set<String> existingIngredientNames = recipe.getIngredients().stream()
-                .map(Ingredient::getName)
-                .collect(Collectors.toSet());
+        replaceIngredients(recipe, resolveIngredients(ingredientsOf(recipeDto)));
 
-        // DTO ingredients that need to be added or already exist in the recipe
-        Set<Ingredient> updatedIngredients = recipeDto.ingredients().stream()
-                .map(dto -> dto.name().toLowerCase())
-                .distinct()
-                .map(name -> ingredientRepository.findByName(name)
-                        .orElseGet(() -> {
-                            Ingredient newIngredient = new Ingredient();
-                            newIngredient.setName(name);
-                            return ingredientRepository.save(newIngredient);
-                        }))
-                .collect(Collectors.toSet());
+        // The recipe is managed, so it is flushed rather than saved; save() would merge every ingredient reference
+        flush(recipe, expectedVersion);
+        publishUpdate(before, recipe);
+        return recipeMapper.map(recipe);
+    }
+
+    /**
+     * Applies the non-null fields of the patch to the recipe. Only the changed columns and ingredient links are
+     * written.
+     */
+    public RecipeDto patchRecipe(Long recipeId, RecipePatchDto patch) {
+        return patchRecipe(recipeId, patch, null);
+    }
+
+    public RecipeDto patchRecipe(Long recipeId, RecipePatchDto patch, Long expectedVersion) {
+        return write(status -> patch(recipeId, patch, expectedVersion));
+    }
 
-        // Determine ingredients to remove based on the updated list
-        recipe.getIngredients().removeIf(ingredient -> !updatedIngredients.contains(ingredient));
+    private RecipeDto patch(Long recipeId, RecipePatchDto patch, Long expectedVersion) {
+        Recipe recipe = findForUpdate(recipeId, expectedVersion);
+        String error = validate(recipe, patch);
+        if (error != null) {
+            throw new InvalidRecipeException(error);
+        }
+
+        RecipeSnapshot before = RecipeSnapshot.of(recipe);
+
+        if (patch.name() != null) {
+            recipe.setName(patch.name());
+        }
+        if (patch.isVegetarian() != null) {
+            recipe.setVegetarian(patch.isVegetarian());
+        }
+        if (patch.servings() != null) {
+            recipe.setServings(patch.servings());
+        }
+        if (patch.instructions() != null) {
+            recipe.setInstructions(patch.instructions());
+        }
+        if (patch.ingredients() != null) {
+            replaceIngredients(recipe, resolveIngredients(patch.ingredients()));
+        }
+        if (patch.removedIngredients() != null) {
+            Set<String> removed = lowercaseNames(patch.removedIngredients());
+            recipe.getIngredients().removeIf(ingredient -> removed.contains(ingredient.getName().toLowerCase(Locale.ROOT)));
+        }
+        if (patch.addedIngredients() != null) {
+            recipe.getIngredients().addAll(resolveIngredients(patch.addedIngredients()));
+        }
+
+        flush(recipe, expectedVersion);
+        publishUpdate(before, recipe);
+        return recipeMapper.map(recipe);
+    }
+
+    /**
+     * Checks the recipe as the patch would leave it: its fields, every ingredient the patch names and the ingredients
+     * it ends up with. Removing an ingredient the recipe does not have is rejected rather than ignored, and a patch
+     * that changes the ingredients has to leave at least one.
+     */
+    private static String validate(Recipe recipe, RecipePatchDto patch) {
+        String error = validate(patched(recipe, patch));
+        if (error != null) {
+            return error;
+        }
+        Set<String> names = patch.ingredients() != null
+                ? lowercaseNames(patch.ingredients())
+                : recipe.getIngredients().stream().map(ingredient -> ingredient.getName().toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        if (patch.removedIngredients() != null) {
+            for (IngredientDto removed : patch.removedIngredients()) {
+                if (!names.remove(removed.name().toLowerCase(Locale.ROOT))) {
+                    return "Recipe has no ingredient " + removed.name();
+                }
+            }
+        }
+        if (patch.addedIngredients() != null) {
+            names.addAll(lowercaseNames(patch.addedIngredients()));
+        }
+        if (names.isEmpty() && (patch.ingredients() != null || patch.removedIngredients() != null)) {
+            return "Recipe must keep at least one ingredient";
+        }
+        return null;
+    }
+
+    /**
+     * The recipe as the patch would leave it, for validating its fields. Its ingredients are those the patch names, so
+     * that each of them is checked; the ingredients the recipe already has are valid.
+     */
+    private static RecipeDto patched(Recipe recipe, RecipePatchDto patch) {
+        Set<IngredientDto> ingredients = new HashSet<>();
+        Stream.of(patch.ingredients(), patch.addedIngredients(), patch.removedIngredients())
+                .filter(Objects::nonNull)
+                .forEach(ingredients::addAll);
+        return new RecipeDto(recipe.getId(),
+                patch.name() != null ? patch.name() : recipe.getName(),
+                patch.isVegetarian() != null ? patch.isVegetarian() : recipe.isVegetarian(),
+                patch.servings() != null ? patch.servings() : recipe.getServings(),
+                patch.instructions() != null ? patch.instructions() : recipe.getInstructions(),
+                ingredients);
+    }
 
-        // Add or retain ingredients from the DTO
-        recipe.setIngredients(updatedIngredients);
+    private static Set<String> lowercaseNames(Collection<IngredientDto> ingredients) {
+        return ingredients.stream().map(ingredient -> ingredient.name().toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+    }
+
+    /**
+     * Runs a write that may create ingredients in a transaction, joining the caller's transaction if there is one. When
+     * it started the transaction and a concurrent write created one of the same ingredients first, the write is retried
+     * once; the retry finds the committed ingredient. The transaction enters the {@link RecipeWriteFence} first.
+     */
+    private <T> T write(TransactionCallback<T> work) {
+        TransactionCallback<T> fenced = status -> {
+            recipeWriteFence.enter();
+            return work.doInTransaction(status);
+        };
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transaction.execute(fenced);
+        }
+        try {
+            return transaction.execute(fenced);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Recipe write conflicted with a concurrent write, retrying", e);
+            return transaction.execute(fenced);
+        }
+    }
+
+    private Recipe findForUpdate(Long recipeId, Long expectedVersion) {
+        Recipe recipe = recipeRepository.findById(recipeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with id: " + recipeId));
+        if (expectedVersion != null && recipe.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Recipe " + recipeId + " has version " + recipe.getVersion() + ", expected " + expectedVersion);
+        }
+        return recipe;
+    }
+
+    /**
+     * Writes the changes now, so that the returned version is current and a concurrent update is reported instead of
+     * failing the commit. The version check in the UPDATE statement detects an update committed since the recipe was
+     * read.
+     */
+    private void flush(Recipe recipe, Long expectedVersion) {
+        try {
+            recipeRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            String message = "Recipe " + recipe.getId() + " was changed by another request";
+            throw expectedVersion != null ? new PreconditionFailedException(message) : new ConflictException(message);
+        }
+    }
+
+    /**
+     * Changes the ingredient set in place. Hibernate then only deletes and inserts the {@code recipe_ingredients} rows
+     * that changed, whereas replacing the collection makes it delete and re-insert every link of the recipe.
+     */
+    private static void replaceIngredients(Recipe recipe, Set<Ingredient> ingredients) {
+        recipe.getIngredients().retainAll(ingredients);
+        recipe.getIngredients().addAll(ingredients);
+    }
 
-        Recipe updatedRecipe = recipeRepository.save(recipe);
-        return recipeMapper.map(updatedRecipe);
+    // Called after the flush, so the snapshot carries the incremented version
+    private void publishUpdate(RecipeSnapshot before, Recipe recipe) {
+        RecipeSnapshot after = RecipeSnapshot.of(recipe);
+        if (!after.equals(before)) {
+            eventPublisher.publishEvent(RecipeChangedEvent.updated(before, after));
+        }
     }
 
     @Transactional
     public void deleteRecipe(Long recipeId) {
+        recipeWriteFence.enter();
         Recipe recipe = recipeRepository.findById(recipeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with id: " + recipeId));
+        RecipeSnapshot before = RecipeSnapshot.of(recipe);
         recipeRepository.delete(recipe);
+        eventPublisher.publishEvent(RecipeChangedEvent.deleted(before));
     }
 
 }
@@ -0,0 +1,108 @@
+package thijs.abn.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeImportItemDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.model.RecipeStreamImportResultDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports recipes from a JSON array or from newline-delimited JSON without materialising the whole document. Records
+ * are read one at a time with a {@link JsonParser} and committed in chunks through {@link RecipeService#createRecipes},
+ * so heap usage is bounded by the chunk size. An interrupted upload can be resumed by passing the reported
+ * {@code committed} count as {@code skip}.
+ */
+@Service
+public class RecipeStreamImporter {
+
+    private final RecipeService recipeService;
+    private final ObjectMapper objectMapper;
+    private final RecipeProperties recipeProperties;
+
+    private final Logger log = LoggerFactory.getLogger(RecipeStreamImporter.class);
+
+    @Autowired
+    public RecipeStreamImporter(RecipeService recipeService, ObjectMapper objectMapper, RecipeProperties recipeProperties) {
+        this.recipeService = recipeService;
+        this.objectMapper = objectMapper;
+        this.recipeProperties = recipeProperties;
+    }
+
+    public RecipeStreamImportResultDto importStream(InputStream inputStream, long skip) {
+        int chunkSize = Math.max(1, recipeProperties.getImport().getBatchSize());
+        int maxReportedRejections = recipeProperties.getImport().getMaxReportedRejections();
+
+        List<RecipeDto> chunk = new ArrayList<>(chunkSize);
+        List<RecipeImportItemDto> rejections = new ArrayList<>();
+        long position = 0;
+        long committed = 0;
+        long created = 0;
+        long rejected = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a recipe object at record " + position + " but found " + token);
+                }
+                if (position < skip) {
+                    parser.skipChildren();
+                    position++;
+                    // Skipped records were committed by the earlier upload, so a resume point never falls behind them
+                    committed = position;
+                } else {
+                    chunk.add(objectMapper.readValue(parser, RecipeDto.class));
+                    position++;
+                }
+
+                if (chunk.size() == chunkSize) {
+                    RecipeImportResultDto result = commit(chunk, position - chunk.size(), rejections, maxReportedRejections);
+                    created += result.created();
+                    rejected += result.rejected();
+                    committed = position;
+                }
+                token = parser.nextToken();
+            }
+
+            if (!chunk.isEmpty()) {
+                RecipeImportResultDto result = commit(chunk, position - chunk.size(), rejections, maxReportedRejections);
+                created += result.created();
+                rejected += result.rejected();
+            }
+            committed = position;
+            return new RecipeStreamImportResultDto(committed, Math.min(skip, position), created, rejected, rejections, null);
+        } catch (IOException | RuntimeException e) {
+            log.error("Streaming import aborted after {} committed records", committed, e);
+            return new RecipeStreamImportResultDto(committed, Math.min(skip, position), created, rejected, rejections, e.getMessage());
+        }
+    }
+
+    private RecipeImportResultDto commit(List<RecipeDto> chunk, long offset, List<RecipeImportItemDto> rejections, int maxReportedRejections) {
+        RecipeImportResultDto result = recipeService.createRecipes(chunk);
+        for (RecipeImportItemDto item : result.items()) {
+            if (item.status() != RecipeImportItemDto.Status.CREATED && rejections.size() < maxReportedRejections) {
+                rejections.add(new RecipeImportItemDto((int) (offset + item.index()), item.name(), null, item.status(), item.message()));
+            }
+        }
+        log.debug("Committed records {} to {}", offset, offset + chunk.size());
+        chunk.clear();
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package thijs.abn.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import thijs.abn.exception.ServiceUnavailableException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps recipe writes out of maintenance that replaces the catalogue, like restoring a snapshot.
+ * <p>
+ * Every transaction that writes recipes or ingredients {@link #enter() enters} the fence before its first write and
+ * leaves it when it completes. {@link #close()} waits for those transactions to finish; from then until
+ * {@link #open()}, and while it waits, a write is rejected with a {@link ServiceUnavailableException}. The write queue
+ * retries such writes, so they are applied once the fence is open again.
+ */
+@Component
+public class RecipeWriteFence {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Enters the fence until the current transaction completes, or only checks that it is open outside a transaction.
+     *
+     * @throws ServiceUnavailableException when the fence is closed or about to close
+     */
+    public void enter() {
+        if (TransactionSynchronizationManager.hasResource(lock)) {
+            return;
+        }
+        boolean entered;
+        try {
+            // Unlike tryLock(), this does not barge past a close() that is already waiting
+            entered = lock.readLock().tryLock(0, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entered = false;
+        }
+        if (!entered) {
+            throw new ServiceUnavailableException("The recipe catalogue is being replaced, retry later");
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock.readLock().unlock();
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(lock, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(lock);
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Rejects new recipe writes and waits for the running ones to complete. Must be followed by {@link #open()} on the
+     * same thread.
+     */
+    public void close() {
+        lock.writeLock().lock();
+    }
+
+    public void open() {
+        lock.writeLock().unlock();
+    }
+
+    public boolean isClosed() {
+        return lock.isWriteLocked();
+    }
+}
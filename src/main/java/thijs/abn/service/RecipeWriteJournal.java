@@ -0,0 +1,213 @@
+package thijs.abn.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipePatchDto;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Append-only journal of the writes accepted by {@link RecipeWriteQueue}, one JSON entry per line. A write is appended
+ * and synced before it is acknowledged and marked done once it is committed; on start-up the writes without a done
+ * marker are replayed. The journal is truncated whenever every write in it is done.
+ * <p>
+ * Appending and syncing are separate steps: entries are appended in order under the journal's lock, and one
+ * {@code fsync} then covers every entry appended before it, so concurrent writers share a sync instead of queueing
+ * behind one each.
+ */
+class RecipeWriteJournal implements Closeable {
+
+    enum Type {CREATE, UPDATE, PATCH, DELETE, DONE}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(Type type, String writeId, Long recipeId, Long expectedVersion, RecipeDto recipe, RecipePatchDto patch) {
+
+        static Entry create(String writeId, RecipeDto recipe) {
+            return new Entry(Type.CREATE, writeId, null, null, recipe, null);
+        }
+
+        static Entry update(String writeId, Long recipeId, Long expectedVersion, RecipeDto recipe) {
+            return new Entry(Type.UPDATE, writeId, recipeId, expectedVersion, recipe, null);
+        }
+
+        static Entry patch(String writeId, Long recipeId, Long expectedVersion, RecipePatchDto patch) {
+            return new Entry(Type.PATCH, writeId, recipeId, expectedVersion, null, patch);
+        }
+
+        static Entry delete(String writeId, Long recipeId) {
+            return new Entry(Type.DELETE, writeId, recipeId, null, null, null);
+        }
+
+        static Entry done(String writeId) {
+            return new Entry(Type.DONE, writeId, null, null, null, null);
+        }
+    }
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+
+    // Number of appends so far, and of those known to be on disk
+    private long appended;
+    private volatile long synced;
+
+    RecipeWriteJournal(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Opens the journal and returns the writes that were journaled but never marked done, in their original order.
+     * The journal is rewritten to contain only those writes.
+     */
+    synchronized List<Entry> open() {
+        try {
+            Map<String, Entry> pending = new LinkedHashMap<>();
+            if (Files.exists(path)) {
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Entry entry = parse(line);
+                        if (entry == null) {
+                            continue;
+                        }
+                        if (entry.type() == Type.DONE) {
+                            pending.remove(entry.writeId());
+                        } else {
+                            pending.put(entry.writeId(), entry);
+                        }
+                    }
+                }
+            } else if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+
+            Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Entry entry : pending.values()) {
+                    out.write(line(entry));
+                }
+                out.force(true);
+            }
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return new ArrayList<>(pending.values());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write journal " + path, e);
+        }
+    }
+
+    /**
+     * Writes the entry without syncing it, and returns the sequence number to pass to {@link #sync(long)} before the
+     * write is acknowledged.
+     */
+    long append(Entry entry) {
+        return write(List.of(entry));
+    }
+
+    void markDone(Collection<String> writeIds) {
+        if (writeIds.isEmpty()) {
+            return;
+        }
+        sync(write(writeIds.stream().map(Entry::done).toList()));
+    }
+
+    /**
+     * Returns once the append with the given sequence number is on disk. A sync started by another thread after that
+     * append covers it too; otherwise this thread syncs every append made so far.
+     */
+    void sync(long sequence) {
+        if (synced >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= sequence) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = appended;
+                current = channel;
+            }
+            if (current == null) {
+                throw new IllegalStateException("Write journal " + path + " is not open");
+            }
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot sync write journal " + path, e);
+            }
+            synced = target;
+        }
+    }
+
+    /**
+     * Empties the journal once every write in it is done. It is not synced: should the truncation be lost in a crash,
+     * the done markers still keep the writes from being replayed.
+     */
+    synchronized void truncate() {
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot truncate write journal " + path, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private synchronized long write(List<Entry> entries) {
+        if (channel == null) {
+            throw new IllegalStateException("Write journal " + path + " is not open");
+        }
+        try {
+            for (Entry entry : entries) {
+                ByteBuffer buffer = line(entry);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            return ++appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to write journal " + path, e);
+        }
+    }
+
+    private ByteBuffer line(Entry entry) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(entry);
+        return ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+    }
+
+    private Entry parse(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(line, Entry.class);
+        } catch (IOException e) {
+            // A line cut short by a crash; the write was never acknowledged
+            return null;
+        }
+    }
+}
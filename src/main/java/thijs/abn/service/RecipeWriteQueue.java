@@ -0,0 +1,369 @@
+package thijs.abn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.exception.InvalidRecipeException;
+import thijs.abn.exception.PreconditionFailedException;
+import thijs.abn.exception.ResourceNotFoundException;
+import thijs.abn.exception.ServiceUnavailableException;
+import thijs.abn.exception.TooManyRequestsException;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeImportItemDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.model.RecipePatchDto;
+import thijs.abn.model.RecipeWriteStatusDto;
+import thijs.abn.repository.RecipeRepository;
+import thijs.abn.service.RecipeWriteJournal.Entry;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous write path, used when {@code recipes.write-queue.enabled} is set. Creates, updates, patches and deletes
+ * are validated, journaled and queued, and the request is answered right away. A single writer thread takes the queued
+ * writes in batches: the creates of a batch are written by one {@link RecipeService#createRecipes} call per
+ * {@code recipes.import.batch-size} chunk, and the changes to existing recipes in one transaction, in the order they
+ * were accepted. An unconditional update is skipped when a later unconditional update of the same recipe follows it;
+ * a conditional one is always written, so a stale If-Match is reported as a failed precondition. When a batch fails,
+ * its writes are repeated one by one, and a write that fails for a transient reason stays journaled and is retried.
+ * The later changes of its recipe wait behind it, so they are still applied in the order they were accepted.
+ * <p>
+ * Writes are accepted once the journal is open and its pending writes are replayed; until then, and after shutdown,
+ * they are rejected with 503.
+ */
+@Component
+public class RecipeWriteQueue {
+
+    private final RecipeService recipeService;
+    private final RecipeRepository recipeRepository;
+    private final TransactionTemplate transaction;
+    private final RecipeProperties.WriteQueue settings;
+    private final int importBatchSize;
+    private final RecipeWriteJournal journal;
+    private final BlockingQueue<Entry> queue;
+    private final Map<String, RecipeWriteStatusDto> statuses;
+
+    private final Logger log = LoggerFactory.getLogger(RecipeWriteQueue.class);
+
+    // Writes that failed for a transient reason, in their original order; only touched by the writer
+    private final Deque<Entry> retries = new ArrayDeque<>();
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public RecipeWriteQueue(RecipeService recipeService, RecipeRepository recipeRepository,
+                            PlatformTransactionManager transactionManager, RecipeProperties recipeProperties,
+                            ObjectMapper objectMapper) {
+        this.recipeService = recipeService;
+        this.recipeRepository = recipeRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.settings = recipeProperties.getWriteQueue();
+        this.importBatchSize = Math.max(1, recipeProperties.getImport().getBatchSize());
+        this.journal = new RecipeWriteJournal(settings.getJournal(), objectMapper);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getCapacity()));
+        int maxTrackedWrites = Math.max(settings.getCapacity(), settings.getMaxTrackedWrites());
+        this.statuses = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecipeWriteStatusDto> eldest) {
+                return size() > maxTrackedWrites;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    public RecipeWriteStatusDto submitCreate(RecipeDto recipeDto) {
+        validate(recipeDto);
+        return submit(Entry.create(UUID.randomUUID().toString(), recipeDto));
+    }
+
+    public RecipeWriteStatusDto submitUpdate(Long recipeId, RecipeDto recipeDto, Long expectedVersion) {
+        validate(recipeDto);
+        requireExists(recipeId);
+        return submit(Entry.update(UUID.randomUUID().toString(), recipeId, expectedVersion, recipeDto));
+    }
+
+    /**
+     * Queues a patch. It can only be validated against the recipe when it is written; an invalid patch then fails.
+     */
+    public RecipeWriteStatusDto submitPatch(Long recipeId, RecipePatchDto patch, Long expectedVersion) {
+        requireExists(recipeId);
+        return submit(Entry.patch(UUID.randomUUID().toString(), recipeId, expectedVersion, patch));
+    }
+
+    public RecipeWriteStatusDto submitDelete(Long recipeId) {
+        requireExists(recipeId);
+        return submit(Entry.delete(UUID.randomUUID().toString(), recipeId));
+    }
+
+    public Optional<RecipeWriteStatusDto> getStatus(String writeId) {
+        return Optional.ofNullable(statuses.get(writeId));
+    }
+
+    /**
+     * Replays the writes that were acknowledged before the last shutdown but never committed, then starts the writer.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        recover();
+        running = true;
+        writer = new Thread(this::run, "recipe-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        accepting = false;
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        journal.close();
+    }
+
+    void recover() {
+        List<Entry> pending = journal.open();
+        for (Entry entry : pending) {
+            statuses.put(entry.writeId(), RecipeWriteStatusDto.queued(entry.writeId(), entry.recipeId()));
+            if (!queue.offer(entry)) {
+                // More pending writes than the queue holds, for example after lowering the capacity
+                drainOnce();
+                queue.add(entry);
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} journaled recipe writes", pending.size());
+        }
+        accepting = true;
+    }
+
+    /**
+     * Writes one batch of queued writes, if any, and returns its size.
+     */
+    int drainOnce() {
+        Entry first = queue.poll();
+        return first == null && retries.isEmpty() ? 0 : write(first);
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                // Writes that failed for a transient reason are retried with the next batch, or after a second
+                Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null || !retries.isEmpty()) {
+                    write(first);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Recipe writer failed", e);
+            }
+        }
+    }
+
+    private RecipeWriteStatusDto submit(Entry entry) {
+        if (!accepting) {
+            throw new ServiceUnavailableException("The write queue is not running, retry later");
+        }
+        RecipeWriteStatusDto status = RecipeWriteStatusDto.queued(entry.writeId(), entry.recipeId());
+        long sequence;
+        // Only the writer takes from the queue, so a write that fits now still fits once it is journaled
+        synchronized (queue) {
+            if (queue.remainingCapacity() == 0) {
+                throw new TooManyRequestsException("The write queue is full, retry later");
+            }
+            sequence = journal.append(entry);
+            statuses.put(entry.writeId(), status);
+            queue.add(entry);
+        }
+        // Outside the monitor, so that writes submitted meanwhile are synced together
+        journal.sync(sequence);
+        return status;
+    }
+
+    /**
+     * Writes the retried writes and the given queued write, plus as many further queued writes as fit in a batch.
+     * Creates and changes to existing recipes are written separately, so a failure of one does not fail the other. Only writes that were
+     * committed, superseded or permanently rejected are marked done in the journal; the others are retried.
+     */
+    private int write(Entry first) {
+        List<Entry> batch = new ArrayList<>(retries);
+        retries.clear();
+        if (first != null) {
+            batch.add(first);
+        }
+        queue.drainTo(batch, Math.max(0, Math.max(1, settings.getMaxBatchSize()) - batch.size()));
+
+        List<String> done = new ArrayList<>();
+        writeCreates(batch.stream().filter(entry -> entry.type() == RecipeWriteJournal.Type.CREATE).toList(), done);
+        writeChanges(batch.stream().filter(entry -> entry.type() != RecipeWriteJournal.Type.CREATE).toList(), done);
+
+        journal.markDone(done);
+        synchronized (queue) {
+            if (queue.isEmpty() && retries.isEmpty()) {
+                journal.truncate();
+            }
+        }
+        return batch.size();
+    }
+
+    private void writeCreates(List<Entry> creates, List<String> done) {
+        // One chunk per createRecipes call, so a failing chunk is all that is rewritten one by one
+        for (int from = 0; from < creates.size(); from += importBatchSize) {
+            writeChunk(creates.subList(from, Math.min(from + importBatchSize, creates.size())), done);
+        }
+    }
+
+    private void writeChunk(List<Entry> creates, List<String> done) {
+        try {
+            completeCreates(creates, recipeService.createRecipes(creates.stream().map(Entry::recipe).toList()), done);
+        } catch (RuntimeException e) {
+            // The chunk rolled back as a whole; write the recipes one by one to isolate the failure
+            log.debug("Batched create failed, writing {} creates individually", creates.size(), e);
+            for (Entry create : creates) {
+                try {
+                    completeCreates(List.of(create), recipeService.createRecipes(List.of(create.recipe())), done);
+                } catch (RuntimeException createFailure) {
+                    failed(create, createFailure, done);
+                }
+            }
+        }
+    }
+
+    private void completeCreates(List<Entry> creates, RecipeImportResultDto result, List<String> done) {
+        for (RecipeImportItemDto item : result.items()) {
+            String writeId = creates.get(item.index()).writeId();
+            statuses.put(writeId, item.status() == RecipeImportItemDto.Status.CREATED
+                    ? RecipeWriteStatusDto.done(writeId, item.id())
+                    : RecipeWriteStatusDto.failed(writeId, null, item.message()));
+            done.add(writeId);
+        }
+    }
+
+    private void writeChanges(List<Entry> changes, List<String> done) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        // Walk backwards: an unconditional update overwrites every earlier unconditional update or patch of the same
+        // recipe. Conditional writes are never skipped, so their version check still runs
+        Deque<Entry> effective = new ArrayDeque<>();
+        Set<Long> overwritten = new HashSet<>();
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            Entry change = changes.get(i);
+            boolean unconditional = change.expectedVersion() == null;
+            if (unconditional && change.type() != RecipeWriteJournal.Type.DELETE && overwritten.contains(change.recipeId())) {
+                statuses.put(change.writeId(), RecipeWriteStatusDto.superseded(change.writeId(), change.recipeId()));
+                done.add(change.writeId());
+                continue;
+            }
+            effective.addFirst(change);
+            if (change.type() == RecipeWriteJournal.Type.UPDATE && unconditional) {
+                overwritten.add(change.recipeId());
+            } else if (change.type() == RecipeWriteJournal.Type.DELETE) {
+                // Whatever follows a delete fails on the missing recipe, so nothing before it may be skipped for it
+                overwritten.remove(change.recipeId());
+            }
+        }
+
+        try {
+            transaction.executeWithoutResult(status -> effective.forEach(this::apply));
+            effective.forEach(change -> {
+                statuses.put(change.writeId(), RecipeWriteStatusDto.done(change.writeId(), change.recipeId()));
+                done.add(change.writeId());
+            });
+        } catch (RuntimeException e) {
+            // One change failed and rolled back the batch; write them one by one to isolate it
+            log.debug("Batched change failed, writing {} changes individually", effective.size());
+            Set<Long> waiting = new HashSet<>();
+            for (Entry change : effective) {
+                // A later change must not overtake an earlier one of the same recipe that is waiting for a retry
+                if (waiting.contains(change.recipeId())) {
+                    retries.add(change);
+                    continue;
+                }
+                try {
+                    apply(change);
+                    statuses.put(change.writeId(), RecipeWriteStatusDto.done(change.writeId(), change.recipeId()));
+                    done.add(change.writeId());
+                } catch (RuntimeException changeFailure) {
+                    if (failed(change, changeFailure, done)) {
+                        waiting.add(change.recipeId());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a write that failed on its own. A transient failure, such as a lost connection or a lock timeout, leaves
+     * the write queued and journaled for a retry; any other failure rejects it for good. Returns whether it is retried.
+     */
+    private boolean failed(Entry entry, RuntimeException failure, List<String> done) {
+        if (isTransient(failure)) {
+            log.warn("Recipe write {} failed, retrying: {}", entry.writeId(), failure.getMessage());
+            retries.add(entry);
+            return true;
+        }
+        statuses.put(entry.writeId(), failure instanceof PreconditionFailedException
+                ? RecipeWriteStatusDto.preconditionFailed(entry.writeId(), entry.recipeId(), failure.getMessage())
+                : RecipeWriteStatusDto.failed(entry.writeId(), entry.recipeId(), failure.getMessage()));
+        done.add(entry.writeId());
+        return false;
+    }
+
+    private static boolean isTransient(RuntimeException failure) {
+        return failure instanceof TransientDataAccessException
+                || failure instanceof RecoverableDataAccessException
+                || failure instanceof DataAccessResourceFailureException
+                || failure instanceof CannotCreateTransactionException
+                // Rejected while a catalogue restore holds the RecipeWriteFence
+                || failure instanceof ServiceUnavailableException;
+    }
+
+    private void apply(Entry change) {
+        switch (change.type()) {
+            case UPDATE -> recipeService.updateRecipe(change.recipeId(), change.recipe(), change.expectedVersion());
+            case PATCH -> recipeService.patchRecipe(change.recipeId(), change.patch(), change.expectedVersion());
+            case DELETE -> recipeService.deleteRecipe(change.recipeId());
+            default -> throw new IllegalArgumentException("Not a change to an existing recipe: " + change.type());
+        }
+    }
+
+    private void requireExists(Long recipeId) {
+        if (!recipeRepository.existsById(recipeId)) {
+            throw new ResourceNotFoundException("Recipe not found with id: " + recipeId);
+        }
+    }
+
+    private static void validate(RecipeDto recipeDto) {
+        String error = RecipeService.validate(recipeDto);
+        if (error != null) {
+            throw new InvalidRecipeException(error);
+        }
+    }
+}
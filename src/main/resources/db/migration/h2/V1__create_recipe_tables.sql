@@ -0,0 +1,28 @@
+CREATE TABLE recipes
+(
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name          VARCHAR(255) NOT NULL,
+    is_vegetarian BOOLEAN      NOT NULL,
+    servings      INTEGER      NOT NULL,
+    instructions  CLOB         NOT NULL,
+    version       BIGINT       NOT NULL,
+    CONSTRAINT pk_recipes PRIMARY KEY (id),
+    CONSTRAINT uk_recipes_name UNIQUE (name)
+);
+
+CREATE TABLE ingredients
+(
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_ingredients PRIMARY KEY (id),
+    CONSTRAINT uk_ingredients_name UNIQUE (name)
+);
+
+CREATE TABLE recipe_ingredients
+(
+    recipe_id     BIGINT NOT NULL,
+    ingredient_id BIGINT NOT NULL,
+    CONSTRAINT pk_recipe_ingredients PRIMARY KEY (recipe_id, ingredient_id),
+    CONSTRAINT fk_recipe_ingredients_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id),
+    CONSTRAINT fk_recipe_ingredients_ingredient FOREIGN KEY (ingredient_id) REFERENCES ingredients (id)
+);
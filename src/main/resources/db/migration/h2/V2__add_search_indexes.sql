@@ -0,0 +1,18 @@
+-- Vegetarian and servings filters; the index also holds the id, so selecting matching ids reads the index only
+CREATE INDEX idx_recipes_vegetarian_servings ON recipes (is_vegetarian, servings);
+CREATE INDEX idx_recipes_servings ON recipes (servings);
+
+-- Reverse lookup from an ingredient to its recipes, for included and excluded ingredients
+CREATE INDEX idx_recipe_ingredients_ingredient ON recipe_ingredients (ingredient_id, recipe_id);
+
+-- The search read model may already exist on databases whose schema was generated by Hibernate
+CREATE TABLE IF NOT EXISTS recipe_search
+(
+    recipe_id      BIGINT  NOT NULL,
+    is_vegetarian  BOOLEAN NOT NULL,
+    servings       INTEGER NOT NULL,
+    ingredient_ids CLOB    NOT NULL,
+    instructions   CLOB    NOT NULL,
+    CONSTRAINT pk_recipe_search PRIMARY KEY (recipe_id)
+);
+CREATE INDEX IF NOT EXISTS idx_recipe_search_attributes ON recipe_search (is_vegetarian, servings);
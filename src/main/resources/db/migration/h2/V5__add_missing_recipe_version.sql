@@ -0,0 +1,2 @@
+-- Databases baselined at version 1 were created by Hibernate, before the recipes had a version column
+ALTER TABLE recipes ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
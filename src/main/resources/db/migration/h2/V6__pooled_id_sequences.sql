@@ -0,0 +1,10 @@
+-- Ids are assigned by Hibernate from these sequences in blocks of 50 (the allocationSize of the entities), so inserts
+-- can be batched. The pooled optimizer hands out the 50 ids up to the value it reads, so each sequence starts 50 past
+-- the highest existing id.
+CREATE SEQUENCE recipes_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE recipes_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM recipes);
+
+CREATE SEQUENCE ingredients_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE ingredients_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM ingredients);
+
+-- The identity defaults of the id columns are left in place; they are no longer used once ids come from the sequences
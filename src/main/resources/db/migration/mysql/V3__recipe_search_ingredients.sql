@@ -0,0 +1,16 @@
+-- The ingredients of the search read model, one row per ingredient instead of a delimited string, so that ingredient
+-- filters are index lookups instead of pattern matches over every LOB
+CREATE TABLE recipe_search_ingredients
+(
+    recipe_id     BIGINT NOT NULL,
+    ingredient_id BIGINT NOT NULL,
+    CONSTRAINT pk_recipe_search_ingredients PRIMARY KEY (recipe_id, ingredient_id),
+    INDEX idx_recipe_search_ingredients_ingredient (ingredient_id, recipe_id)
+) ENGINE = InnoDB;
+
+INSERT INTO recipe_search_ingredients (recipe_id, ingredient_id)
+SELECT ri.recipe_id, ri.ingredient_id
+FROM recipe_ingredients ri
+         JOIN recipe_search s ON s.recipe_id = ri.recipe_id;
+
+ALTER TABLE recipe_search DROP COLUMN ingredient_ids;
@@ -0,0 +1,2 @@
+-- Servings filters without a vegetarian filter, which cannot use idx_recipe_search_attributes
+CREATE INDEX idx_recipe_search_servings ON recipe_search (servings);
@@ -0,0 +1,10 @@
+-- Databases baselined at version 1 were created by Hibernate, before the recipes had a version column. MySQL has no
+-- ADD COLUMN IF NOT EXISTS, so the statement is chosen from the information schema.
+SET @add_version = (SELECT IF(COUNT(*) = 0, 'ALTER TABLE recipes ADD COLUMN version BIGINT NOT NULL DEFAULT 0', 'DO 0')
+                    FROM information_schema.columns
+                    WHERE table_schema = DATABASE()
+                      AND table_name = 'recipes'
+                      AND column_name = 'version');
+PREPARE add_version FROM @add_version;
+EXECUTE add_version;
+DEALLOCATE PREPARE add_version;
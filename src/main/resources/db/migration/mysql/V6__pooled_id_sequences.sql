@@ -0,0 +1,21 @@
+-- MySQL has no sequences, so Hibernate emulates them with a single-row table per sequence. Ids are assigned from
+-- these in blocks of 50 (the allocationSize of the entities), so inserts can be batched. The pooled optimizer hands out
+-- the 50 ids up to the value it reads, so each sequence starts 50 past the highest existing id.
+CREATE TABLE recipes_seq
+(
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO recipes_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50
+FROM recipes;
+
+CREATE TABLE ingredients_seq
+(
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO ingredients_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50
+FROM ingredients;
+
+-- AUTO_INCREMENT is left on the id columns: removing it rebuilds tables whose ids are referenced by foreign keys, and it
+-- is no longer used once ids come from the sequences
@@ -0,0 +1,102 @@
+package thijs.abn;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import thijs.abn.exception.ConflictException;
+import thijs.abn.exception.PreconditionFailedException;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.repository.RecipeRepository;
+import thijs.abn.service.RecipeService;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RecipeConcurrencyTest {
+
+    private static final String UPDATE = "{\"name\": \"concurrency soup\", \"isVegetarian\": true, \"servings\": %d, " +
+            "\"instructions\": \"Simmer.\", \"ingredients\": [{\"name\": \"concurrency leek\"}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long recipeId;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository.findByName("concurrency soup").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(recipe(2));
+        recipeId = recipeRepository.findByName("concurrency soup").orElseThrow().getId();
+    }
+
+    @Test
+    void getRecipe_ReturnsNotModifiedForCurrentETag() throws Exception {
+        mockMvc.perform(get("/api/v1/recipes/" + recipeId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        mockMvc.perform(get("/api/v1/recipes/" + recipeId).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void updateRecipe_RejectsStaleIfMatch() throws Exception {
+        mockMvc.perform(put("/api/v1/recipes/" + recipeId).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(UPDATE.formatted(4)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.version").value(1));
+
+        mockMvc.perform(put("/api/v1/recipes/" + recipeId).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(UPDATE.formatted(6)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/api/v1/recipes/" + recipeId).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.servings").value(4));
+    }
+
+    @Test
+    void updateRecipe_DetectsUpdateCommittedAfterRead() {
+        assertThrows(PreconditionFailedException.class, () -> recipeService.updateRecipe(recipeId, recipe(3), 5L));
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        TransactionTemplate concurrentTransaction = new TransactionTemplate(transactionManager);
+        concurrentTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThrows(ConflictException.class, () -> transaction.executeWithoutResult(status -> {
+            // Read version 0, then let another transaction commit version 1 before this one writes
+            recipeRepository.findById(recipeId).orElseThrow();
+            concurrentTransaction.executeWithoutResult(concurrent -> recipeService.updateRecipe(recipeId, recipe(4)));
+            recipeService.updateRecipe(recipeId, recipe(6));
+        }));
+    }
+
+    private static RecipeDto recipe(int servings) {
+        return new RecipeDto(null, "concurrency soup", true, servings, "Simmer.", Set.of(new IngredientDto(null, "concurrency leek")));
+    }
+}
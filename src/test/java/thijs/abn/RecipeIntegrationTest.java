@@ -4,16 +4,23 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.ServletWebRequest;
 import thijs.abn.controller.RecipeController;
 import thijs.abn.entity.Ingredient;
 import thijs.abn.entity.Recipe;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
 import thijs.abn.repository.IngredientRepository;
 import thijs.abn.repository.RecipeRepository;
+import thijs.abn.service.RecipeService;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -30,6 +37,9 @@ public class RecipeIntegrationTest {
     @Autowired
     private IngredientRepository ingredientRepository;
 
+    @Autowired
+    private RecipeService recipeService;
+
     @Test
     public void testIntegration() {
 
@@ -42,6 +52,23 @@ public class RecipeIntegrationTest {
 
     }
 
+    @Test
+    public void testUpdateRecipeIngredients() {
+        recipeService.createRecipe(new RecipeDto(null, "integration omelette", true, 1, "Whisk and fry.",
+                Set.of(new IngredientDto(null, "integration egg"), new IngredientDto(null, "integration butter"))));
+        Long recipeId = recipeController.getRecipeIdByName("integration omelette").getBody();
+
+        ResponseEntity<?> updated = recipeController.updateRecipe(recipeId, new RecipeDto(null, "integration omelette", true, 2, "Whisk and fry slowly.",
+                Set.of(new IngredientDto(null, "Integration Egg"), new IngredientDto(null, "integration chives"))),
+                new ServletWebRequest(new MockHttpServletRequest()));
+
+        assertTrue(updated.getStatusCode().is2xxSuccessful());
+        assertEquals(Set.of("integration egg", "integration chives"), ((RecipeDto) updated.getBody()).ingredients().stream()
+                .map(IngredientDto::name)
+                .collect(Collectors.toSet()));
+        assertEquals(2, recipeRepository.findByName("integration omelette").orElseThrow().getServings());
+    }
+
     @Transactional
     protected Recipe getRecipe() {
         // Setup Ingredients
@@ -0,0 +1,61 @@
+package thijs.abn;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import thijs.abn.entity.Recipe;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.repository.RecipeRepository;
+import thijs.abn.service.RecipeService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application on a database whose schema was generated by Hibernate before the migrations existed, which
+ * Flyway baselines at version 1.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:baselinedb")
+class RecipeSchemaMigrationTest {
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class BaselineEraSchema {
+
+        @Bean
+        FlywayMigrationStrategy baselineEraMigration() {
+            return flyway -> {
+                new ResourceDatabasePopulator(new ClassPathResource("db/baseline-era-schema.sql"))
+                        .execute(flyway.getConfiguration().getDataSource());
+                flyway.migrate();
+            };
+        }
+    }
+
+    @Test
+    void migrate_BaselinesTheHibernateSchemaAndAddsTheVersion() {
+        assertEquals("1", jdbcTemplate.queryForObject(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"type\" = 'BASELINE'", String.class));
+
+        Recipe eggs = recipeRepository.findByName("baseline era eggs").orElseThrow();
+        assertEquals(0L, eggs.getVersion());
+
+        RecipeDto recipe = recipeService.getRecipe(eggs.getId());
+        RecipeDto updated = recipeService.updateRecipe(eggs.getId(), new RecipeDto(null, recipe.name(), recipe.isVegetarian(),
+                4, recipe.instructions(), recipe.ingredients()), 0L);
+        assertEquals(1L, updated.version());
+    }
+}
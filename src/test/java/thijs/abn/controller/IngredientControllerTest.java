@@ -0,0 +1,45 @@
+package thijs.abn.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import thijs.abn.model.IngredientSuggestionDto;
+import thijs.abn.service.IngredientService;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(IngredientController.class)
+public class IngredientControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private IngredientService ingredientService;
+
+    @Test
+    void testSuggestIngredients() throws Exception {
+        given(ingredientService.suggestIngredients("Tom", 2)).willReturn(List.of(
+                new IngredientSuggestionDto(1L, "tomato", 12), new IngredientSuggestionDto(2L, "tomato paste", 3)));
+
+        mockMvc.perform(get("/api/v1/ingredients/suggest?prefix=Tom&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name").value("tomato"))
+                .andExpect(jsonPath("$[0].recipeCount").value(12))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    @Test
+    void testSuggestIngredientsRequiresPrefix() throws Exception {
+        mockMvc.perform(get("/api/v1/ingredients/suggest"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,28 +1,51 @@
 package thijs.abn.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import thijs.abn.config.WireFormatConfig;
 import thijs.abn.model.IngredientDto;
 import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeFacetsDto;
+import thijs.abn.model.RecipeImportItemDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.model.RecipePageDto;
+import thijs.abn.model.RecipePatchDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchResultDto;
+import thijs.abn.model.RecipeWriteStatusDto;
+import thijs.abn.service.RecipeExporter;
 import thijs.abn.service.RecipeService;
+import thijs.abn.service.RecipeStreamImporter;
+import thijs.abn.service.RecipeWriteQueue;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(RecipeController.class)
+@Import(WireFormatConfig.class)
 public class RecipeControllerTest {
 
     @Autowired
@@ -31,6 +54,19 @@ public class RecipeControllerTest {
     @MockBean
     private RecipeService recipeService;
 
+    @MockBean
+    private RecipeStreamImporter recipeStreamImporter;
+
+    @MockBean
+    private RecipeExporter recipeExporter;
+
+    @MockBean
+    private RecipeWriteQueue recipeWriteQueue;
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private final ObjectMapper smile = new ObjectMapper(WireFormatConfig.smileFactory());
+
     private RecipeDto recipe1;
     private RecipeDto recipe2;
     private List<RecipeDto> recipes;
@@ -57,9 +93,50 @@ public class RecipeControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void testCreateRecipeQueued() throws Exception {
+        given(recipeWriteQueue.isEnabled()).willReturn(true);
+        given(recipeWriteQueue.submitCreate(Mockito.any(RecipeDto.class))).willReturn(RecipeWriteStatusDto.queued("write-1", null));
+
+        mockMvc.perform(post("/api/v1/recipes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Sample Recipe\", \"isVegetarian\": false, \"servings\": 4, \"instructions\": \"Test instructions\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/v1/recipes/writes/write-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+        verify(recipeService, never()).createRecipe(Mockito.any(RecipeDto.class));
+    }
+
+    @Test
+    void testDeleteRecipeQueued() throws Exception {
+        given(recipeWriteQueue.isEnabled()).willReturn(true);
+        given(recipeWriteQueue.submitDelete(1L)).willReturn(RecipeWriteStatusDto.queued("write-2", 1L));
+
+        mockMvc.perform(delete("/api/v1/recipes/1"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/v1/recipes/writes/write-2"));
+        verify(recipeService, never()).deleteRecipe(1L);
+    }
+
+    @Test
+    void testCreateRecipes() throws Exception {
+        given(recipeService.createRecipes(Mockito.anyList())).willReturn(RecipeImportResultDto.of(List.of(
+                RecipeImportItemDto.created(0, "Sample Recipe", 1L),
+                RecipeImportItemDto.rejected(1, "Sample Recipe", RecipeImportItemDto.Status.DUPLICATE, "Recipe already exists with name: Sample Recipe"))));
+
+        mockMvc.perform(post("/api/v1/recipes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Sample Recipe\", \"isVegetarian\": false, \"servings\": 4, \"instructions\": \"Test instructions\"}," +
+                                "{\"name\": \"Sample Recipe\", \"isVegetarian\": false, \"servings\": 4, \"instructions\": \"Test instructions\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.items[1].status").value("DUPLICATE"));
+    }
+
     @Test
     public void testGetAllRecipes() throws Exception {
-        given(recipeService.findAllRecipes()).willReturn(recipes);
+        given(recipeService.findRecipes(null, null, true)).willReturn(new RecipePageDto(recipes, null));
 
         mockMvc.perform(get("/api/v1/recipes")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -68,13 +145,120 @@ public class RecipeControllerTest {
         // Further JSON path assertions as needed
         ;
 
-        verify(recipeService).findAllRecipes();
+        verify(recipeService).findRecipes(null, null, true);
+        verifyNoMoreInteractions(recipeService);
+    }
+
+    @Test
+    void testGetAllRecipesAsSmile() throws Exception {
+        IngredientDto tomato = new IngredientDto(3L, "tomato");
+        List<RecipeDto> tomatoRecipes = List.of(
+                new RecipeDto(1L, "Pizza Margherita", true, 4, "Bake.", Set.of(tomato)),
+                new RecipeDto(2L, "Tomato Soup", true, 2, "Simmer.", Set.of(tomato)));
+        given(recipeService.findRecipes(null, null, true)).willReturn(new RecipePageDto(tomatoRecipes, null));
+
+        byte[] body = mockMvc.perform(get("/api/v1/recipes")
+                        .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(tomatoRecipes, smile.readValue(body, new TypeReference<List<RecipeDto>>() {
+        }));
+        // The second occurrence is a reference to the first
+        assertEquals(1, occurrences(body, "tomato".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testCreateRecipeFromSmile() throws Exception {
+        RecipeDto recipe = new RecipeDto(null, "Sample Recipe", false, 4, "Test instructions", Set.of());
+
+        mockMvc.perform(post("/api/v1/recipes")
+                        .contentType(SMILE)
+                        .content(smile.writeValueAsBytes(recipe)))
+                .andExpect(status().isCreated());
+
+        verify(recipeService).createRecipe(recipe);
+    }
+
+    @Test
+    void testGetRecipesPage() throws Exception {
+        given(recipeService.findRecipes(null, 2, true)).willReturn(new RecipePageDto(recipes, 2L));
+        given(recipeService.findRecipes(2L, 2, true)).willReturn(new RecipePageDto(List.of(), null));
+
+        mockMvc.perform(get("/api/v1/recipes?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().string("Link", "<http://localhost/api/v1/recipes?limit=2&after=2>; rel=\"next\""));
+
+        mockMvc.perform(get("/api/v1/recipes?after=2&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void testGetRecipe() throws Exception {
+        given(recipeService.getRecipe(1L)).willReturn(recipe1);
+
+        mockMvc.perform(get("/api/v1/recipes/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(recipe1.name()));
+    }
+
+    @Test
+    void testPatchRecipe() throws Exception {
+        given(recipeService.patchRecipe(1L, new RecipePatchDto(null, null, 6, null, null, null, null), null)).willReturn(recipe1);
+
+        mockMvc.perform(patch("/api/v1/recipes/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"servings\": 6}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(recipe1.name()));
+    }
+
+    @Test
+    void testPatchRecipeIfMatch() throws Exception {
+        given(recipeService.patchRecipe(1L, new RecipePatchDto(null, null, 6, null, null, null, null), 3L)).willReturn(recipe1);
+
+        mockMvc.perform(patch("/api/v1/recipes/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"servings\": 6}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/api/v1/recipes/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"servings\": 6}"))
+                .andExpect(status().isPreconditionFailed());
+
+        // The service checks the version against the recipe it loads for the update, not a cached copy
+        verify(recipeService).patchRecipe(1L, new RecipePatchDto(null, null, 6, null, null, null, null), 3L);
         verifyNoMoreInteractions(recipeService);
     }
 
+    @Test
+    void testExportRecipes() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("{\"name\":\"Pizza Margherita\"}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(recipeExporter).export(Mockito.any(), Mockito.eq(RecipeExporter.Format.NDJSON));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/recipes/export").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"name\":\"Pizza Margherita\"}\n"));
+    }
+
     @Test
     void testSearchRecipes() throws Exception {
-        given(recipeService.searchRecipes(null, null, null, null, null, null)).willReturn(recipes);
+        // Without after and limit the first page is returned, of the default limit
+        given(recipeService.searchRecipes(new RecipeSearchCriteria(null, null, null, null, null, null, RecipeSearchCriteria.IngredientMatch.ANY), null, null, true))
+                .willReturn(new RecipePageDto(recipes, null));
 
         mockMvc.perform(get("/api/v1/recipes/search")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -85,4 +269,40 @@ public class RecipeControllerTest {
         ;
     }
 
+    @Test
+    void testSearchAllRecipes() throws Exception {
+        given(recipeService.searchRecipes(new RecipeSearchCriteria(null, null, null, null, null, null, RecipeSearchCriteria.IngredientMatch.ANY), true)).willReturn(recipes);
+
+        mockMvc.perform(get("/api/v1/recipes/search?all=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(recipes.size())));
+        verify(recipeService, never()).searchRecipes(Mockito.any(RecipeSearchCriteria.class), Mockito.any(), Mockito.any(), Mockito.anyBoolean());
+    }
+
+    @Test
+    void testSearchRecipesWithFacets() throws Exception {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(true, null, null, null, null, null, RecipeSearchCriteria.IngredientMatch.ANY);
+        RecipeFacetsDto facets = new RecipeFacetsDto(5, null, Map.of("1-2", 5L), null);
+        given(recipeService.searchRecipes(criteria, null, 1, true, EnumSet.of(RecipeFacetsDto.Facet.SERVINGS)))
+                .willReturn(new RecipeSearchResultDto(recipes.subList(0, 1), 1L, facets));
+
+        mockMvc.perform(get("/api/v1/recipes/search?isVegetarian=true&limit=1&facets=SERVINGS"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("after=1")))
+                .andExpect(jsonPath("$.recipes", hasSize(1)))
+                .andExpect(jsonPath("$.nextAfter").value(1))
+                .andExpect(jsonPath("$.facets.total").value(5))
+                .andExpect(jsonPath("$.facets.servings['1-2']").value(5))
+                .andExpect(jsonPath("$.facets.vegetarian").doesNotExist());
+    }
+
+    private static int occurrences(byte[] bytes, byte[] pattern) {
+        int count = 0;
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
@@ -0,0 +1,124 @@
+package thijs.abn.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.exception.ResourceNotFoundException;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.service.ReactiveRecipeService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+public class RecipeReactiveServerTest {
+
+    @Mock
+    private ReactiveRecipeService reactiveRecipeService;
+
+    private RecipeReactiveServer server;
+
+    private final RecipeDto pizza = new RecipeDto(1L, "Pizza Margherita", true, 4, "Bake the pizza.", Set.of(new IngredientDto(1L, "Tomato")));
+    private final RecipeDto pasta = new RecipeDto(2L, "Pasta", true, 2, "Boil the pasta.", Set.of(new IngredientDto(2L, "Pasta")));
+
+    @BeforeEach
+    void setUp() {
+        RecipeProperties recipeProperties = new RecipeProperties();
+        recipeProperties.getReactive().setPort(0);
+        server = new RecipeReactiveServer(reactiveRecipeService, new ObjectMapper(), recipeProperties);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void getAllRecipes_StreamsNdjsonOnTheEventLoop() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        given(reactiveRecipeService.findRecipes(1L, 2)).willReturn(Flux.defer(() -> {
+            thread.set(Thread.currentThread().getName());
+            return Flux.just(pizza, pasta);
+        }));
+
+        Response response = get("/api/v2/recipes?after=1&limit=2", MediaType.APPLICATION_NDJSON_VALUE);
+
+        assertEquals(200, response.status());
+        assertEquals(MediaType.APPLICATION_NDJSON_VALUE, response.contentType());
+        List<String> lines = response.body().lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"name\":\"Pizza Margherita\""));
+        assertTrue(thread.get().startsWith("reactor-http"), "Expected a Netty event loop thread, but was " + thread.get());
+    }
+
+    @Test
+    void searchRecipes_PassesTheCriteria() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(true, null, null, List.of("Tomato", "Basil"), null, null,
+                RecipeSearchCriteria.IngredientMatch.ALL);
+        given(reactiveRecipeService.searchRecipes(criteria)).willReturn(Flux.just(pizza));
+
+        Response response = get("/api/v2/recipes/search?isVegetarian=true&includedIngredients=Tomato,%20Basil&ingredientMatch=ALL", null);
+
+        assertEquals(200, response.status());
+        assertEquals(1, response.body().lines().count());
+    }
+
+    @Test
+    void searchRecipes_RejectsJsonArrayAndInvalidParameters() {
+        assertEquals(406, get("/api/v2/recipes/search?isVegetarian=true", MediaType.APPLICATION_JSON_VALUE).status());
+        assertEquals(400, get("/api/v2/recipes/search?minServings=two", null).status());
+
+        verifyNoInteractions(reactiveRecipeService);
+    }
+
+    @Test
+    void getRecipe_ReturnsJsonOrNotFound() {
+        given(reactiveRecipeService.getRecipe(1L)).willReturn(Mono.just(pizza));
+        given(reactiveRecipeService.getRecipe(3L)).willReturn(Mono.error(new ResourceNotFoundException("Recipe not found with id: 3")));
+
+        Response found = get("/api/v2/recipes/1", null);
+        assertEquals(200, found.status());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, found.contentType());
+        assertTrue(found.body().contains("\"name\":\"Pizza Margherita\""));
+
+        Response missing = get("/api/v2/recipes/3", null);
+        assertEquals(404, missing.status());
+        assertTrue(missing.body().contains("Recipe not found with id: 3"));
+    }
+
+    private Response get(String uri, String accept) {
+        return HttpClient.create()
+                .port(server.getPort())
+                .headers(headers -> {
+                    if (accept != null) {
+                        headers.add("Accept", accept);
+                    }
+                })
+                .get()
+                .uri(uri)
+                .responseSingle((response, body) -> body.asString().defaultIfEmpty("")
+                        .map(content -> new Response(response.status().code(), response.responseHeaders().get("Content-Type"), content)))
+                .block(Duration.ofSeconds(10));
+    }
+
+    private record Response(int status, String contentType, String body) {
+    }
+}
@@ -0,0 +1,77 @@
+package thijs.abn.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FullTextIndexTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FullTextIndex fullTextIndex;
+
+    @BeforeEach
+    void setUp() {
+        RecipeProperties recipeProperties = new RecipeProperties();
+        recipeProperties.getSearch().getFullText().setEnabled(true);
+        fullTextIndex = new FullTextIndex(recipeRepository, transactionManager, recipeProperties);
+
+        Mockito.when(recipeRepository.streamTextAttributes()).thenReturn(Stream.of(
+                new Object[]{1L, "Vegetarian Pizza", "Spread the dough and add toppings. Bake for 20 minutes."},
+                new Object[]{2L, "Chicken Curry", "Cook chicken, add spices and coconut milk. Simmer for 30 minutes."},
+                new Object[]{3L, "Baked Potatoes", "Bake the potatoes until soft, then add butter."}));
+        fullTextIndex.rebuild();
+    }
+
+    @Test
+    public void search_MatchesStemmedTermsAndRanksNameMatchesFirst() {
+        assertArrayEquals(new long[]{3L, 1L}, fullTextIndex.search("baking", null));
+        assertArrayEquals(new long[]{3L}, fullTextIndex.search("potato", null));
+    }
+
+    @Test
+    public void search_RequiresEveryTermAndHonoursCandidates() {
+        assertArrayEquals(new long[]{2L}, fullTextIndex.search("simmer the coconut", null));
+        assertArrayEquals(new long[0], fullTextIndex.search("simmer dough", null));
+        assertArrayEquals(new long[]{1L}, fullTextIndex.search("bake", Roaring64Bitmap.bitmapOf(1L, 2L)));
+        assertNull(fullTextIndex.search("the and", null), "A query without indexable terms cannot be answered");
+    }
+
+    @Test
+    public void onRecipeChanged_UpdatesPostingsIncrementally() {
+        fullTextIndex.onRecipeChanged(RecipeChangedEvent.updated(
+                new RecipeSnapshot(3L, "Baked Potatoes", false, 2, "Bake the potatoes until soft, then add butter.", Map.of(), 0),
+                new RecipeSnapshot(3L, "Mashed Potatoes", false, 2, "Boil and mash the potatoes.", Map.of(), 1)));
+        fullTextIndex.onRecipeChanged(RecipeChangedEvent.deleted(
+                new RecipeSnapshot(2L, "Chicken Curry", false, 4, "", Map.of(), 0)));
+
+        assertArrayEquals(new long[]{1L}, fullTextIndex.search("bake", null));
+        assertArrayEquals(new long[]{3L}, fullTextIndex.search("mashing", null));
+        assertArrayEquals(new long[0], fullTextIndex.search("chicken", null));
+    }
+
+    @Test
+    public void analyze_DropsStopWordsAndStems() {
+        assertEquals(List.of("chop", "tomato", "slic", "onion"), TextAnalyzer.analyze("Chopped the tomatoes and sliced onions"));
+    }
+}
@@ -0,0 +1,88 @@
+package thijs.abn.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IngredientFuzzyIndexTest {
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RecipeProperties recipeProperties;
+
+    @BeforeEach
+    void setUp() {
+        recipeProperties = new RecipeProperties();
+        recipeProperties.getSearch().getFuzzy().setMaxExpansions(2);
+    }
+
+    @Test
+    public void match_FindsTheClosestNames() {
+        IngredientFuzzyIndex index = build();
+
+        assertEquals(Map.of(1L, "tomatoes"), index.match("Tomatos"));
+        assertEquals(Map.of(3L, "mozzarella"), index.match("mozarela"));
+        assertEquals(Map.of(2L, "potatoes"), index.match("potatoes"));
+        assertEquals(Map.of(5L, "rice"), index.match("rica"));
+        assertEquals(Map.of(), index.match("ri"));
+        assertEquals(Map.of(), index.match("cucumber"));
+    }
+
+    @Test
+    public void match_PrefersFewerEditsThenMoreRecipes() {
+        IngredientFuzzyIndex index = build();
+
+        // basil and basel are one edit away, bagel two
+        assertEquals(List.of(6L, 7L), List.copyOf(index.match("basl").keySet()));
+        // Three names are one edit away; only the two used most are returned
+        assertEquals(List.of(5L, 8L), List.copyOf(index.match("rime").keySet()));
+    }
+
+    @Test
+    public void match_StopsAfterTheComparisonLimit() {
+        recipeProperties.getSearch().getFuzzy().setMaxComparisons(1);
+        IngredientFuzzyIndex index = build();
+
+        assertEquals(Map.of(1L, "tomatoes"), index.match("tomatoes"));
+        assertEquals(Map.of(), index.match("mozarela"));
+    }
+
+    @Test
+    public void match_FindsNamesAddedByRecipeChanges() {
+        IngredientFuzzyIndex index = build();
+
+        index.onRecipeChanged(RecipeChangedEvent.created(
+                new RecipeSnapshot(10L, "Salad", true, 2, "Mix.", Map.of(20L, "cucumber", 1L, "tomatoes"), 0)));
+
+        assertEquals(Map.of(20L, "cucumber"), index.match("cucumbre"));
+    }
+
+    private IngredientFuzzyIndex build() {
+        IngredientFuzzyIndex index = new IngredientFuzzyIndex(ingredientRepository, transactionManager, recipeProperties);
+        Mockito.when(ingredientRepository.streamRecipeCounts()).thenReturn(Stream.of(
+                new Object[]{1L, "tomatoes", 9L}, new Object[]{2L, "potatoes", 4L}, new Object[]{3L, "mozzarella", 2L},
+                new Object[]{4L, "bagel", 8L}, new Object[]{5L, "rice", 6L}, new Object[]{6L, "basil", 5L},
+                new Object[]{7L, "basel", 1L}, new Object[]{8L, "rize", 3L}, new Object[]{9L, "ride", 0L}));
+        index.rebuild();
+        return index;
+    }
+}
@@ -0,0 +1,91 @@
+package thijs.abn.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.model.IngredientSuggestionDto;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IngredientSuggestIndexTest {
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IngredientSuggestIndex ingredientSuggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        RecipeProperties recipeProperties = new RecipeProperties();
+        recipeProperties.getSearch().getSuggest().setMaxResults(3);
+        ingredientSuggestIndex = new IngredientSuggestIndex(ingredientRepository, transactionManager, recipeProperties);
+
+        Mockito.when(ingredientRepository.streamRecipeCounts()).thenReturn(Stream.of(
+                new Object[]{1L, "tomato", 5L}, new Object[]{2L, "tomato paste", 2L}, new Object[]{3L, "tofu", 2L},
+                new Object[]{4L, "thyme", 7L}, new Object[]{5L, "to", 0L}, new Object[]{6L, "basil", 3L}));
+        ingredientSuggestIndex.rebuild();
+    }
+
+    @Test
+    public void suggest_LowercasesThePrefixIndependentOfTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            assertEquals(List.of(suggestion(6L, "basil", 3)), ingredientSuggestIndex.suggest("BASI", 10));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void suggest_RanksByRecipeCountThenName() {
+        assertEquals(List.of(suggestion(4L, "thyme", 7), suggestion(1L, "tomato", 5), suggestion(3L, "tofu", 2)),
+                ingredientSuggestIndex.suggest("T", 10));
+        assertEquals(List.of(suggestion(1L, "tomato", 5), suggestion(3L, "tofu", 2), suggestion(2L, "tomato paste", 2)),
+                ingredientSuggestIndex.suggest("to", 10));
+        assertEquals(List.of(suggestion(1L, "tomato", 5)), ingredientSuggestIndex.suggest("toma", 1));
+        assertEquals(List.of(suggestion(2L, "tomato paste", 2)), ingredientSuggestIndex.suggest("tomato ", 10));
+        assertEquals(List.of(), ingredientSuggestIndex.suggest("tomatoes", 10));
+        assertEquals(List.of(), ingredientSuggestIndex.suggest("x", 10));
+    }
+
+    @Test
+    public void suggest_ReflectsRecipeChanges() {
+        RecipeSnapshot before = new RecipeSnapshot(10L, "Salad", true, 2, "Mix.", Map.of(1L, "tomato", 6L, "basil"), 0);
+        RecipeSnapshot after = new RecipeSnapshot(10L, "Salad", true, 2, "Mix.",
+                Map.of(6L, "basil", 7L, "tomatillo", 8L, "toasted bread"), 1);
+        ingredientSuggestIndex.onRecipeChanged(RecipeChangedEvent.updated(before, after));
+        ingredientSuggestIndex.onRecipeChanged(RecipeChangedEvent.created(
+                new RecipeSnapshot(11L, "Toast", true, 1, "Toast.", Map.of(8L, "toasted bread"), 0)));
+
+        assertEquals(List.of(suggestion(1L, "tomato", 4), suggestion(2L, "tomato paste", 2), suggestion(7L, "tomatillo", 1)),
+                ingredientSuggestIndex.suggest("tomat", 10));
+        assertEquals(List.of(suggestion(8L, "toasted bread", 2)), ingredientSuggestIndex.suggest("toa", 10));
+        assertEquals(List.of(suggestion(6L, "basil", 3)), ingredientSuggestIndex.suggest("b", 10));
+
+        ingredientSuggestIndex.onRecipeChanged(RecipeChangedEvent.deleted(after));
+        assertEquals(List.of(suggestion(8L, "toasted bread", 1)), ingredientSuggestIndex.suggest("toa", 10));
+        assertEquals(List.of(suggestion(6L, "basil", 2)), ingredientSuggestIndex.suggest("b", 10));
+    }
+
+    private static IngredientSuggestionDto suggestion(Long id, String name, long recipeCount) {
+        return new IngredientSuggestionDto(id, name, recipeCount);
+    }
+}
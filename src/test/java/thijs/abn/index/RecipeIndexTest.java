@@ -0,0 +1,113 @@
+package thijs.abn.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RecipeIndexTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RecipeIndex recipeIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeIndex = new RecipeIndex(recipeRepository, transactionManager, new RecipeProperties());
+
+        Mockito.when(recipeRepository.streamSearchAttributes()).thenReturn(Stream.of(
+                new Object[]{1L, true, 2}, new Object[]{2L, true, 4}, new Object[]{3L, false, 4},
+                new Object[]{4L, false, 6}, new Object[]{5L, true, 2}, new Object[]{6L, false, 8}));
+        // Ingredient 10 is in every recipe, 11 in the first three, 12 in two and 13 in the last one
+        Mockito.when(recipeRepository.streamIngredientLinks()).thenReturn(Stream.of(
+                new Object[]{1L, 10L}, new Object[]{2L, 10L}, new Object[]{3L, 10L}, new Object[]{4L, 10L},
+                new Object[]{5L, 10L}, new Object[]{6L, 10L}, new Object[]{1L, 11L}, new Object[]{2L, 11L},
+                new Object[]{3L, 11L}, new Object[]{4L, 12L}, new Object[]{5L, 12L}, new Object[]{6L, 13L}));
+        recipeIndex.rebuild();
+    }
+
+    @Test
+    public void countFacets_CountsOnlyTheGivenRecipes() {
+        Roaring64Bitmap matches = Roaring64Bitmap.bitmapOf(1L, 2L, 3L, 4L);
+
+        assertEquals(2, recipeIndex.countVegetarian(matches));
+        assertEquals(Map.of(2, 1L, 4, 2L, 6, 1L), recipeIndex.countByServings(matches));
+    }
+
+    @Test
+    public void topIngredients_ReturnsTheMostFrequentFirst() {
+        Roaring64Bitmap matches = Roaring64Bitmap.bitmapOf(1L, 2L, 3L, 4L);
+
+        assertEquals(List.of(Map.entry(10L, 4L), Map.entry(11L, 3L)),
+                List.copyOf(recipeIndex.topIngredients(matches, 2, 100, Set.of()).counts().entrySet()));
+        assertEquals(List.of(Map.entry(11L, 3L), Map.entry(12L, 1L)),
+                List.copyOf(recipeIndex.topIngredients(matches, 5, 100, Set.of(10L)).counts().entrySet()));
+    }
+
+    @Test
+    public void topIngredients_StopsAfterTheScanLimit() {
+        Roaring64Bitmap matches = Roaring64Bitmap.bitmapOf(4L, 5L, 6L);
+
+        // Only the ingredient in most recipes overall is counted
+        assertEquals(new RecipeIndex.TopIngredients(Map.of(10L, 3L), true), recipeIndex.topIngredients(matches, 5, 1, Set.of()));
+        assertEquals(new RecipeIndex.TopIngredients(Map.of(10L, 3L, 12L, 2L, 13L, 1L), false),
+                recipeIndex.topIngredients(matches, 5, 100, Set.of()));
+        // No ingredient after 10 is in more than three recipes, so it cannot displace 10 and counting 10 alone is exact
+        assertFalse(recipeIndex.topIngredients(matches, 1, 1, Set.of()).approximate());
+    }
+
+    @Test
+    public void topIngredients_FollowsChangesInFrequency() {
+        Roaring64Bitmap matches = Roaring64Bitmap.bitmapOf(6L, 7L, 8L, 9L);
+        // Ingredient 13 is in a single recipe, so the one ingredient scanned is 11, which is in none of the matches
+        assertEquals(new RecipeIndex.TopIngredients(Map.of(), true), recipeIndex.topIngredients(matches, 1, 1, Set.of(10L)));
+
+        for (long id = 7; id <= 9; id++) {
+            recipeIndex.onRecipeChanged(RecipeChangedEvent.created(new RecipeSnapshot(id, "recipe " + id, true, 2, "Cook.", Map.of(13L, "d"), 0)));
+        }
+
+        // Ingredient 13 is now in four recipes, more than any other but 10, so counting it alone is exact
+        assertEquals(new RecipeIndex.TopIngredients(Map.of(13L, 4L), false), recipeIndex.topIngredients(matches, 1, 1, Set.of(10L)));
+    }
+
+    @Test
+    public void onRecipeChanged_IgnoresChangesDeliveredAfterNewerOnes() {
+        RecipeSnapshot v0 = new RecipeSnapshot(1L, "one", true, 2, "Cook.", Map.of(10L, "a", 11L, "b"), 0);
+        RecipeSnapshot v1 = new RecipeSnapshot(1L, "one", true, 4, "Cook.", Map.of(10L, "a"), 1);
+        RecipeSnapshot v2 = new RecipeSnapshot(1L, "one", true, 6, "Cook.", Map.of(10L, "a", 12L, "c"), 2);
+        recipeIndex.onRecipeChanged(RecipeChangedEvent.updated(v1, v2));
+        recipeIndex.onRecipeChanged(RecipeChangedEvent.updated(v0, v1));
+
+        assertFalse(recipeIndex.search(null, 2, 4, null, null, null).contains(1L));
+        assertTrue(recipeIndex.search(null, 6, 6, null, null, null).contains(1L));
+        assertFalse(recipeIndex.search(null, null, null, List.of(Set.of(11L)), null, null).contains(1L));
+        assertTrue(recipeIndex.search(null, null, null, List.of(Set.of(12L)), null, null).contains(1L));
+
+        RecipeSnapshot deleted = new RecipeSnapshot(2L, "two", true, 4, "Cook.", Map.of(10L, "a", 11L, "b"), 1);
+        recipeIndex.onRecipeChanged(RecipeChangedEvent.deleted(deleted));
+        recipeIndex.onRecipeChanged(RecipeChangedEvent.updated(
+                new RecipeSnapshot(2L, "two", true, 4, "Cook.", Map.of(10L, "a"), 0), deleted));
+
+        assertFalse(recipeIndex.search(null, null, null, null, null, null).contains(2L));
+    }
+}
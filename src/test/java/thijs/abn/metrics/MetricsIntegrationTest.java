@@ -0,0 +1,67 @@
+package thijs.abn.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "recipes.metrics.sql-statement-budget=0",
+        "management.endpoints.web.exposure.include=prometheus"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void request_RecordsSqlStatementsAndServiceTimer() throws Exception {
+        mockMvc.perform(get("/api/v1/recipes/search?isVegetarian=true&limit=1")).andExpect(status().isOk());
+
+        assertTrue(meterRegistry.get("recipes.sql.statements").tag("uri", "/api/v1/recipes/search").summary().totalAmount() >= 1);
+        assertEquals(1, meterRegistry.get("recipes.sql.budget.exceeded").tag("uri", "/api/v1/recipes/search").counter().count());
+        assertEquals(1, meterRegistry.get("recipes.service").tag("method", "searchRecipes").timer().count());
+    }
+
+    @Test
+    void asyncRequest_CountsTheStatementsOfTheStreamedBody() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/recipes/export").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("recipes.sql.statements").tag("uri", "/api/v1/recipes/export").summary();
+        assertEquals(1, statements.count(), "The request should be recorded once, after its body was streamed");
+        assertTrue(statements.totalAmount() >= 1, "The export queries run on the async thread should be counted");
+    }
+
+    @Test
+    void prometheusEndpoint_ExposesApplicationAndPoolMetrics() throws Exception {
+        mockMvc.perform(get("/api/v1/recipes")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("recipes_sql_statements_count")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_count")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("recipes_ingredient_dictionary_size")));
+    }
+}
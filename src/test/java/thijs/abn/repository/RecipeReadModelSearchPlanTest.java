@@ -0,0 +1,10 @@
+package thijs.abn.repository;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Guards the indexes of the searches answered from the recipe_search read model instead of the recipe tables.
+ */
+@SpringBootTest(properties = "recipes.search.index.enabled=false")
+public class RecipeReadModelSearchPlanTest extends RecipeSearchPlanTest {
+}
@@ -0,0 +1,91 @@
+package thijs.abn.repository;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.service.RecipeService;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the indexes of the search queries: runs the SQL search for every filter, captures the statements Hibernate
+ * issues and fails when the H2 {@code EXPLAIN} plan of any of them reads a table without an index condition.
+ */
+@SpringBootTest(properties = {"recipes.search.index.enabled=false", "recipes.search.read-model.enabled=false"})
+public class RecipeSearchPlanTest {
+
+    // A table access without an index condition, like /* PUBLIC.RECIPES.tableScan */ or /* PUBLIC.PRIMARY_KEY_8 */
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* (PUBLIC\\.[\\w.]+) \\*/");
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Logger sqlLogger = (Logger) LoggerFactory.getLogger("org.hibernate.SQL");
+    private final ListAppender<ILoggingEvent> statements = new ListAppender<>();
+    private Level previousLevel;
+
+    @BeforeEach
+    void captureStatements() {
+        previousLevel = sqlLogger.getLevel();
+        sqlLogger.setLevel(Level.DEBUG);
+        statements.start();
+        sqlLogger.addAppender(statements);
+    }
+
+    @AfterEach
+    void stopCapturing() {
+        sqlLogger.detachAppender(statements);
+        sqlLogger.setLevel(previousLevel);
+    }
+
+    static Stream<Arguments> searches() {
+        // Seeded ingredients; the read model skips the query for names that match no ingredient
+        List<String> ingredients = List.of("tomato sauce", "rice");
+        return Stream.of(
+                Arguments.of("vegetarian and servings", new RecipeSearchCriteria(true, 2, 4, null, null, null, IngredientMatch.ANY)),
+                Arguments.of("servings", new RecipeSearchCriteria(null, null, 3, null, null, null, IngredientMatch.ANY)),
+                Arguments.of("any ingredient", new RecipeSearchCriteria(null, null, null, ingredients, null, null, IngredientMatch.ANY)),
+                Arguments.of("all ingredients", new RecipeSearchCriteria(null, null, null, ingredients, null, null, IngredientMatch.ALL)),
+                Arguments.of("excluded ingredients", new RecipeSearchCriteria(false, null, null, null, ingredients, null, IngredientMatch.ANY)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("searches")
+    void searchRecipes_UsesIndexesForEveryTable(String filter, RecipeSearchCriteria criteria) {
+        recipeService.searchRecipes(criteria, null, 10);
+
+        List<String> selects = statements.list.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select"))
+                .toList();
+        assertFalse(selects.isEmpty(), "No search statements captured");
+        for (String sql : selects) {
+            // Prepared, so H2 explains the statement with its parameters unset
+            String plan = jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+                    (ResultSetExtractor<String>) result -> result.next() ? result.getString(1) : "");
+            Matcher fullScan = FULL_SCAN.matcher(plan);
+            assertFalse(fullScan.find(), () -> "Search by " + filter + " reads " + fullScan.group(1) + " without an index:\n" + plan);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import thijs.abn.config.RecipeCacheConfig;
+import thijs.abn.exception.ResourceNotFoundException;
+import thijs.abn.exception.ServiceUnavailableException;
+import thijs.abn.index.RecipeIndex;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A database of its own, as the test empties it before restoring
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@DirtiesContext
+public class CatalogueSnapshotTest {
+
+    private static final List<String> TABLES = List.of("ingredients", "recipes", "recipe_ingredients", "recipe_search",
+            "recipe_search_ingredients");
+
+    @Autowired
+    private CatalogueSnapshot catalogueSnapshot;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeIndex recipeIndex;
+
+    @Autowired
+    private RecipeWriteFence recipeWriteFence;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void restore_RecreatesTheWrittenCatalogue() throws Exception {
+        recipeService.createRecipe(new RecipeDto(null, "snapshot stew", false, 4, "Stew for hours. Ünïcode too.",
+                Set.of(new IngredientDto(null, "snapshot beef"), new IngredientDto(null, "snapshot onion"))));
+        Long stewId = recipeService.getRecipeIdByName("snapshot stew");
+        recipeService.getRecipe(stewId);
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, List.of("snapshot beef"), null, null, IngredientMatch.ANY);
+        recipeService.searchRecipes(criteria);
+        Map<String, List<Map<String, Object>>> before = dump();
+        long recipes = before.get("recipes").size();
+        assertTrue(recipes > 1);
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        assertEquals(recipes, catalogueSnapshot.write(snapshot));
+
+        for (String table : List.of("recipe_search_ingredients", "recipe_search", "recipe_ingredients", "recipes", "ingredients")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        assertEquals(recipes, catalogueSnapshot.restore(new ByteArrayInputStream(snapshot.toByteArray())));
+
+        assertEquals(before, dump());
+        assertTrue(recipeIndex.isReady());
+        // The restore bypasses the change events, so it empties the caches itself
+        assertNull(cacheManager.getCache(RecipeCacheConfig.RECIPES).get(stewId));
+        assertNull(cacheManager.getCache(RecipeCacheConfig.RECIPE_IDS_BY_NAME).get("snapshot stew"));
+        assertNull(cacheManager.getCache(RecipeCacheConfig.RECIPE_SEARCHES).get(criteria.normalized()));
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM recipes", Long.class);
+        recipeService.createRecipe(new RecipeDto(null, "snapshot soup", true, 2, "Simmer.",
+                Set.of(new IngredientDto(null, "snapshot onion"), new IngredientDto(null, "snapshot leek"))));
+        assertTrue(recipeService.getRecipeIdByName("snapshot soup") > maxId, "Ids continue after the restored ones");
+    }
+
+    @Test
+    void restore_RefusesANonEmptyDatabase() throws Exception {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        catalogueSnapshot.write(snapshot);
+
+        assertThrows(IllegalStateException.class,
+                () -> catalogueSnapshot.restore(new ByteArrayInputStream(snapshot.toByteArray())));
+    }
+
+    @Test
+    void writes_AreRejectedWhileTheFenceIsClosed() throws Exception {
+        RecipeDto recipe = new RecipeDto(null, "snapshot fenced", true, 1, "Wait.", Set.of(new IngredientDto(null, "snapshot patience")));
+        // The fence is closed and opened by one thread, which may still write itself
+        ExecutorService restorer = Executors.newSingleThreadExecutor();
+        try {
+            restorer.submit(recipeWriteFence::close).get();
+            assertTrue(recipeWriteFence.isClosed());
+            assertThrows(ServiceUnavailableException.class, () -> recipeService.createRecipe(recipe));
+            restorer.submit(recipeWriteFence::open).get();
+        } finally {
+            restorer.shutdown();
+        }
+
+        assertThrows(ResourceNotFoundException.class, () -> recipeService.getRecipeIdByName("snapshot fenced"));
+        recipeService.createRecipe(recipe);
+        assertNotNull(recipeService.getRecipeIdByName("snapshot fenced"));
+    }
+
+    @Test
+    void loadDataLine_EscapesTheSeparatorsOfLoadData() {
+        assertEquals("7\tTab\\there\\nnext \\\\ line\t1\t\\N\n",
+                CatalogueSnapshot.loadDataLine(new Object[]{7L, "Tab\there\nnext \\ line", true, null}));
+    }
+
+    private Map<String, List<Map<String, Object>>> dump() {
+        return TABLES.stream().collect(Collectors.toMap(table -> table,
+                table -> jdbcTemplate.queryForList("SELECT * FROM " + table + " ORDER BY 1, 2")));
+    }
+}
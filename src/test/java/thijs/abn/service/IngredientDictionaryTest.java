@@ -0,0 +1,130 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.entity.Ingredient;
+import thijs.abn.repository.IngredientRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+
+@ExtendWith(MockitoExtension.class)
+public class IngredientDictionaryTest {
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IngredientDictionary ingredientDictionary;
+
+    @BeforeEach
+    void setUp() {
+        RecipeProperties recipeProperties = new RecipeProperties();
+        recipeProperties.getIngredientDictionary().setMaxSize(2);
+        ingredientDictionary = new IngredientDictionary(ingredientRepository, transactionManager, recipeProperties);
+    }
+
+    @Test
+    public void resolve_LoadsMissesInOneQueryAndCachesThem() {
+        Mockito.when(ingredientRepository.findByNameIn(Set.of("salt", "pepper")))
+                .thenReturn(List.of(IngredientDictionary.reference("salt", 1L), IngredientDictionary.reference("pepper", 2L)));
+
+        Map<String, Long> first = ingredientDictionary.resolve(List.of("Salt", "pepper"));
+        Map<String, Long> second = ingredientDictionary.resolve(List.of("salt", "PEPPER"));
+
+        assertEquals(Map.of("salt", 1L, "pepper", 2L), first);
+        assertEquals(first, second);
+        Mockito.verify(ingredientRepository, Mockito.times(1)).findByNameIn(Mockito.any());
+        assertEquals(2, ingredientDictionary.hits());
+        assertEquals(2, ingredientDictionary.misses());
+    }
+
+    @Test
+    public void resolve_CreatesMissingIngredients() {
+        Mockito.when(ingredientRepository.findByNameIn(Set.of("basil"))).thenReturn(List.of());
+        Mockito.when(ingredientRepository.saveAllAndFlush(anyList()))
+                .thenReturn(List.of(IngredientDictionary.reference("basil", 7L)));
+
+        assertEquals(7L, ingredientDictionary.resolve("basil"));
+    }
+
+    @Test
+    public void resolve_RereadsIngredientCreatedByConcurrentWriter() {
+        Mockito.when(ingredientRepository.findByNameIn(Set.of("basil"))).thenReturn(List.of());
+        Mockito.when(ingredientRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry 'basil'"));
+        Ingredient winner = IngredientDictionary.reference("basil", 9L);
+        Mockito.when(ingredientRepository.findByName("basil")).thenReturn(Optional.of(winner));
+
+        assertEquals(9L, ingredientDictionary.resolve("basil"));
+    }
+
+    @Test
+    public void resolve_InsideTransactionCachesNewIngredientsOnlyAfterCommit() {
+        Mockito.when(ingredientRepository.findByNameIn(Set.of("basil"))).thenReturn(List.of());
+        Mockito.when(ingredientRepository.saveAllAndFlush(anyList()))
+                .thenReturn(List.of(IngredientDictionary.reference("basil", 7L)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals(7L, ingredientDictionary.resolve("basil"));
+            assertEquals(0, ingredientDictionary.size());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, ingredientDictionary.size());
+        // The caller's transaction was used rather than a new one
+        Mockito.verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    public void resolve_EvictsOldestNamesBeyondMaxSize() {
+        Mockito.when(ingredientRepository.findByNameIn(Mockito.any())).thenAnswer(invocation -> {
+            Set<String> names = invocation.getArgument(0);
+            return names.stream().map(name -> IngredientDictionary.reference(name, (long) name.length())).toList();
+        });
+
+        ingredientDictionary.resolve("a");
+        ingredientDictionary.resolve("bb");
+        ingredientDictionary.resolve("ccc");
+
+        assertEquals(2, ingredientDictionary.size());
+        assertEquals(1, ingredientDictionary.evictions());
+    }
+
+    @Test
+    public void find_RemembersUnknownNamesUntilTheyAreCreated() {
+        Mockito.when(ingredientRepository.findByName("basil")).thenReturn(Optional.empty());
+        Mockito.when(ingredientRepository.findByNameIn(Set.of("basil"))).thenReturn(List.of());
+        Mockito.when(ingredientRepository.saveAllAndFlush(anyList()))
+                .thenReturn(List.of(IngredientDictionary.reference("basil", 7L)));
+
+        assertEquals(Optional.empty(), ingredientDictionary.find("basil"));
+        assertEquals(Optional.empty(), ingredientDictionary.find("Basil"));
+        Mockito.verify(ingredientRepository, Mockito.times(1)).findByName("basil");
+
+        ingredientDictionary.resolve("basil");
+
+        assertEquals(Optional.of(7L), ingredientDictionary.find("basil"));
+    }
+}
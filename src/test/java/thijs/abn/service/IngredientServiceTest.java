@@ -0,0 +1,80 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class IngredientServiceTest {
+
+    @Autowired
+    protected IngredientService ingredientService;
+
+    @Autowired
+    protected RecipeService recipeService;
+
+    @Autowired
+    protected RecipeRepository recipeRepository;
+
+    @BeforeEach
+    void setUp() {
+        createIfMissing(n("suggest salad"), n("oil"), n("olive"), n("onion"));
+        createIfMissing(n("suggest soup"), n("onion"), n("oregano"));
+        createIfMissing(n("suggest stew"), n("onion"), n("olive"));
+    }
+
+    @Test
+    void suggestIngredients_RanksByRecipeCount() {
+        assertEquals(List.of(n("onion") + " 3", n("olive") + " 2", n("oil") + " 1", n("oregano") + " 1"),
+                suggest(n("O"), null));
+        assertEquals(List.of(n("onion") + " 3", n("olive") + " 2"), suggest(n("o"), 2));
+        assertEquals(List.of(n("olive") + " 2"), suggest(n("ol"), null));
+        assertEquals(List.of(), suggest(n("o%"), null));
+        assertEquals(List.of(), suggest(n("o_"), null));
+    }
+
+    @Test
+    void suggestIngredients_ReflectsRecipeChanges() {
+        recipeRepository.findByName(n("suggest tea")).ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(recipe(n("suggest tea"), n("tea leaves")));
+        assertEquals(List.of(n("tea leaves") + " 1"), suggest(n("tea"), null));
+
+        Long teaId = recipeRepository.findByName(n("suggest tea")).orElseThrow().getId();
+        recipeService.updateRecipe(teaId, recipe(n("suggest tea"), n("tea bags")));
+        assertEquals(List.of(n("tea bags") + " 1", n("tea leaves") + " 0"), suggest(n("tea"), null));
+
+        recipeService.deleteRecipe(teaId);
+        assertEquals(List.of(n("tea bags") + " 0", n("tea leaves") + " 0"), suggest(n("tea"), null));
+    }
+
+    private String n(String name) {
+        return getClass().getSimpleName().toLowerCase() + " " + name;
+    }
+
+    private List<String> suggest(String prefix, Integer limit) {
+        return ingredientService.suggestIngredients(prefix, limit).stream()
+                .map(suggestion -> suggestion.name() + " " + suggestion.recipeCount())
+                .toList();
+    }
+
+    private static RecipeDto recipe(String name, String... ingredients) {
+        return new RecipeDto(null, name, true, 2, "Prepare " + name + ".",
+                Arrays.stream(ingredients).map(ingredient -> new IngredientDto(null, ingredient)).collect(Collectors.toSet()));
+    }
+
+    private void createIfMissing(String name, String... ingredients) {
+        if (recipeRepository.findByName(name).isEmpty()) {
+            recipeService.createRecipe(recipe(name, ingredients));
+        }
+    }
+}
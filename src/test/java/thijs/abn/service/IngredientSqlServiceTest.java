@@ -0,0 +1,10 @@
+package thijs.abn.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the suggestion scenarios against the SQL query instead of the in-memory trie.
+ */
+@SpringBootTest(properties = "recipes.search.suggest.enabled=false")
+public class IngredientSqlServiceTest extends IngredientServiceTest {
+}
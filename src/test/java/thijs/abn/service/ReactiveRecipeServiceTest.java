@@ -0,0 +1,100 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+import thijs.abn.exception.ResourceNotFoundException;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class ReactiveRecipeServiceTest {
+
+    @Autowired
+    protected ReactiveRecipeService reactiveRecipeService;
+
+    @Autowired
+    protected RecipeService recipeService;
+
+    @Autowired
+    protected RecipeRepository recipeRepository;
+
+    @BeforeEach
+    void setUp() {
+        createIfMissing(n("reactive omelette"), true, 1, "Whisk the eggs and fry them.", n("reactive egg"), n("reactive chives"));
+        createIfMissing(n("reactive carbonara"), false, 2, "Boil the pasta, fry the bacon.", n("reactive egg"), n("reactive bacon"), n("reactive pasta"));
+        createIfMissing(n("reactive pasta salad"), true, 4, "Boil the pasta and let it cool.", n("reactive pasta"), n("reactive chives"));
+    }
+
+    @Test
+    void searchRecipes_MatchesBlockingSearch() {
+        List<RecipeSearchCriteria> searches = List.of(
+                new RecipeSearchCriteria(null, null, null, List.of(n("reactive egg")), null, null, IngredientMatch.ANY),
+                new RecipeSearchCriteria(null, null, null, List.of(n("reactive pasta"), n("Reactive Chives")), null, null, IngredientMatch.ALL),
+                new RecipeSearchCriteria(true, 1, 4, List.of(n("reactive chives")), List.of(n("reactive egg")), null, IngredientMatch.ANY),
+                new RecipeSearchCriteria(null, null, null, List.of(n("reactive pasta")), null, "boil", IngredientMatch.ANY),
+                // Misspelled filters stand for the closest ingredients in both APIs
+                new RecipeSearchCriteria(null, null, null, List.of(n("reactive chivs")), null, null, IngredientMatch.ANY),
+                new RecipeSearchCriteria(null, null, null, List.of(n("reactive pastaa"), n("reactive chivs")), null, null, IngredientMatch.ALL),
+                new RecipeSearchCriteria(null, null, null, List.of(n("reactive pasta")), List.of(n("reactive chivs")), null, IngredientMatch.ANY));
+
+        for (RecipeSearchCriteria criteria : searches) {
+            Set<RecipeDto> expected = Set.copyOf(recipeService.searchRecipes(criteria));
+            StepVerifier.create(reactiveRecipeService.searchRecipes(criteria).collect(Collectors.toSet()))
+                    .expectNext(expected)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void findRecipes_StreamsInIdOrderWithIngredients() {
+        Long omeletteId = recipeRepository.findByName(n("reactive omelette")).orElseThrow().getId();
+
+        StepVerifier.create(reactiveRecipeService.findRecipes(omeletteId - 1, 2))
+                .expectNextMatches(recipe -> recipe.id().equals(omeletteId) && recipe.ingredients().size() == 2)
+                .expectNextMatches(recipe -> recipe.id() > omeletteId)
+                .verifyComplete();
+
+        List<Long> ids = reactiveRecipeService.findRecipes(null, null).map(RecipeDto::id).collectList().block();
+        assertEquals(recipeRepository.count(), ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids);
+    }
+
+    @Test
+    void getRecipe_MapsLikeTheBlockingService() {
+        Long carbonaraId = recipeRepository.findByName(n("reactive carbonara")).orElseThrow().getId();
+
+        StepVerifier.create(reactiveRecipeService.getRecipe(carbonaraId))
+                .expectNext(recipeService.getRecipe(carbonaraId))
+                .verifyComplete();
+        StepVerifier.create(reactiveRecipeService.getRecipe(-1L))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+    }
+
+    /**
+     * Prefixes names with the test class, because the subclass runs in another context against the same database.
+     */
+    private String n(String name) {
+        return getClass().getSimpleName() + " " + name;
+    }
+
+    private void createIfMissing(String name, boolean isVegetarian, int servings, String instructions, String... ingredients) {
+        if (recipeRepository.findByName(name).isEmpty()) {
+            recipeService.createRecipe(new RecipeDto(null, name, isVegetarian, servings, instructions,
+                    Arrays.stream(ingredients).map(ingredient -> new IngredientDto(null, ingredient)).collect(Collectors.toSet())));
+        }
+    }
+}
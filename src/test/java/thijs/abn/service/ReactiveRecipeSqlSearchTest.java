@@ -0,0 +1,10 @@
+package thijs.abn.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the reactive scenarios against the SQL query instead of the in-memory index.
+ */
+@SpringBootTest(properties = "recipes.search.index.enabled=false")
+public class ReactiveRecipeSqlSearchTest extends ReactiveRecipeServiceTest {
+}
@@ -0,0 +1,81 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import thijs.abn.entity.Recipe;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeImportItemDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.repository.IngredientRepository;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "recipes.import.batch-size=2")
+public class RecipeBatchImportTest {
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Test
+    void createRecipes_PersistsAcrossBatchesAndReportsPerItem() {
+        List<RecipeDto> recipes = List.of(
+                new RecipeDto(null, "batch pasta", true, 2, "Boil the pasta.", Set.of(new IngredientDto(null, "Batch Pasta"), new IngredientDto(null, "batch salt"))),
+                new RecipeDto(null, "batch soup", true, 4, "Simmer the soup.", Set.of(new IngredientDto(null, "batch salt"), new IngredientDto(null, "batch leek"))),
+                new RecipeDto(null, "batch pasta", false, 2, "Boil the pasta again.", Set.of()),
+                new RecipeDto(null, "batch stew", false, 6, " ", Set.of()),
+                new RecipeDto(null, "batch salad", true, 1, "Toss the salad.", null));
+
+        RecipeImportResultDto result = recipeService.createRecipes(recipes);
+
+        assertEquals(3, result.created());
+        assertEquals(2, result.rejected());
+        assertEquals(RecipeImportItemDto.Status.CREATED, result.items().get(0).status());
+        assertEquals(RecipeImportItemDto.Status.CREATED, result.items().get(1).status());
+        assertEquals(RecipeImportItemDto.Status.DUPLICATE, result.items().get(2).status());
+        assertEquals(RecipeImportItemDto.Status.INVALID, result.items().get(3).status());
+        assertEquals(RecipeImportItemDto.Status.CREATED, result.items().get(4).status());
+
+        Recipe soup = recipeRepository.findById(result.items().get(1).id()).orElseThrow();
+        assertEquals("batch soup", soup.getName());
+        assertTrue(ingredientRepository.findByName("batch pasta").isPresent(), "Ingredient names should be stored lower-cased");
+        assertEquals(1, ingredientRepository.findByNameIn(Set.of("batch salt")).size(), "Shared ingredients should be created once");
+    }
+
+    @Test
+    void createRecipes_RejectsNamesThatAlreadyExist() {
+        recipeService.createRecipe(new RecipeDto(null, "batch existing", true, 2, "Already there.", Set.of()));
+
+        RecipeImportResultDto result = recipeService.createRecipes(List.of(
+                new RecipeDto(null, "batch existing", true, 2, "Already there.", Set.of())));
+
+        assertEquals(0, result.created());
+        assertEquals(RecipeImportItemDto.Status.DUPLICATE, result.items().get(0).status());
+    }
+
+    @Test
+    void createRecipes_KeepsEarlierChunksWhenALaterChunkFails() {
+        List<RecipeDto> recipes = List.of(
+                new RecipeDto(null, "chunked tart", true, 2, "Bake the tart.", Set.of()),
+                new RecipeDto(null, "chunked pie", true, 2, "Bake the pie.", Set.of()),
+                // Longer than the name column, which only the database rejects
+                new RecipeDto(null, "chunked " + "x".repeat(300), true, 2, "Bake it.", Set.of()));
+
+        assertThrows(DataIntegrityViolationException.class, () -> recipeService.createRecipes(recipes));
+
+        assertTrue(recipeRepository.findByName("chunked tart").isPresent(), "The first chunk should stay committed");
+        assertTrue(recipeRepository.findByName("chunked pie").isPresent(), "The first chunk should stay committed");
+    }
+}
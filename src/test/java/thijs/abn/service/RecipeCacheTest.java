@@ -0,0 +1,146 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import thijs.abn.config.RecipeCacheConfig;
+import thijs.abn.event.RecipeChangedEvent;
+import thijs.abn.event.RecipeSnapshot;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class RecipeCacheTest {
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RecipeSearchCache recipeSearchCache;
+
+    private Long recipeId;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository.findByName("cache omelette").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeRepository.findByName("cache frittata").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(new RecipeDto(null, "cache omelette", true, 1, "Whisk and fry the eggs.",
+                Set.of(new IngredientDto(null, "cache egg"))));
+        recipeId = recipeRepository.findByName("cache omelette").orElseThrow().getId();
+    }
+
+    @Test
+    void getRecipe_IsCachedUntilUpdated() {
+        RecipeDto recipe = recipeService.getRecipe(recipeId);
+        assertSame(recipe, recipeService.getRecipe(recipeId));
+        assertNotNull(cache(RecipeCacheConfig.RECIPES).get(recipeId));
+
+        recipeService.updateRecipe(recipeId, new RecipeDto(null, "cache omelette", true, 2, "Whisk and fry the eggs.",
+                Set.of(new IngredientDto(null, "cache egg"))));
+
+        assertNull(cache(RecipeCacheConfig.RECIPES).get(recipeId));
+        assertEquals(2, recipeService.getRecipe(recipeId).servings());
+    }
+
+    @Test
+    void getRecipeIdByName_EvictsOldAndNewNameOnRename() {
+        assertEquals(recipeId, recipeService.getRecipeIdByName("cache omelette"));
+        assertNotNull(cache(RecipeCacheConfig.RECIPE_IDS_BY_NAME).get("cache omelette"));
+
+        recipeService.updateRecipe(recipeId, new RecipeDto(null, "cache frittata", true, 1, "Whisk and bake the eggs.",
+                Set.of(new IngredientDto(null, "cache egg"))));
+
+        assertNull(cache(RecipeCacheConfig.RECIPE_IDS_BY_NAME).get("cache omelette"));
+        assertEquals(recipeId, recipeService.getRecipeIdByName("cache frittata"));
+    }
+
+    @Test
+    void searchRecipes_SharesEntryBetweenEquivalentCriteriaAndIsEvictedOnMatchingChange() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null,
+                List.of("Cache Egg", "cache egg"), null, null, IngredientMatch.ALL);
+        List<RecipeDto> result = recipeService.searchRecipes(criteria);
+        assertNotNull(cache(RecipeCacheConfig.RECIPE_SEARCHES).get(criteria.normalized()));
+        List<RecipeDto> summaries = recipeService.searchRecipes(new RecipeSearchCriteria(null, null, null,
+                List.of("cache egg"), List.of(), " ".repeat(0), IngredientMatch.ANY), false);
+        assertEquals(List.of(recipeId), summaries.stream().map(RecipeDto::id).toList());
+        assertNull(summaries.get(0).instructions());
+        assertEquals(1, result.size());
+
+        recipeService.createRecipe(new RecipeDto(null, "cache frittata", true, 4, "Whisk and bake the eggs.",
+                Set.of(new IngredientDto(null, "cache egg"))));
+
+        assertNull(cache(RecipeCacheConfig.RECIPE_SEARCHES).get(criteria.normalized()));
+        assertEquals(2, recipeService.searchRecipes(new RecipeSearchCriteria(null, null, null,
+                List.of("cache egg"), null, null, IngredientMatch.ANY)).size());
+    }
+
+    @Test
+    void searchRecipes_KeepsEntriesTheChangeCannotAffect() {
+        RecipeSearchCriteria meat = new RecipeSearchCriteria(false, null, null, null, null, null, null);
+        RecipeSearchCriteria withoutEgg = new RecipeSearchCriteria(true, null, null, null, List.of("cache egg"), null, null);
+        RecipeSearchCriteria large = new RecipeSearchCriteria(null, 4, null, List.of("cache egg"), null, null, null);
+        recipeService.searchRecipes(meat);
+        recipeService.searchRecipes(withoutEgg);
+        assertTrue(recipeService.searchRecipes(large).isEmpty());
+
+        recipeService.updateRecipe(recipeId, new RecipeDto(null, "cache omelette", true, 4, "Whisk and fry the eggs.",
+                Set.of(new IngredientDto(null, "cache egg"))));
+
+        assertNotNull(cache(RecipeCacheConfig.RECIPE_SEARCHES).get(meat.normalized()));
+        assertNotNull(cache(RecipeCacheConfig.RECIPE_SEARCHES).get(withoutEgg.normalized()));
+        assertNull(cache(RecipeCacheConfig.RECIPE_SEARCHES).get(large.normalized()));
+        assertEquals(List.of(recipeId), recipeService.searchRecipes(large).stream().map(RecipeDto::id).toList());
+    }
+
+    @Test
+    void get_DoesNotCacheASearchThatOverlappedAChange() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, List.of("cache overlap"), null, null, null);
+        RecipeSnapshot recipe = new RecipeSnapshot(recipeId, "cache omelette", true, 1, "Whisk and fry the eggs.", Map.of(), 0);
+
+        long[] ids = recipeSearchCache.get(criteria, () -> {
+            recipeSearchCache.evict(RecipeChangedEvent.updated(recipe, recipe));
+            return new long[0];
+        });
+
+        assertEquals(0, ids.length);
+        assertNull(cache(RecipeCacheConfig.RECIPE_SEARCHES).get(criteria.normalized()));
+    }
+
+    @Test
+    void normalized_LowercasesIngredientsIndependentOfTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, List.of("CHILI"), List.of("ICE"), "STIR", null);
+
+            assertEquals(List.of("chili"), criteria.normalized().includedIngredients());
+            assertEquals(List.of("ice"), criteria.normalized().excludedIngredients());
+            assertEquals("stir", criteria.normalized().queryInstructions());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+}
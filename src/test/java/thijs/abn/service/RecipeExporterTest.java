@@ -0,0 +1,77 @@
+package thijs.abn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.repository.RecipeRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class RecipeExporterTest {
+
+    @Autowired
+    private RecipeExporter recipeExporter;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        // More recipes than one chunk, so the export has to clear the persistence context in between
+        if (recipeRepository.findByName("export 0").isEmpty()) {
+            recipeService.createRecipes(IntStream.range(0, RecipeExporter.CHUNK_SIZE + 10)
+                    .mapToObj(i -> new RecipeDto(null, "export " + i, i % 2 == 0, 2, "Export recipe " + i + ".",
+                            Set.of(new IngredientDto(null, "export salt"), new IngredientDto(null, "export " + i % 7))))
+                    .toList());
+        }
+    }
+
+    @Test
+    void export_WritesEveryRecipeAsNdjson() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long exported = recipeExporter.export(outputStream, RecipeExporter.Format.NDJSON);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(recipeRepository.count(), exported);
+        assertEquals(exported, lines.length);
+
+        List<RecipeDto> recipes = new ArrayList<>();
+        for (String line : lines) {
+            recipes.add(objectMapper.readValue(line, RecipeDto.class));
+        }
+        assertEquals(recipes.stream().map(RecipeDto::id).sorted().toList(), recipes.stream().map(RecipeDto::id).toList());
+
+        RecipeDto last = recipes.stream().filter(recipe -> recipe.name().equals("export " + (RecipeExporter.CHUNK_SIZE + 9))).findFirst().orElseThrow();
+        assertEquals(Set.of("export salt", "export " + (RecipeExporter.CHUNK_SIZE + 9) % 7),
+                last.ingredients().stream().map(IngredientDto::name).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void export_WritesEveryRecipeAsJsonArray() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long exported = recipeExporter.export(outputStream, RecipeExporter.Format.JSON_ARRAY);
+
+        RecipeDto[] recipes = objectMapper.readValue(outputStream.toByteArray(), RecipeDto[].class);
+        assertEquals(exported, recipes.length);
+        assertTrue(Arrays.stream(recipes)
+                .filter(recipe -> recipe.name().startsWith("export "))
+                .allMatch(recipe -> recipe.ingredients().size() == 2));
+    }
+}
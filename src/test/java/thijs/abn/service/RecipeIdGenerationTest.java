@@ -0,0 +1,40 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import thijs.abn.metrics.SqlStatementCounter;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeImportItemDto;
+import thijs.abn.model.RecipeImportResultDto;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class RecipeIdGenerationTest {
+
+    private static final int RECIPE_COUNT = 40;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Test
+    void createRecipes_BatchesInsertsWithPooledIds() {
+        List<RecipeDto> recipes = IntStream.range(0, RECIPE_COUNT)
+                .mapToObj(i -> new RecipeDto(null, "pooled id recipe " + i, true, 2, "Mix it.", Set.of()))
+                .toList();
+
+        SqlStatementCounter.reset();
+        RecipeImportResultDto result = recipeService.createRecipes(recipes);
+        int statements = SqlStatementCounter.count();
+
+        assertEquals(RECIPE_COUNT, result.created());
+        assertEquals(RECIPE_COUNT, result.items().stream().map(RecipeImportItemDto::id).distinct().count());
+        // With identity ids every insert would be executed on its own; pooled ids let them go out as one JDBC batch
+        assertTrue(statements < 10, "Expected batched inserts, but " + statements + " statements were prepared");
+    }
+}
@@ -0,0 +1,93 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.repository.RecipeSearchRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the search scenarios against the recipe_search read model instead of the in-memory index.
+ */
+@SpringBootTest(properties = "recipes.search.index.enabled=false")
+public class RecipeReadModelSearchTest extends RecipeSearchTest {
+
+    @Autowired
+    private RecipeSearchReadModel recipeSearchReadModel;
+
+    @Autowired
+    private RecipeSearchRepository recipeSearchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void searchRecipes_UsesReadModelMaintainedFromWrites() {
+        assertTrue(recipeSearchReadModel.isReady());
+        String prefix = getClass().getSimpleName() + " ";
+        Long pestoId = recipeRepository.findByName(prefix + "search basil pesto").orElseThrow().getId();
+        assertTrue(recipeSearchRepository.findById(pestoId).orElseThrow().getInstructions().startsWith("prepare"));
+
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(true, 6, null,
+                List.of(prefix + "search basil"), List.of(prefix + "search bread"), "PESTO", IngredientMatch.ANY);
+        assertEquals(List.of(pestoId), recipeService.searchRecipes(criteria).stream().map(RecipeDto::id).toList());
+    }
+
+    @Test
+    void rebuild_WritesOneEntryPerRecipe() {
+        assertEquals(recipeRepository.count(), recipeSearchReadModel.rebuild());
+        assertEquals(recipeRepository.count(), recipeSearchRepository.count());
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM recipe_ingredients", Long.class),
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM recipe_search_ingredients", Long.class));
+    }
+
+    @Test
+    void backfill_RepairsEntriesThatDriftedWithoutChangingTheCount() {
+        Long pestoId = recipeRepository.findByName(getClass().getSimpleName() + " search basil pesto").orElseThrow().getId();
+        int servings = recipeSearchRepository.findById(pestoId).orElseThrow().getServings();
+        jdbcTemplate.update("UPDATE recipe_search SET servings = servings + 1 WHERE recipe_id = ?", pestoId);
+        assertFalse(recipeSearchReadModel.isConsistent());
+
+        recipeSearchReadModel.backfill();
+
+        assertTrue(recipeSearchReadModel.isConsistent());
+        assertEquals(servings, recipeSearchRepository.findById(pestoId).orElseThrow().getServings());
+    }
+
+    @Test
+    void rebuild_KeepsWritesMadeWhileItRuns() throws Exception {
+        String prefix = getClass().getSimpleName() + " rebuild race ";
+        for (int i = 0; i < 20; i++) {
+            recipeRepository.findByName(prefix + i).ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rebuilds = executor.submit(() -> {
+                for (int i = 0; i < 5; i++) {
+                    recipeSearchReadModel.rebuild();
+                }
+            });
+            for (int i = 0; i < 20; i++) {
+                recipeService.createRecipe(new RecipeDto(null, prefix + i, true, 2, "Stir.",
+                        Set.of(new IngredientDto(null, prefix + "water"))));
+            }
+            rebuilds.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(recipeSearchReadModel.isConsistent());
+    }
+}
@@ -0,0 +1,198 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeFacetsDto;
+import thijs.abn.model.RecipeFacetsDto.Facet;
+import thijs.abn.model.RecipeFacetsDto.IngredientCount;
+import thijs.abn.model.RecipeFacetsDto.VegetarianCount;
+import thijs.abn.model.RecipePageDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.model.RecipeSearchResultDto;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class RecipeSearchTest {
+
+    @Autowired
+    protected RecipeService recipeService;
+
+    @Autowired
+    protected RecipeRepository recipeRepository;
+
+    @BeforeEach
+    void setUp() {
+        createIfMissing(n("search bruschetta"), true, 2, n("search tomato"), n("search basil"), n("search bread"));
+        createIfMissing(n("search caprese"), true, 2, n("search tomato"), n("search basil"), n("search mozzarella"));
+        createIfMissing(n("search club sandwich"), false, 1, n("search bread"), n("search bacon"), n("search tomato"));
+        createIfMissing(n("search basil pesto"), true, 6, n("search basil"), n("search pine nuts"));
+    }
+
+    @Test
+    void searchRecipes_IncludesAnyIngredient() {
+        assertEquals(Set.of(n("search bruschetta"), n("search caprese"), n("search club sandwich")),
+                search(null, null, null, List.of(n("search mozzarella"), n("search bread")), null, IngredientMatch.ANY));
+    }
+
+    @Test
+    void searchRecipes_IncludesAllIngredients() {
+        assertEquals(Set.of(n("search bruschetta"), n("search caprese")),
+                search(null, null, null, List.of(n("search tomato"), n("Search Basil")), null, IngredientMatch.ALL));
+        assertEquals(Set.of(),
+                search(null, null, null, List.of(n("search tomato"), n("search unknown")), null, IngredientMatch.ALL));
+    }
+
+    @Test
+    void searchRecipes_CombinesExclusionsWithVegetarianAndServings() {
+        assertEquals(Set.of(n("search caprese")),
+                search(true, 2, 2, List.of(n("search basil")), List.of(n("search bread")), IngredientMatch.ANY));
+        assertEquals(Set.of(n("search club sandwich")),
+                search(false, null, 4, List.of(n("search tomato")), null, IngredientMatch.ANY));
+        assertEquals(Set.of(n("search basil pesto")),
+                search(null, 3, null, List.of(n("search basil")), null, IngredientMatch.ANY));
+    }
+
+    @Test
+    void searchRecipes_ReflectsUpdatesAndDeletes() {
+        recipeRepository.findByName(n("search toast")).ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(new RecipeDto(null, n("search toast"), true, 1, "Toast the bread.",
+                Set.of(new IngredientDto(null, n("search toast bread")), new IngredientDto(null, n("search toast butter")))));
+        Long toastId = recipeRepository.findByName(n("search toast")).orElseThrow().getId();
+
+        recipeService.updateRecipe(toastId, new RecipeDto(null, n("search toast"), false, 1, "Toast the bread.",
+                Set.of(new IngredientDto(null, n("search toast bread")))));
+        assertEquals(Set.of(), search(null, null, null, List.of(n("search toast butter")), null, IngredientMatch.ANY));
+        assertEquals(Set.of(n("search toast")), search(false, null, null, List.of(n("search toast bread")), null, IngredientMatch.ANY));
+
+        recipeService.deleteRecipe(toastId);
+        assertEquals(Set.of(), search(null, null, null, List.of(n("search toast bread")), null, IngredientMatch.ANY));
+    }
+
+    @Test
+    void searchRecipes_PagesInIdOrder() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, List.of(n("search tomato")), null, null, IngredientMatch.ANY);
+
+        RecipePageDto first = recipeService.searchRecipes(criteria, null, 2);
+        assertEquals(2, first.recipes().size());
+        assertEquals(first.recipes().get(1).id(), first.nextAfter());
+
+        RecipePageDto second = recipeService.searchRecipes(criteria, first.nextAfter(), 2);
+        assertEquals(1, second.recipes().size());
+        assertNull(second.nextAfter());
+        assertTrue(second.recipes().get(0).id() > first.nextAfter());
+
+        Set<String> names = new HashSet<>();
+        first.recipes().forEach(recipe -> names.add(recipe.name()));
+        second.recipes().forEach(recipe -> names.add(recipe.name()));
+        assertEquals(Set.of(n("search bruschetta"), n("search caprese"), n("search club sandwich")), names);
+    }
+
+    @Test
+    void searchRecipes_LeavesOutInstructionsWhenAsked() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, List.of(n("search tomato")), null, null, IngredientMatch.ANY);
+
+        List<RecipeDto> withInstructions = recipeService.searchRecipes(criteria, true);
+        List<RecipeDto> withoutInstructions = recipeService.searchRecipes(criteria, false);
+
+        assertEquals(3, withoutInstructions.size());
+        assertTrue(withInstructions.stream().allMatch(recipe -> recipe.instructions() != null));
+        assertTrue(withoutInstructions.stream().allMatch(recipe -> recipe.instructions() == null));
+        assertEquals(withInstructions.stream().map(RecipeDto::ingredients).toList(),
+                withoutInstructions.stream().map(RecipeDto::ingredients).toList());
+        assertNull(recipeService.searchRecipes(criteria, null, 2, false).recipes().get(0).instructions());
+    }
+
+    @Test
+    void searchRecipes_MatchesMisspelledIngredients() {
+        assertEquals(Set.of(n("search caprese")),
+                search(null, null, null, List.of(n("search mozarela")), null, IngredientMatch.ANY));
+        assertEquals(Set.of(n("search bruschetta"), n("search caprese")),
+                search(null, null, null, List.of(n("search tomatoe"), n("Search Basl")), null, IngredientMatch.ALL));
+        assertEquals(Set.of(n("search caprese"), n("search basil pesto")),
+                search(null, null, null, List.of(n("search basil")), List.of(n("search bred")), IngredientMatch.ANY));
+        assertEquals(Set.of(),
+                search(null, null, null, List.of(n("search tomato"), n("search mushrooms")), null, IngredientMatch.ALL));
+    }
+
+    @Test
+    void searchRecipes_CountsFacetsOverAllMatches() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, List.of(n("search tomato")), null, null, IngredientMatch.ANY);
+
+        RecipeSearchResultDto result = recipeService.searchRecipes(criteria, null, 2, false, EnumSet.allOf(Facet.class));
+
+        assertEquals(2, result.recipes().size());
+        assertNotNull(result.nextAfter());
+        RecipeFacetsDto facets = result.facets();
+        assertEquals(3, facets.total());
+        assertEquals(new VegetarianCount(2, 1), facets.vegetarian());
+        assertEquals(List.of("1-2", "3-4", "5-6", "7-9", "10+"), List.copyOf(facets.servings().keySet()));
+        assertEquals(List.of(3L, 0L, 0L, 0L, 0L), List.copyOf(facets.servings().values()));
+        // The included tomato itself is left out; ingredient names are stored in lower case
+        assertEquals(Map.of(n("search basil").toLowerCase(), 2L, n("search bread").toLowerCase(), 2L,
+                        n("search mozzarella").toLowerCase(), 1L, n("search bacon").toLowerCase(), 1L),
+                facets.ingredients().stream().collect(Collectors.toMap(IngredientCount::name, IngredientCount::count)));
+        assertEquals(List.of(2L, 2L, 1L, 1L), facets.ingredients().stream().map(IngredientCount::count).toList());
+        assertFalse(facets.ingredientsApproximate());
+
+        RecipeSearchCriteria withInstructions = new RecipeSearchCriteria(null, null, null, List.of(n("search tomato")), null,
+                "caprese", IngredientMatch.ANY);
+        RecipeSearchResultDto caprese = recipeService.searchRecipes(withInstructions, null, null, true, EnumSet.of(Facet.VEGETARIAN));
+        assertEquals(List.of(n("search caprese")), caprese.recipes().stream().map(RecipeDto::name).toList());
+        assertEquals(new VegetarianCount(1, 0), caprese.facets().vegetarian());
+        assertNull(caprese.facets().servings());
+        assertNull(caprese.facets().ingredients());
+        assertNull(caprese.facets().ingredientsApproximate());
+    }
+
+    @Test
+    void findRecipes_PagesThroughAllRecipes() {
+        List<Long> ids = new ArrayList<>();
+        Long after = null;
+        do {
+            RecipePageDto page = recipeService.findRecipes(after, 3);
+            page.recipes().forEach(recipe -> ids.add(recipe.id()));
+            after = page.nextAfter();
+        } while (after != null);
+
+        assertEquals(recipeRepository.count(), ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids);
+    }
+
+    /**
+     * Prefixes names with the test class, because the subclass runs in another context against the same database.
+     */
+    private String n(String name) {
+        return getClass().getSimpleName() + " " + name;
+    }
+
+    private Set<String> search(Boolean isVegetarian, Integer minServings, Integer maxServings, List<String> included,
+                               List<String> excluded, IngredientMatch ingredientMatch) {
+        return recipeService.searchRecipes(new RecipeSearchCriteria(isVegetarian, minServings, maxServings, included, excluded, null, ingredientMatch))
+                .stream()
+                .map(RecipeDto::name)
+                .collect(Collectors.toSet());
+    }
+
+    private void createIfMissing(String name, boolean isVegetarian, int servings, String... ingredients) {
+        if (recipeRepository.findByName(name).isEmpty()) {
+            recipeService.createRecipe(new RecipeDto(null, name, isVegetarian, servings, "Prepare " + name + ".",
+                    Arrays.stream(ingredients).map(ingredient -> new IngredientDto(null, ingredient)).collect(Collectors.toSet())));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package thijs.abn.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeSearchCriteria;
+import thijs.abn.model.RecipeSearchCriteria.IngredientMatch;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the searches answered by the in-memory index against the recipe_search read model.
+ */
+@SpringBootTest(properties = "recipes.search.read-model.verify-rate=1")
+public class RecipeSearchVerificationTest {
+
+    private static final String PREFIX = "RecipeSearchVerificationTest ";
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeSearchReadModel recipeSearchReadModel;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void searchRecipes_CountsSearchesTheReadModelAnswersDifferently() {
+        recipeRepository.findByName(PREFIX + "stew").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(new RecipeDto(null, PREFIX + "stew", false, 4, "Simmer.",
+                Set.of(new IngredientDto(null, PREFIX + "beef"), new IngredientDto(null, PREFIX + "carrot"))));
+        Long stewId = recipeRepository.findByName(PREFIX + "stew").orElseThrow().getId();
+        double before = mismatches();
+
+        assertEquals(List.of(stewId), search(null, PREFIX + "beef"));
+        assertEquals(before, mismatches());
+
+        try {
+            jdbcTemplate.update("DELETE FROM recipe_search_ingredients WHERE recipe_id = ?", stewId);
+            assertEquals(List.of(stewId), search(false, PREFIX + "carrot"), "The index should still answer the search");
+            assertEquals(before + 1, mismatches());
+        } finally {
+            recipeSearchReadModel.rebuild();
+        }
+    }
+
+    private List<Long> search(Boolean isVegetarian, String ingredient) {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(isVegetarian, null, null, List.of(ingredient), null, null, IngredientMatch.ANY);
+        return recipeService.searchRecipes(criteria).stream().map(RecipeDto::id).toList();
+    }
+
+    private double mismatches() {
+        return meterRegistry.get("recipes.search.read.model.mismatches").counter().count();
+    }
+}
@@ -0,0 +1,80 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.core.io.ByteArrayResource;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeStreamImportResultDto;
+import thijs.abn.repository.IngredientRepository;
+import thijs.abn.repository.RecipeRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {"recipes.import.batch-size=2", "recipes.seed.workers=4"})
+public class RecipeSeederTest {
+
+    @Autowired
+    private RecipeSeeder recipeSeeder;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @SpyBean
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Test
+    void seed_ImportsChunksInParallelWithSharedIngredients() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            json.append("{\"name\":\"seeded dish ").append(i).append("\",\"isVegetarian\":true,\"servings\":2,")
+                    .append("\"instructions\":\"Cook it.\",\"ingredients\":[{\"name\":\"Seeded Salt\"},")
+                    .append("{\"name\":\"seeded herb ").append(i % 3).append("\"}]},");
+        }
+        // A duplicate in another chunk and an invalid recipe are rejected without failing the seed
+        json.append("{\"name\":\"seeded dish 3\",\"isVegetarian\":false,\"servings\":1,\"instructions\":\"Again.\",\"ingredients\":[]},");
+        json.append("{\"name\":\"seeded dish broken\",\"isVegetarian\":false,\"servings\":2,\"instructions\":\" \",\"ingredients\":[]}]");
+
+        RecipeStreamImportResultDto result = recipeSeeder.seed(new ByteArrayResource(json.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(20, result.created());
+        assertEquals(2, result.rejected());
+        assertNull(result.error());
+        assertTrue(ingredientRepository.findByName("seeded salt").isPresent());
+
+        RecipeDto dish = recipeService.getRecipe(recipeRepository.findByName("seeded dish 4").orElseThrow().getId());
+        assertTrue(dish.isVegetarian());
+        assertEquals(Set.of("seeded salt", "seeded herb 1"),
+                dish.ingredients().stream().map(IngredientDto::name).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void seed_RetriesChunksThatLoseANameRace() throws Exception {
+        if (recipeRepository.findByName("seeded race dish").isEmpty()) {
+            recipeService.createRecipe(new RecipeDto(null, "seeded race dish", true, 2, "Cook it.", Set.of()));
+        }
+        // The name looks free to the first two attempts, as if a concurrent chunk committed it right after the check
+        doReturn(List.of()).doReturn(List.of()).doReturn(List.of("seeded race dish"))
+                .when(recipeRepository).findExistingNames(anyCollection());
+
+        RecipeStreamImportResultDto result = recipeSeeder.seed(new ByteArrayResource(
+                "[{\"name\":\"seeded race dish\",\"isVegetarian\":true,\"servings\":2,\"instructions\":\"Cook it.\",\"ingredients\":[]}]"
+                        .getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, result.created());
+        assertEquals(1, result.rejected());
+        verify(recipeRepository, times(3)).findExistingNames(anyCollection());
+    }
+}
@@ -7,11 +7,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import thijs.abn.entity.Recipe;
+import org.springframework.data.domain.PageRequest;
+import thijs.abn.config.RecipeProperties;
 import thijs.abn.mapper.RecipeMapper;
-import thijs.abn.model.RecipeDto;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipePageDto;
 import thijs.abn.repository.IngredientRepository;
 import thijs.abn.repository.RecipeRepository;
+import thijs.abn.repository.RecipeRow;
 
 import java.util.List;
 import java.util.Set;
@@ -28,30 +31,34 @@ public class RecipeServiceTest {
     @Mock
     private RecipeMapper recipeMapper;
 
+    @Mock
+    private RecipeProperties recipeProperties;
+
     @InjectMocks
     private RecipeService recipeService;
 
     @Test
-    public void findAllRecipes_ReturnsAllRecipes() {
+    public void findRecipes_WithoutLimit_ReturnsDefaultPage() {
         // Setup
-        Recipe recipe = new Recipe();
-        recipe.setName("Sample Recipe");
-        List<Recipe> recipes = List.of(recipe);
-        RecipeDto recipeDto = new RecipeDto(null, "Sample Recipe", false, 4, "Instructions", Set.of());
+        RecipeRow row = new RecipeRow(1L, "Sample Recipe", false, 4, "Instructions", 0L);
+        List<Object[]> ingredients = List.<Object[]>of(new Object[]{1L, 2L, "salt"});
 
-        Mockito.when(recipeRepository.findAllRecipesWithIngredients()).thenReturn(recipes);
-        Mockito.when(recipeMapper.map(recipe)).thenReturn(recipeDto);
+        Mockito.when(recipeProperties.getPagination()).thenReturn(new RecipeProperties.Pagination());
+        Mockito.when(recipeRepository.findIdsAfter(0L, PageRequest.of(0, 51))).thenReturn(List.of(1L));
+        Mockito.when(recipeRepository.findRowsByIdIn(List.of(1L))).thenReturn(List.of(row));
+        Mockito.when(recipeRepository.findIngredientNamesByRecipeIdIn(List.of(1L))).thenReturn(ingredients);
 
         // Execute
-        List<RecipeDto> result = recipeService.findAllRecipes();
+        RecipePageDto result = recipeService.findRecipes(null, null);
 
         // Verify
-        Mockito.verify(recipeRepository).findAllRecipesWithIngredients();
-        Mockito.verify(recipeMapper).map(recipe);
+        Mockito.verify(recipeRepository).findIdsAfter(0L, PageRequest.of(0, 51));
 
         // Assert
-        Assertions.assertEquals(1, result.size());
-        Assertions.assertEquals("Sample Recipe", result.get(0).name());
+        Assertions.assertEquals(1, result.recipes().size());
+        Assertions.assertNull(result.nextAfter());
+        Assertions.assertEquals("Sample Recipe", result.recipes().get(0).name());
+        Assertions.assertEquals(Set.of(new IngredientDto(2L, "salt")), result.recipes().get(0).ingredients());
     }
 
 }
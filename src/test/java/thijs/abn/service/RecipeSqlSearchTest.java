@@ -0,0 +1,10 @@
+package thijs.abn.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the search scenarios against the SQL specification instead of the in-memory index.
+ */
+@SpringBootTest(properties = {"recipes.search.index.enabled=false", "recipes.search.read-model.enabled=false"})
+public class RecipeSqlSearchTest extends RecipeSearchTest {
+}
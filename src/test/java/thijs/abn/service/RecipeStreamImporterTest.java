@@ -0,0 +1,78 @@
+package thijs.abn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import thijs.abn.model.RecipeStreamImportResultDto;
+import thijs.abn.repository.RecipeRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "recipes.import.batch-size=2")
+public class RecipeStreamImporterTest {
+
+    @Autowired
+    private RecipeStreamImporter recipeStreamImporter;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Test
+    void importStream_ReadsNdjsonInChunks() {
+        RecipeStreamImportResultDto result = recipeStreamImporter.importStream(stream(
+                recipe("ndjson one") + "\n" + recipe("ndjson two") + "\n" + recipe("ndjson three") + "\n"), 0);
+
+        assertNull(result.error());
+        assertEquals(3, result.committed());
+        assertEquals(3, result.created());
+        assertTrue(recipeRepository.findByName("ndjson three").isPresent());
+    }
+
+    @Test
+    void importStream_ResumesFromSkipAndReportsRejections() {
+        RecipeStreamImportResultDto result = recipeStreamImporter.importStream(stream(
+                "[" + recipe("array one") + "," + recipe("array two") + "," + recipe("array two") + "]"), 1);
+
+        assertNull(result.error());
+        assertEquals(3, result.committed());
+        assertEquals(1, result.skipped());
+        assertEquals(1, result.created());
+        assertEquals(1, result.rejected());
+        assertEquals(2, result.rejections().get(0).index());
+        assertFalse(recipeRepository.findByName("array one").isPresent(), "Skipped records should not be imported");
+    }
+
+    @Test
+    void importStream_ReportsCommittedChunksWhenAborted() {
+        RecipeStreamImportResultDto result = recipeStreamImporter.importStream(stream(
+                recipe("broken one") + "\n" + recipe("broken two") + "\n" + "{\"name\": \"broken thr"), 0);
+
+        assertNotNull(result.error());
+        assertEquals(2, result.committed());
+        assertTrue(recipeRepository.findByName("broken two").isPresent());
+    }
+
+    @Test
+    void importStream_ReportsSkippedRecordsAsCommittedWhenAbortedAfterTheSkip() {
+        RecipeStreamImportResultDto result = recipeStreamImporter.importStream(stream(
+                recipe("resumed one") + "\n" + recipe("resumed two") + "\n" + recipe("resumed three") + "\n" + "{\"name\": \"resumed fo"), 3);
+
+        assertNotNull(result.error());
+        assertEquals(3, result.skipped());
+        assertEquals(3, result.committed(), "Resuming with skip = committed should not repeat the skipped records");
+        assertEquals(0, result.created());
+    }
+
+    private static String recipe(String name) {
+        return "{\"name\": \"" + name + "\", \"isVegetarian\": true, \"servings\": 2, \"instructions\": \"Mix it.\", " +
+                "\"ingredients\": [{\"name\": \"stream flour\"}]}";
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
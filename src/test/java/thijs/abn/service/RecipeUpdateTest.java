@@ -0,0 +1,140 @@
+package thijs.abn.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import thijs.abn.exception.InvalidRecipeException;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipePatchDto;
+import thijs.abn.repository.IngredientRepository;
+import thijs.abn.repository.RecipeRepository;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class RecipeUpdateTest {
+
+    private static final int INGREDIENT_COUNT = 60;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private IngredientDictionary ingredientDictionary;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long recipeId;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository.findByName("update stew").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(recipe(ingredients(0, INGREDIENT_COUNT)));
+        recipeId = recipeRepository.findByName("update stew").orElseThrow().getId();
+        // Creating an ingredient counts as a collection recreate for its inverse side, so create them up front
+        ingredientDictionary.resolve(Set.of("update ingredient " + INGREDIENT_COUNT, "update ingredient new"));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void updateRecipe_WritesOnlyChangedLinks() {
+        RecipeDto updated = recipeService.updateRecipe(recipeId, recipe(ingredients(1, INGREDIENT_COUNT + 1)));
+
+        assertEquals(ingredientNames(1, INGREDIENT_COUNT + 1), updated.ingredients().stream().map(IngredientDto::name).collect(Collectors.toSet()));
+        assertEquals(0, statistics.getCollectionRecreateCount(), "The ingredient links should not be rewritten");
+        assertEquals(1, statistics.getCollectionUpdateCount());
+        // Only the version is incremented, as the ingredients changed
+        assertEquals(1, statistics.getEntityUpdateCount());
+        assertEquals(1, updated.version());
+    }
+
+    @Test
+    void updateRecipe_SkipsWritesWhenNothingChanged() {
+        recipeService.updateRecipe(recipeId, recipe(ingredients(0, INGREDIENT_COUNT)));
+
+        assertEquals(0, statistics.getCollectionRecreateCount());
+        assertEquals(0, statistics.getCollectionUpdateCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    void patchRecipe_ChangesOnlyGivenFieldsAndIngredients() {
+        RecipeDto patched = recipeService.patchRecipe(recipeId, new RecipePatchDto(null, null, 8, null, null,
+                Set.of(new IngredientDto(null, "update ingredient new")), Set.of(new IngredientDto(null, "Update Ingredient 0"))));
+
+        assertEquals(8, patched.servings());
+        assertEquals("Simmer everything.", patched.instructions());
+        Set<String> expected = ingredientNames(1, INGREDIENT_COUNT);
+        expected.add("update ingredient new");
+        assertEquals(expected, patched.ingredients().stream().map(IngredientDto::name).collect(Collectors.toSet()));
+        assertEquals(0, statistics.getCollectionRecreateCount());
+        assertEquals(1, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    void patchRecipe_RejectsPatchesThatLeaveTheRecipeInvalid() {
+        assertThrows(InvalidRecipeException.class, () -> recipeService.patchRecipe(recipeId,
+                new RecipePatchDto(" ", null, null, null, null, null, null)));
+        assertThrows(InvalidRecipeException.class, () -> recipeService.patchRecipe(recipeId,
+                new RecipePatchDto(null, null, 0, null, null, null, null)));
+        assertThrows(InvalidRecipeException.class, () -> recipeService.patchRecipe(recipeId,
+                new RecipePatchDto(null, null, null, "", null, null, null)));
+        assertThrows(InvalidRecipeException.class, () -> recipeService.patchRecipe(recipeId,
+                new RecipePatchDto(null, null, null, null, null, null, Set.of(new IngredientDto(null, null)))));
+        assertThrows(InvalidRecipeException.class, () -> recipeService.patchRecipe(recipeId,
+                new RecipePatchDto(null, null, null, null, null, null, Set.of(new IngredientDto(null, "update ingredient absent")))));
+        assertThrows(InvalidRecipeException.class, () -> recipeService.patchRecipe(recipeId,
+                new RecipePatchDto(null, null, null, null, Set.of(), null, null)));
+        assertThrows(InvalidRecipeException.class, () -> recipeService.patchRecipe(recipeId,
+                new RecipePatchDto(null, null, null, null, null, null, ingredients(0, INGREDIENT_COUNT))));
+
+        RecipeDto recipe = recipeService.getRecipe(recipeId);
+        assertEquals("update stew", recipe.name());
+        assertEquals(6, recipe.servings());
+        assertEquals(0, recipe.version());
+    }
+
+    @Test
+    void updateRecipe_RollsBackNewIngredientsWithTheWrite() {
+        recipeRepository.findByName("update soup").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(new RecipeDto(null, "update soup", false, 2, "Stir.", Set.of()));
+
+        // The name is taken, so the update fails after creating its new ingredient
+        assertThrows(RuntimeException.class, () -> recipeService.updateRecipe(recipeId, new RecipeDto(null, "update soup",
+                false, 6, "Simmer everything.", Set.of(new IngredientDto(null, "update ingredient orphan")))));
+
+        assertTrue(ingredientRepository.findByName("update ingredient orphan").isEmpty());
+        assertTrue(ingredientDictionary.find("update ingredient orphan").isEmpty());
+    }
+
+    private static RecipeDto recipe(Set<IngredientDto> ingredients) {
+        return new RecipeDto(null, "update stew", false, 6, "Simmer everything.", ingredients);
+    }
+
+    private static Set<IngredientDto> ingredients(int from, int to) {
+        return ingredientNames(from, to).stream().map(name -> new IngredientDto(null, name)).collect(Collectors.toSet());
+    }
+
+    private static Set<String> ingredientNames(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "update ingredient " + i).collect(Collectors.toSet());
+    }
+}
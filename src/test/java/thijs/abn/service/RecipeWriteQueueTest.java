@@ -0,0 +1,238 @@
+package thijs.abn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import thijs.abn.config.RecipeProperties;
+import thijs.abn.exception.InvalidRecipeException;
+import thijs.abn.exception.ServiceUnavailableException;
+import thijs.abn.exception.TooManyRequestsException;
+import thijs.abn.model.IngredientDto;
+import thijs.abn.model.RecipeDto;
+import thijs.abn.model.RecipeImportItemDto;
+import thijs.abn.model.RecipeImportResultDto;
+import thijs.abn.model.RecipePatchDto;
+import thijs.abn.model.RecipeWriteStatusDto;
+import thijs.abn.model.RecipeWriteStatusDto.Status;
+import thijs.abn.repository.RecipeRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+public class RecipeWriteQueueTest {
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void drainOnce_CoalescesUpdatesAndBatchesCreates() throws Exception {
+        recipeRepository.findByName("write queue soup").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeRepository.findByName("write queue salad").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(recipe("write queue soup", 2));
+        Long soupId = recipeRepository.findByName("write queue soup").orElseThrow().getId();
+
+        RecipeWriteQueue queue = queue(10);
+        queue.recover();
+        RecipeWriteStatusDto first = queue.submitUpdate(soupId, recipe("write queue soup", 4), null);
+        RecipeWriteStatusDto second = queue.submitUpdate(soupId, recipe("write queue soup", 6), null);
+        RecipeWriteStatusDto create = queue.submitCreate(recipe("write queue salad", 1));
+        assertEquals(Status.QUEUED, queue.getStatus(create.id()).orElseThrow().status());
+
+        assertEquals(3, queue.drainOnce());
+        queue.stop();
+
+        assertEquals(Status.SUPERSEDED, queue.getStatus(first.id()).orElseThrow().status());
+        assertEquals(Status.DONE, queue.getStatus(second.id()).orElseThrow().status());
+        RecipeWriteStatusDto created = queue.getStatus(create.id()).orElseThrow();
+        assertEquals(Status.DONE, created.status());
+        assertEquals(recipeRepository.findByName("write queue salad").orElseThrow().getId(), created.recipeId());
+        assertEquals(6, recipeRepository.findByName("write queue soup").orElseThrow().getServings());
+        assertEquals(0, Files.size(directory.resolve("writes.journal")), "Journal should be truncated once drained");
+    }
+
+    @Test
+    void drainOnce_AppliesPatchesAndDeletesInOrderAndReportsStaleIfMatch() throws Exception {
+        recipeRepository.findByName("write queue stew").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+        recipeService.createRecipe(recipe("write queue stew", 2));
+        Long stewId = recipeRepository.findByName("write queue stew").orElseThrow().getId();
+
+        RecipeWriteQueue queue = queue(10);
+        queue.recover();
+        RecipeWriteStatusDto stale = queue.submitUpdate(stewId, recipe("write queue stew", 3), 99L);
+        RecipeWriteStatusDto update = queue.submitUpdate(stewId, recipe("write queue stew", 4), null);
+        RecipeWriteStatusDto patch = queue.submitPatch(stewId, new RecipePatchDto(null, null, 5, null, null, null, null), null);
+        RecipeWriteStatusDto delete = queue.submitDelete(stewId);
+
+        assertEquals(4, queue.drainOnce());
+        queue.stop();
+
+        assertEquals(Status.PRECONDITION_FAILED, queue.getStatus(stale.id()).orElseThrow().status(),
+                "A conditional update should be checked, not superseded");
+        assertEquals(Status.DONE, queue.getStatus(update.id()).orElseThrow().status());
+        assertEquals(Status.DONE, queue.getStatus(patch.id()).orElseThrow().status());
+        assertEquals(Status.DONE, queue.getStatus(delete.id()).orElseThrow().status());
+        assertFalse(recipeRepository.existsById(stewId), "The delete should be applied after the queued update and patch");
+    }
+
+    @Test
+    void submit_RejectsInvalidRecipesAndFullQueue() throws Exception {
+        RecipeWriteQueue queue = queue(1);
+        queue.recover();
+
+        assertThrows(InvalidRecipeException.class, () -> queue.submitCreate(recipe(" ", 1)));
+        queue.submitCreate(recipe("write queue full one", 1));
+        assertThrows(TooManyRequestsException.class, () -> queue.submitCreate(recipe("write queue full two", 1)));
+        queue.stop();
+    }
+
+    @Test
+    void recover_ReplaysJournaledWrites() throws Exception {
+        recipeRepository.findByName("write queue replay").ifPresent(recipe -> recipeService.deleteRecipe(recipe.getId()));
+
+        RecipeWriteQueue crashed = queue(10);
+        crashed.recover();
+        String writeId = crashed.submitCreate(recipe("write queue replay", 3)).id();
+        crashed.stop();
+
+        RecipeWriteQueue restarted = queue(10);
+        restarted.recover();
+        assertEquals(Status.QUEUED, restarted.getStatus(writeId).orElseThrow().status());
+        assertEquals(1, restarted.drainOnce());
+        restarted.stop();
+
+        assertEquals(Status.DONE, restarted.getStatus(writeId).orElseThrow().status());
+        assertTrue(recipeRepository.findByName("write queue replay").isPresent());
+    }
+
+    @Test
+    void drainOnce_IsolatesFailuresAndRetriesTransientOnes() throws Exception {
+        RecipeService failingService = mock(RecipeService.class);
+        RecipeRepository repository = mock(RecipeRepository.class);
+        given(repository.existsById(1L)).willReturn(true);
+        given(failingService.createRecipes(anyList())).willThrow(new IllegalStateException("create failed"));
+        given(failingService.updateRecipe(eq(1L), any(), isNull()))
+                .willThrow(new CannotCreateTransactionException("connection lost"))
+                .willThrow(new CannotCreateTransactionException("connection lost"))
+                .willReturn(recipe("write queue retry", 4));
+
+        RecipeWriteQueue queue = queue(10, failingService, repository);
+        queue.recover();
+        String create = queue.submitCreate(recipe("write queue rejected", 1)).id();
+        String update = queue.submitUpdate(1L, recipe("write queue retry", 4), null).id();
+
+        assertEquals(2, queue.drainOnce());
+        assertEquals(Status.FAILED, queue.getStatus(create).orElseThrow().status());
+        assertEquals(Status.QUEUED, queue.getStatus(update).orElseThrow().status(), "A transient failure should be retried");
+        assertTrue(Files.size(directory.resolve("writes.journal")) > 0, "The retried write should stay journaled");
+
+        assertEquals(1, queue.drainOnce());
+        queue.stop();
+        assertEquals(Status.DONE, queue.getStatus(update).orElseThrow().status());
+        assertEquals(0, Files.size(directory.resolve("writes.journal")));
+    }
+
+    @Test
+    void drainOnce_KeepsLaterUpdatesBehindARetriedOne() throws Exception {
+        RecipeService failingService = mock(RecipeService.class);
+        RecipeRepository repository = mock(RecipeRepository.class);
+        given(repository.existsById(1L)).willReturn(true);
+        RecipeDto older = recipe("write queue order", 4);
+        RecipeDto newer = recipe("write queue order", 6);
+        // Fails in the batch and on its own, then succeeds on the retry
+        given(failingService.updateRecipe(1L, older, null))
+                .willThrow(new CannotCreateTransactionException("connection lost"))
+                .willThrow(new CannotCreateTransactionException("connection lost"))
+                .willReturn(older);
+        given(failingService.updateRecipe(1L, newer, 0L)).willReturn(newer);
+
+        RecipeWriteQueue queue = queue(10, failingService, repository);
+        queue.recover();
+        String first = queue.submitUpdate(1L, older, null).id();
+        String second = queue.submitUpdate(1L, newer, 0L).id();
+
+        assertEquals(2, queue.drainOnce());
+        assertEquals(Status.QUEUED, queue.getStatus(first).orElseThrow().status());
+        assertEquals(Status.QUEUED, queue.getStatus(second).orElseThrow().status(), "The newer update should wait for the retry");
+        verify(failingService, never()).updateRecipe(1L, newer, 0L);
+
+        assertEquals(2, queue.drainOnce());
+        queue.stop();
+        InOrder order = inOrder(failingService);
+        order.verify(failingService, times(3)).updateRecipe(1L, older, null);
+        order.verify(failingService).updateRecipe(1L, newer, 0L);
+        assertEquals(Status.DONE, queue.getStatus(first).orElseThrow().status());
+        assertEquals(Status.DONE, queue.getStatus(second).orElseThrow().status());
+    }
+
+    @Test
+    void drainOnce_RetriesWritesRejectedDuringARestore() throws Exception {
+        RecipeService fencedService = mock(RecipeService.class);
+        ServiceUnavailableException fenced = new ServiceUnavailableException("The recipe catalogue is being replaced, retry later");
+        // Rejected in the batch and on its own, then written once the restore is done
+        given(fencedService.createRecipes(anyList()))
+                .willThrow(fenced)
+                .willThrow(fenced)
+                .willReturn(RecipeImportResultDto.of(List.of(RecipeImportItemDto.created(0, "write queue fenced", 1L))));
+
+        RecipeWriteQueue queue = queue(10, fencedService, mock(RecipeRepository.class));
+        queue.recover();
+        String create = queue.submitCreate(recipe("write queue fenced", 1)).id();
+
+        assertEquals(1, queue.drainOnce());
+        assertEquals(Status.QUEUED, queue.getStatus(create).orElseThrow().status());
+        assertEquals(1, queue.drainOnce());
+        queue.stop();
+        assertEquals(Status.DONE, queue.getStatus(create).orElseThrow().status());
+    }
+
+    @Test
+    void submit_RejectsWritesBeforeTheJournalIsOpen() throws Exception {
+        RecipeWriteQueue queue = queue(10);
+
+        assertThrows(ServiceUnavailableException.class, () -> queue.submitCreate(recipe("write queue early", 1)));
+        queue.recover();
+        queue.submitCreate(recipe("write queue early", 1));
+        queue.stop();
+        assertThrows(ServiceUnavailableException.class, () -> queue.submitCreate(recipe("write queue late", 1)));
+    }
+
+    private RecipeWriteQueue queue(int capacity) {
+        return queue(capacity, recipeService, recipeRepository);
+    }
+
+    private RecipeWriteQueue queue(int capacity, RecipeService recipeService, RecipeRepository recipeRepository) {
+        RecipeProperties properties = new RecipeProperties();
+        properties.getWriteQueue().setCapacity(capacity);
+        properties.getWriteQueue().setJournal(directory.resolve("writes.journal"));
+        return new RecipeWriteQueue(recipeService, recipeRepository, transactionManager, properties, objectMapper);
+    }
+
+    private static RecipeDto recipe(String name, int servings) {
+        return new RecipeDto(null, name, true, servings, "Cook it.", Set.of(new IngredientDto(null, "write queue water")));
+    }
+}
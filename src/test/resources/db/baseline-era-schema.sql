@@ -0,0 +1,30 @@
+-- The schema Hibernate generated with ddl-auto: update before the migrations existed, with one recipe in it
+CREATE TABLE recipes
+(
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    is_vegetarian BOOLEAN      NOT NULL,
+    servings      INTEGER      NOT NULL,
+    instructions  CLOB         NOT NULL,
+    name          VARCHAR(255) NOT NULL UNIQUE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ingredients
+(
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name VARCHAR(255) NOT NULL UNIQUE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE recipe_ingredients
+(
+    recipe_id     BIGINT NOT NULL,
+    ingredient_id BIGINT NOT NULL,
+    PRIMARY KEY (recipe_id, ingredient_id),
+    FOREIGN KEY (recipe_id) REFERENCES recipes (id),
+    FOREIGN KEY (ingredient_id) REFERENCES ingredients (id)
+);
+
+INSERT INTO recipes (is_vegetarian, servings, instructions, name) VALUES (TRUE, 2, 'Boil the eggs.', 'baseline era eggs');
+INSERT INTO ingredients (name) VALUES ('baseline era egg');
+INSERT INTO recipe_ingredients (recipe_id, ingredient_id) VALUES (1, 1);